@@ -0,0 +1,81 @@
+package com.nucc.hackwinds;
+
+import android.os.Debug;
+import android.util.Log;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Helpers shared by the benchmarks: collecting the measured runs after a warmup, counting what a
+ * run allocates, and logging the result before checking it.
+ */
+public final class BenchmarkUtils {
+
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * Measurements from a benchmark loop. Runs are numbered from zero including the warmup, and the
+     * warmup runs are dropped when they are recorded.
+     */
+    public static class Samples {
+        private final int mWarmupRuns;
+        private final long[] mValues;
+
+        public Samples(int warmupRuns, int measuredRuns) {
+            mWarmupRuns = warmupRuns;
+            mValues = new long[measuredRuns];
+        }
+
+        public void record(int run, long value) {
+            if (run >= mWarmupRuns) {
+                mValues[run - mWarmupRuns] = value;
+            }
+        }
+
+        public long median() {
+            return BenchmarkUtils.median(mValues);
+        }
+
+        public long slowest() {
+            long slowest = Long.MIN_VALUE;
+            for (long value : mValues) {
+                slowest = Math.max(slowest, value);
+            }
+            return slowest;
+        }
+    }
+
+    public static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Starts counting the bytes allocated on this thread.
+     */
+    public static void startCounting() {
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+    }
+
+    /**
+     * @return The bytes allocated on this thread since startCounting()
+     */
+    public static long stopCounting() {
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocSize();
+    }
+
+    /**
+     * Logs the summary under the benchmark's tag, then fails with it unless the value is below the limit.
+     */
+    public static void logAndAssertBelow(String tag, String summary, long value, long limit) {
+        Log.i(tag, summary);
+        assertTrue(summary, value < limit);
+    }
+}
@@ -0,0 +1,98 @@
+package com.nucc.hackwinds.models;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.nucc.hackwinds.BenchmarkUtils;
+import com.nucc.hackwinds.types.Forecast;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times the streaming forecast parser against the JSONObject tree parser it replaced, on the same
+ * payload. The medians are logged under the ForecastParserBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastParserBenchmark {
+
+    private static final String TAG = "ForecastParserBenchmark";
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 200;
+
+    @Test
+    public void streamingParserBeatsTreeParser() throws Exception {
+        String payload = ForecastPayloads.create();
+        ForecastModel model = ForecastModel.getInstance(InstrumentationRegistry.getTargetContext());
+
+        BenchmarkUtils.Samples streamingNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples treeNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long startTime = System.nanoTime();
+            assertTrue(model.parseForecasts(payload));
+            long streamingTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            ArrayList<Forecast> forecasts = parseWithJsonObject(payload);
+            long treeTime = System.nanoTime() - startTime;
+            assertEquals(model.FORECAST_DATA_COUNT - model.FORECAST_DATA_BEGIN_INDEX, forecasts.size());
+
+            streamingNanos.record(i, streamingTime);
+            treeNanos.record(i, treeTime);
+        }
+
+        long streamingMedian = streamingNanos.median();
+        long treeMedian = treeNanos.median();
+        BenchmarkUtils.logAndAssertBelow(TAG, "JsonReader " + streamingMedian / 1000 + "us, JSONObject " + treeMedian / 1000 + "us (median of " +
+                MEASURED_RUNS + ", " + payload.length() + " chars)", streamingMedian, treeMedian);
+    }
+
+    /**
+     * The parser ForecastModel used before it streamed the payload, building the whole tree and a
+     * forecast object per entry.
+     */
+    private static ArrayList<Forecast> parseWithJsonObject(String rawData) throws JSONException {
+        ArrayList<Forecast> forecasts = new ArrayList<>();
+        JSONObject jsonObj = new JSONObject(rawData);
+        jsonObj.getString("LocationName");
+        jsonObj.getJSONObject("WaveModel").getString("ModelRun");
+        jsonObj.getJSONObject("WindModel").getString("ModelRun");
+
+        JSONArray forecastJsonArray = jsonObj.getJSONArray("ForecastData");
+        for (int i = 2; i < 60; i++) {
+            JSONObject rawForecast = forecastJsonArray.getJSONObject(i);
+
+            Forecast forecast = new Forecast();
+            forecast.date = rawForecast.getString("Date");
+            forecast.time = rawForecast.getString("Time");
+            forecast.minimumBreakingHeight = rawForecast.getDouble("MinimumBreakingHeight");
+            forecast.maximumBreakingHeight = rawForecast.getDouble("MaximumBreakingHeight");
+            forecast.windSpeed = rawForecast.getDouble("WindSpeed");
+            forecast.windDirection = rawForecast.getDouble("WindDirection");
+            forecast.windCompassDirection = rawForecast.getString("WindCompassDirection");
+            forecast.primarySwellComponent = parseSwell(rawForecast.getJSONObject("PrimarySwellComponent"));
+            forecast.secondarySwellComponent = parseSwell(rawForecast.getJSONObject("SecondarySwellComponent"));
+            forecast.tertiarySwellComponent = parseSwell(rawForecast.getJSONObject("TertiarySwellComponent"));
+            forecasts.add(forecast);
+        }
+        return forecasts;
+    }
+
+    private static ApiApiMessagesSwellMessage parseSwell(JSONObject rawSwell) throws JSONException {
+        ApiApiMessagesSwellMessage swell = new ApiApiMessagesSwellMessage();
+        swell.setWaveHeight(rawSwell.getDouble("WaveHeight"));
+        swell.setPeriod(rawSwell.getDouble("Period"));
+        swell.setDirection(rawSwell.getDouble("Direction"));
+        swell.setCompassDirection(rawSwell.getString("CompassDirection"));
+        return swell;
+    }
+}
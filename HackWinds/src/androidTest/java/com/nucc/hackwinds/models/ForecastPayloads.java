@@ -0,0 +1,64 @@
+package com.nucc.hackwinds.models;
+
+import java.util.Locale;
+
+/**
+ * Builds forecast payloads in the shape the forecast service sends, so the parsers can be exercised
+ * without the network. The values are generated, only the structure matches a real response.
+ */
+final class ForecastPayloads {
+
+    static final int ENTRY_COUNT = 61;
+
+    private static final String[] COMPASS_DIRECTIONS = {"N", "NNE", "NE", "ENE", "E", "ESE", "SE", "SSE", "S", "SSW", "SW", "WSW", "W", "WNW", "NW", "NNW"};
+    private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday", "Monday", "Tuesday"};
+
+    private ForecastPayloads() {
+    }
+
+    /**
+     * @return A payload with three hourly entries for a little over a week
+     */
+    static String create() {
+        StringBuilder builder = new StringBuilder(64 * 1024);
+        builder.append("{\"LocationName\":\"Narragansett Town Beach\",");
+        appendModel(builder, "WaveModel", "NOAA WaveWatch III East Coast Model");
+        builder.append(',');
+        appendModel(builder, "WindModel", "NOAA Global Forecast System 0.25 degree");
+        builder.append(",\"ForecastData\":[");
+
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            int hour = (i * 3 + 1) % 24;
+            int twelveHour = hour % 12 == 0 ? 12 : hour % 12;
+            builder.append(String.format(Locale.US,
+                    "{\"Date\":\"%s\",\"Time\":\"%02d %s\",\"MinimumBreakingHeight\":%.1f,\"MaximumBreakingHeight\":%.1f," +
+                            "\"WindSpeed\":%.1f,\"WindDirection\":%.1f,\"WindCompassDirection\":\"%s\",",
+                    DAYS[(i * 3 + 1) / 24], twelveHour, hour < 12 ? "AM" : "PM",
+                    1.0 + (i % 5) * 0.5, 2.0 + (i % 5) * 0.6, 5.0 + (i % 11), (i * 23) % 360.0,
+                    COMPASS_DIRECTIONS[i % COMPASS_DIRECTIONS.length]));
+            appendSwell(builder, "PrimarySwellComponent", i, 1.5, 9.0);
+            builder.append(',');
+            appendSwell(builder, "SecondarySwellComponent", i + 5, 0.8, 6.0);
+            builder.append(',');
+            appendSwell(builder, "TertiarySwellComponent", i + 9, 0.4, 4.0);
+            builder.append('}');
+        }
+
+        builder.append("]}");
+        return builder.toString();
+    }
+
+    private static void appendModel(StringBuilder builder, String name, String description) {
+        builder.append(String.format(Locale.US, "\"%s\":{\"Description\":\"%s\",\"ModelRun\":\"Monday October 16, 2017 12z\"}", name, description));
+    }
+
+    private static void appendSwell(StringBuilder builder, String name, int seed, double height, double period) {
+        builder.append(String.format(Locale.US, "\"%s\":{\"WaveHeight\":%.2f,\"Period\":%.1f,\"Direction\":%.1f,\"CompassDirection\":\"%s\"}",
+                name, height + (seed % 7) * 0.25, period + (seed % 4), (seed * 37) % 360.0,
+                COMPASS_DIRECTIONS[seed % COMPASS_DIRECTIONS.length]));
+    }
+}
@@ -0,0 +1,123 @@
+package com.nucc.hackwinds.models;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.nucc.hackwinds.BenchmarkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Times the two cold start restore paths against each other on the same forecast, mapping the
+ * binary snapshot from disk versus reading and parsing the cached json. The medians are logged under
+ * the ForecastRestoreBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastRestoreBenchmark {
+
+    private static final String TAG = "ForecastRestoreBenchmark";
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 100;
+
+    private ForecastModel mModel;
+    private File mSnapshotFile;
+    private File mJsonFile;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getTargetContext();
+        mModel = ForecastModel.getInstance(context);
+
+        String payload = ForecastPayloads.create();
+        ForecastModel.ForecastData forecastData = mModel.decodeForecasts(payload);
+        assertNotNull(forecastData);
+
+        mSnapshotFile = new File(context.getCacheDir(), "benchmark_forecast.snapshot");
+        mJsonFile = new File(context.getCacheDir(), "benchmark_forecast.json");
+        writeFile(mSnapshotFile, ForecastModel.encodeForecastSnapshot(forecastData));
+        writeFile(mJsonFile, payload.getBytes("UTF-8"));
+    }
+
+    @After
+    public void tearDown() {
+        mSnapshotFile.delete();
+        mJsonFile.delete();
+    }
+
+    @Test
+    public void snapshotRestoresFasterThanJson() throws IOException {
+        BenchmarkUtils.Samples snapshotNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples jsonNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long startTime = System.nanoTime();
+            ForecastModel.ForecastData snapshotData = ForecastModel.decodeForecastSnapshot(mapFile(mSnapshotFile));
+            long snapshotTime = System.nanoTime() - startTime;
+            assertNotNull(snapshotData);
+
+            startTime = System.nanoTime();
+            ForecastModel.ForecastData jsonData = mModel.decodeForecasts(new String(readFile(mJsonFile), "UTF-8"));
+            long jsonTime = System.nanoTime() - startTime;
+            assertNotNull(jsonData);
+            assertEquals(snapshotData.dailyForecasts.size(), jsonData.dailyForecasts.size());
+
+            snapshotNanos.record(i, snapshotTime);
+            jsonNanos.record(i, jsonTime);
+        }
+
+        long snapshotMedian = snapshotNanos.median();
+        long jsonMedian = jsonNanos.median();
+        BenchmarkUtils.logAndAssertBelow(TAG, "Snapshot " + snapshotMedian / 1000 + "us (" + mSnapshotFile.length() + " bytes), json " +
+                jsonMedian / 1000 + "us (" + mJsonFile.length() + " bytes), median of " + MEASURED_RUNS, snapshotMedian, jsonMedian);
+    }
+
+    private static ByteBuffer mapFile(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream input = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int count = input.read(bytes, offset, bytes.length - offset);
+                if (count < 0) {
+                    break;
+                }
+                offset += count;
+            }
+        } finally {
+            input.close();
+        }
+        return bytes;
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nucc.hackwinds.models;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.nucc.hackwinds.BenchmarkUtils;
+import com.nucc.hackwinds.types.Forecast;
+import com.nucc.hackwinds.types.ForecastSeries;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static com.nucc.hackwinds.BenchmarkUtils.startCounting;
+import static com.nucc.hackwinds.BenchmarkUtils.stopCounting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the columnar forecast series with the forecast object graph it replaced, holding the same
+ * values: the bytes allocated to build each one and the time to walk each one the way the charts do.
+ * The medians are logged under the ForecastSeriesBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ForecastSeriesBenchmark {
+
+    private static final String TAG = "ForecastSeriesBenchmark";
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 200;
+
+    @Test
+    public void seriesAllocatesLessThanObjects() {
+        ForecastModel model = ForecastModel.getInstance(InstrumentationRegistry.getTargetContext());
+        assertTrue(model.parseForecasts(ForecastPayloads.create()));
+        ForecastSeries source = model.getForecastSeries();
+
+        BenchmarkUtils.Samples seriesBytes = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples objectBytes = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples seriesWalkNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples objectWalkNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            startCounting();
+            ForecastSeries series = copySeries(source);
+            long seriesAllocated = stopCounting();
+
+            startCounting();
+            ArrayList<Forecast> forecasts = new ArrayList<>(source.size());
+            for (int j = 0; j < source.size(); j++) {
+                forecasts.add(source.getForecast(j));
+            }
+            long objectsAllocated = stopCounting();
+
+            long startTime = System.nanoTime();
+            double seriesMaximum = walkSeries(series);
+            long seriesWalkTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            double objectMaximum = walkObjects(forecasts);
+            long objectWalkTime = System.nanoTime() - startTime;
+            assertEquals(seriesMaximum, objectMaximum, 0.0);
+
+            seriesBytes.record(i, seriesAllocated);
+            objectBytes.record(i, objectsAllocated);
+            seriesWalkNanos.record(i, seriesWalkTime);
+            objectWalkNanos.record(i, objectWalkTime);
+        }
+
+        BenchmarkUtils.logAndAssertBelow(TAG, source.size() + " forecasts. Series " + seriesBytes.median() + " bytes allocated, walked in " +
+                seriesWalkNanos.median() / 1000 + "us. Objects " + objectBytes.median() + " bytes allocated, walked in " +
+                objectWalkNanos.median() / 1000 + "us (median of " + MEASURED_RUNS + ")", seriesBytes.median(), objectBytes.median());
+    }
+
+    /**
+     * Builds a series holding the same values, the way the parser fills one.
+     */
+    private static ForecastSeries copySeries(ForecastSeries source) {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            builder.setDate(source.getDate(i))
+                    .setHour(source.getHour(i))
+                    .setMinimumBreakingHeight(source.getMinimumBreakingHeight(i))
+                    .setMaximumBreakingHeight(source.getMaximumBreakingHeight(i))
+                    .setWindSpeed(source.getWindSpeed(i))
+                    .setWindDirection(source.getWindDirection(i))
+                    .setWindCompassDirection(source.getWindCompassDirection(i));
+            for (int component = 0; component < ForecastSeries.SWELL_COMPONENT_COUNT; component++) {
+                builder.setSwellHeight(component, source.getSwellHeight(component, i))
+                        .setSwellPeriod(component, source.getSwellPeriod(component, i))
+                        .setSwellDirection(component, source.getSwellDirection(component, i))
+                        .setSwellCompassDirection(component, source.getSwellCompassDirection(component, i));
+            }
+            builder.nextEntry();
+        }
+        return builder.build();
+    }
+
+    private static double walkSeries(ForecastSeries series) {
+        double maximum = 0;
+        for (int i = 0; i < series.size(); i++) {
+            maximum = Math.max(maximum, series.getMaximumBreakingHeight(i));
+            for (int component = 0; component < ForecastSeries.SWELL_COMPONENT_COUNT; component++) {
+                maximum = Math.max(maximum, series.getSwellHeight(component, i));
+            }
+        }
+        return maximum;
+    }
+
+    private static double walkObjects(ArrayList<Forecast> forecasts) {
+        double maximum = 0;
+        for (Forecast forecast : forecasts) {
+            maximum = Math.max(maximum, forecast.maximumBreakingHeight);
+            maximum = Math.max(maximum, forecast.primarySwellComponent.getWaveHeight());
+            maximum = Math.max(maximum, forecast.secondarySwellComponent.getWaveHeight());
+            maximum = Math.max(maximum, forecast.tertiarySwellComponent.getWaveHeight());
+        }
+        return maximum;
+    }
+}
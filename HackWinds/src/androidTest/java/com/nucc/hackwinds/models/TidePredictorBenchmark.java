@@ -0,0 +1,77 @@
+package com.nucc.hackwinds.models;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.nucc.hackwinds.BenchmarkUtils;
+import com.nucc.hackwinds.R;
+import com.nucc.hackwinds.types.Tide;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times predicting a month of highs and lows for Point Judith from the bundled constants. The median
+ * is logged under the TidePredictorBenchmark tag and has to stay within a few tens of milliseconds.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TidePredictorBenchmark {
+
+    private static final String TAG = "TidePredictorBenchmark";
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 50;
+
+    private static final long MONTH_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void monthOfEventsTakesMilliseconds() throws Exception {
+        HashMap<String, TidePredictor.Station> stations = TidePredictor.parseBundledStations(readConstituents());
+        TidePredictor.Station station = stations.get(TidePredictor.POINT_JUDITH_STATION);
+        assertNotNull(station);
+
+        long start = System.currentTimeMillis();
+        BenchmarkUtils.Samples nanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        int eventCount = 0;
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long startTime = System.nanoTime();
+            ArrayList<Tide> events = TidePredictor.predictTideEvents(station, start, start + MONTH_MILLIS);
+            long time = System.nanoTime() - startTime;
+
+            // Close to four tides a day
+            assertTrue(events.size() > 100);
+            eventCount = events.size();
+            nanos.record(i, time);
+        }
+
+        long median = nanos.median();
+        BenchmarkUtils.logAndAssertBelow(TAG, "Predicted " + eventCount + " tides from " + station.constituents.length + " constituents in " +
+                median / 1000000 + "ms (median of " + MEASURED_RUNS + ", slowest " + nanos.slowest() / 1000000 + "ms)", median, BUDGET_NANOS);
+    }
+
+    private static String readConstituents() throws Exception {
+        InputStream inputStream = InstrumentationRegistry.getTargetContext().getResources().openRawResource(R.raw.tide_constituents);
+        Reader reader = new InputStreamReader(inputStream, "UTF-8");
+        try {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            return builder.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.nucc.hackwinds.tasks;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.appspot.mpitester_13.station.Station;
+import com.nucc.hackwinds.BenchmarkUtils;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nucc.hackwinds.BenchmarkUtils.startCounting;
+import static com.nucc.hackwinds.BenchmarkUtils.stopCounting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares a client per request, like the tasks used to build, with the shared client over a stub
+ * transport, so only the client's own cost is measured. Then counts the connections a burst of status
+ * checks opens against a stub server on the device once the pool is warm. Nothing leaves the device.
+ * The numbers are logged under the ServiceProviderBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ServiceProviderBenchmark {
+
+    private static final String TAG = "ServiceProviderBenchmark";
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 200;
+    private static final int BURST_ROUNDS = 10;
+
+    // The buoy stations BuoyModel checks in one batch
+    private static final int STATION_COUNT = 6;
+
+    // Long enough that every request in a burst is in flight at the same time
+    private static final int BURST_RESPONSE_DELAY_MILLIS = 50;
+
+    private static final String BODY = "{\"active\":true,\"stationID\":\"44097\",\"description\":\"Block Island, RI\"}";
+
+    private StubServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        ServiceProvider.configureConnectionPool();
+        mServer = new StubServer(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void sharedClientBeatsClientPerRequest() throws Exception {
+        BenchmarkUtils.Samples perRequestNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples perRequestAllocations = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            startCounting();
+            long startTime = System.nanoTime();
+            Station station = new Station.Builder(new StubTransport(), new GsonFactory(), null).build();
+            assertTrue(station.info("44097").execute().getActive());
+            long time = System.nanoTime() - startTime;
+            long allocations = stopCounting();
+
+            perRequestNanos.record(i, time);
+            perRequestAllocations.record(i, allocations);
+        }
+
+        Station sharedStation = new Station.Builder(new StubTransport(), ServiceProvider.getJsonFactory(), null).build();
+        BenchmarkUtils.Samples sharedNanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        BenchmarkUtils.Samples sharedAllocations = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            startCounting();
+            long startTime = System.nanoTime();
+            assertTrue(sharedStation.info("44097").execute().getActive());
+            long time = System.nanoTime() - startTime;
+            long allocations = stopCounting();
+
+            sharedNanos.record(i, time);
+            sharedAllocations.record(i, allocations);
+        }
+
+        BenchmarkUtils.logAndAssertBelow(TAG, "Client per request " + perRequestNanos.median() / 1000 + "us, " + perRequestAllocations.median() +
+                " bytes allocated. Shared client " + sharedNanos.median() / 1000 + "us, " + sharedAllocations.median() +
+                " bytes allocated (median of " + MEASURED_RUNS + ")", sharedAllocations.median(), perRequestAllocations.median());
+    }
+
+    @Test
+    public void statusBurstReusesItsConnections() throws Exception {
+        mServer.setResponseDelay(BURST_RESPONSE_DELAY_MILLIS);
+        int statusPoolSize = FetchBuoysActiveTask.getStatusPoolSize(STATION_COUNT);
+        int cappedConnections = countBurstConnections(statusPoolSize);
+
+        // One more than the pool keeps alive, each burst has to open a connection it then throws away
+        mServer.close();
+        mServer = new StubServer(BURST_RESPONSE_DELAY_MILLIS);
+        int overflowConnections = countBurstConnections(ServiceProvider.MAX_CONNECTIONS_PER_HOST + 1);
+
+        Log.i(TAG, "After the first of " + BURST_ROUNDS + " bursts, " + statusPoolSize + " at once opened " +
+                cappedConnections + " connections, " + (ServiceProvider.MAX_CONNECTIONS_PER_HOST + 1) + " at once opened " + overflowConnections);
+        assertEquals(STATION_COUNT, statusPoolSize);
+        assertEquals(0, cappedConnections);
+    }
+
+    /**
+     * @return The connections opened by every burst after the first one
+     */
+    private int countBurstConnections(int burstSize) throws Exception {
+        final Station station = new Station.Builder(ServiceProvider.getTransport(), ServiceProvider.getJsonFactory(), null)
+                .setRootUrl(mServer.getRootUrl()).build();
+        ExecutorService executor = Executors.newFixedThreadPool(burstSize);
+        int connections = 0;
+        try {
+            for (int round = 0; round < BURST_ROUNDS; round++) {
+                if (round == 1) {
+                    connections = mServer.getConnectionCount();
+                }
+
+                List<Future<Boolean>> burst = new ArrayList<>();
+                for (int i = 0; i < burstSize; i++) {
+                    burst.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            return station.info("44097").execute().getActive();
+                        }
+                    }));
+                }
+                for (Future<Boolean> request : burst) {
+                    assertTrue(request.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return mServer.getConnectionCount() - connections;
+    }
+
+    /**
+     * Answers every request with the same small json body without touching the network. Each request
+     * gets a fresh response since the body stream can only be read once.
+     */
+    private static class StubTransport extends MockHttpTransport {
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, String url) throws IOException {
+            MockLowLevelHttpResponse response = new MockLowLevelHttpResponse()
+                    .setContentType(Json.MEDIA_TYPE)
+                    .setContent(BODY);
+            return new MockLowLevelHttpRequest(url).setResponse(response);
+        }
+    }
+
+    /**
+     * Answers every request with the same small json body over keep-alive connections, and counts
+     * the connections it accepts.
+     */
+    private static class StubServer implements Runnable {
+        private final ServerSocket mServerSocket;
+        private final AtomicInteger mConnectionCount = new AtomicInteger();
+        private volatile int mResponseDelay;
+
+        StubServer(int responseDelay) throws IOException {
+            mResponseDelay = responseDelay;
+            mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            Thread acceptThread = new Thread(this, "StubServer");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        String getRootUrl() {
+            return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/";
+        }
+
+        int getConnectionCount() {
+            return mConnectionCount.get();
+        }
+
+        void setResponseDelay(int responseDelay) {
+            mResponseDelay = responseDelay;
+        }
+
+        void close() throws IOException {
+            mServerSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (!mServerSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = mServerSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                mConnectionCount.incrementAndGet();
+
+                Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                OutputStream output = socket.getOutputStream();
+                // One write per response, so the client isn't left waiting on a delayed ack between headers and body
+                byte[] body = BODY.getBytes("UTF-8");
+                byte[] response = ("HTTP/1.1 200 OK\r\nContent-Type: application/json; charset=UTF-8\r\n" +
+                        "Content-Length: " + body.length + "\r\nConnection: keep-alive\r\n\r\n" + BODY).getBytes("UTF-8");
+
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null) {
+                    // Skip the headers, the requests are all bodiless gets
+                    String line = reader.readLine();
+                    while (line != null && !line.isEmpty()) {
+                        line = reader.readLine();
+                    }
+                    if (line == null || requestLine.isEmpty()) {
+                        break;
+                    }
+
+                    if (mResponseDelay > 0) {
+                        Thread.sleep(mResponseDelay);
+                    }
+                    output.write(response);
+                    output.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client went away
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing to do
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nucc.hackwinds.utilities;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesWaveSpectraMessage;
+import com.nucc.hackwinds.BenchmarkUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Times partitioning a spectrum the size NDBC reports, from the api message to the swell components.
+ * The median is logged under the WaveSpectraAnalyzerBenchmark tag and has to stay well inside a frame.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WaveSpectraAnalyzerBenchmark {
+
+    private static final String TAG = "WaveSpectraAnalyzerBenchmark";
+    private static final int WARMUP_RUNS = 50;
+    private static final int MEASURED_RUNS = 500;
+
+    // A tenth of a 60fps frame
+    private static final long BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(1600);
+
+    @Test
+    public void partitioningFitsInAFrame() {
+        ApiApiMessagesWaveSpectraMessage spectra = createSpectra();
+
+        BenchmarkUtils.Samples nanos = new BenchmarkUtils.Samples(WARMUP_RUNS, MEASURED_RUNS);
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long startTime = System.nanoTime();
+            List<ApiApiMessagesSwellMessage> components = new WaveSpectraAnalyzer(spectra, false).getSwellComponents(true);
+            long time = System.nanoTime() - startTime;
+            assertFalse(components.isEmpty());
+            nanos.record(i, time);
+        }
+
+        long median = nanos.median();
+        BenchmarkUtils.logAndAssertBelow(TAG, "Partitioned " + spectra.getFrequency().size() + " bands in " + median / 1000 + "us (median of " +
+                MEASURED_RUNS + ", slowest " + nanos.slowest() / 1000 + "us)", median, BUDGET_NANOS);
+    }
+
+    /**
+     * The 47 bands of an NDBC spectral file with a long period ground swell, a wind swell and some
+     * ripples on the high frequency tail.
+     */
+    private static ApiApiMessagesWaveSpectraMessage createSpectra() {
+        ArrayList<Double> frequencies = new ArrayList<>();
+        ArrayList<Double> energies = new ArrayList<>();
+        ArrayList<Double> angles = new ArrayList<>();
+        for (int i = 0; i < 47; i++) {
+            double frequency = 0.02 + i * 0.01;
+            double energy = 6.0 * Math.exp(-Math.pow(frequency - 0.07, 2) / 0.0003) +
+                    1.5 * Math.exp(-Math.pow(frequency - 0.19, 2) / 0.0008) +
+                    0.05 * (1 + Math.sin(i * 1.7));
+            frequencies.add(frequency);
+            energies.add(energy);
+            angles.add(frequency < 0.13 ? 150.0 : 210.0 + 10 * Math.sin(i));
+        }
+
+        ApiApiMessagesWaveSpectraMessage spectra = new ApiApiMessagesWaveSpectraMessage();
+        spectra.setFrequency(frequencies);
+        spectra.setEnergy(energies);
+        spectra.setAngle(angles);
+        return spectra;
+    }
+}
@@ -7,10 +7,22 @@ import com.nucc.hackwinds.models.BuoyModel;
 import com.nucc.hackwinds.models.CameraModel;
 import com.nucc.hackwinds.models.ForecastModel;
 import com.nucc.hackwinds.models.TideModel;
+import com.nucc.hackwinds.tasks.ServiceProvider;
+import com.nucc.hackwinds.utilities.BackgroundSyncService;
+import com.nucc.hackwinds.utilities.ConnectivityMonitor;
 
 public class HackWindsApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+
+        // Size the connection pool before anything opens a connection
+        ServiceProvider.configureConnectionPool();
+
+        // Revalidate the persisted data as soon as the network comes back
+        ConnectivityMonitor.register(this);
+
+        // Keep the models warm in the background so the next launch doesn't wait on the network
+        BackgroundSyncService.schedule(this);
     }
 }
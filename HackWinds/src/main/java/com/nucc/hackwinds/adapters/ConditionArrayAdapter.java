@@ -13,13 +13,13 @@ import android.text.format.DateFormat;
 
 import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.types.Forecast;
+import com.nucc.hackwinds.types.ForecastDayView;
+import com.nucc.hackwinds.types.ForecastSeries;
 import com.nucc.hackwinds.utilities.Extensions;
 
-import java.util.ArrayList;
-
 public class ConditionArrayAdapter extends ArrayAdapter<Forecast> {
     private final Context context;
-    public ArrayList<Forecast> values;
+    public ForecastDayView values;
 
     // Class to hold view IDs so they can be recycled
     static class ViewHolder {
@@ -30,13 +30,13 @@ public class ConditionArrayAdapter extends ArrayAdapter<Forecast> {
         public int position;
     }
 
-    public ConditionArrayAdapter(Context ctx, ArrayList<Forecast> vals) {
+    public ConditionArrayAdapter(Context ctx, ForecastDayView vals) {
         super(ctx, R.layout.detailed_forecast_item, vals);
         this.context = ctx;
         this.values = vals;
     }
 
-    public void setConditonData(ArrayList<Forecast> newValues) {
+    public void setConditonData(ForecastDayView newValues) {
         this.values = newValues;
         this.notifyDataSetChanged();
     }
@@ -72,24 +72,27 @@ public class ConditionArrayAdapter extends ArrayAdapter<Forecast> {
         // Fill the data
         ViewHolder holder = (ViewHolder) rowView.getTag();
 
-        // Get the data for the position in the list
-        Forecast condition = values.get(position);
-
-        // Set the textview for all of the data
+        // Read the values straight from the series, rows are rebound on every scroll
         if (DateFormat.is24HourFormat(context)) {
-            holder.dateTV.setText(condition.timeForTwentyFourHourFormat());
+            holder.dateTV.setText(values.getTwentyFourHourTime(position));
         } else {
-            holder.dateTV.setText(condition.timeStringNoZero());
+            holder.dateTV.setText(values.getShortTime(position));
         }
-        holder.conditionsTV.setText(condition.getConditionSummary());
-        holder.primarySwellTV.setText(Extensions.getDetailedSwellSummary(condition.primarySwellComponent));
-        if (condition.secondarySwellComponent.getCompassDirection().equals("NULL")) {
+        holder.conditionsTV.setText(Forecast.getConditionSummary(values.getMinimumBreakingHeight(position), values.getMaximumBreakingHeight(position),
+                values.getWindCompassDirection(position), values.getWindSpeed(position)));
+        holder.primarySwellTV.setText(getSwellSummary(ForecastSeries.PRIMARY_SWELL, position));
+        if ("NULL".equals(values.getSwellCompassDirection(ForecastSeries.SECONDARY_SWELL, position))) {
             holder.secondarySwellTV.setText("No Secondary Swell Component");
         } else {
-            holder.secondarySwellTV.setText(Extensions.getDetailedSwellSummary(condition.secondarySwellComponent));
+            holder.secondarySwellTV.setText(getSwellSummary(ForecastSeries.SECONDARY_SWELL, position));
         }
 
         // Return the completed view to render on screen
         return rowView;
     }
-}
\ No newline at end of file
+
+    private String getSwellSummary(int component, int position) {
+        return Extensions.getDetailedSwellSummary(values.getSwellHeight(component, position), values.getSwellPeriod(component, position),
+                values.getSwellDirection(component, position), values.getSwellCompassDirection(component, position));
+    }
+}
@@ -0,0 +1,11 @@
+package com.nucc.hackwinds.listeners;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+
+import java.util.HashMap;
+
+public interface BuoyDashboardListener {
+    void buoyDashboardRefreshStarted();
+    void buoyDashboardReadingUpdated(String location, ApiApiMessagesDataMessage latestBuoy);
+    void buoyDashboardUpdated(HashMap<String, ApiApiMessagesDataMessage> latestBuoys);
+}
@@ -0,0 +1,7 @@
+package com.nucc.hackwinds.listeners;
+
+import com.nucc.hackwinds.types.BuoyHistorySeries;
+
+public interface BuoyHistoryListener {
+    void buoyHistoryLoaded(BuoyHistorySeries history);
+}
@@ -0,0 +1,95 @@
+package com.nucc.hackwinds.listeners;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+public class ListenerSet<L> {
+
+    public interface Dispatcher<L> {
+        void dispatch(L listener);
+    }
+
+    // Listeners are only weakly held so a fragment that was torn down without removing
+    // itself can still be collected, and is pruned the next time we dispatch
+    private final CopyOnWriteArrayList<WeakReference<L>> mListeners;
+    private final Handler mMainHandler;
+
+    public ListenerSet() {
+        mListeners = new CopyOnWriteArrayList<>();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void add(L listener) {
+        if (listener == null) {
+            return;
+        }
+
+        synchronized (mListeners) {
+            for (WeakReference<L> listenerReference : mListeners) {
+                L existingListener = listenerReference.get();
+                if (existingListener == null) {
+                    mListeners.remove(listenerReference);
+                } else if (existingListener == listener) {
+                    // Already registered, fragments re-register on every recreation
+                    return;
+                }
+            }
+            mListeners.add(new WeakReference<>(listener));
+        }
+    }
+
+    public void remove(L listener) {
+        synchronized (mListeners) {
+            for (WeakReference<L> listenerReference : mListeners) {
+                L existingListener = listenerReference.get();
+                if (existingListener == null || existingListener == listener) {
+                    mListeners.remove(listenerReference);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        mListeners.clear();
+    }
+
+    public int size() {
+        return mListeners.size();
+    }
+
+    /**
+     * Sends an event to every live listener on the main thread. Dispatching from a background
+     * thread never blocks, the event is posted and the caller moves on.
+     * @param dispatcher Calls the listener method for the event
+     */
+    public void dispatch(final Dispatcher<L> dispatcher) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            dispatchNow(dispatcher);
+            return;
+        }
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                dispatchNow(dispatcher);
+            }
+        });
+    }
+
+    private void dispatchNow(Dispatcher<L> dispatcher) {
+        // Iterating the copy on write list works off a snapshot, so listeners can add or
+        // remove themselves from inside a callback
+        for (WeakReference<L> listenerReference : mListeners) {
+            L listener = listenerReference.get();
+            if (listener == null) {
+                mListeners.remove(listenerReference);
+                continue;
+            }
+            dispatcher.dispatch(listener);
+        }
+    }
+}
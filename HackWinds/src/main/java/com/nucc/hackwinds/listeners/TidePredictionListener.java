@@ -0,0 +1,9 @@
+package com.nucc.hackwinds.listeners;
+
+import com.nucc.hackwinds.types.Tide;
+
+import java.util.ArrayList;
+
+public interface TidePredictionListener {
+    void tidesPredicted(ArrayList<Tide> events, boolean published);
+}
@@ -0,0 +1,512 @@
+package com.nucc.hackwinds.models;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.nucc.hackwinds.listeners.BuoyHistoryListener;
+import com.nucc.hackwinds.types.BuoyHistorySeries;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Append only history of buoy readings, one file per station. Each reading is written as the
+ * difference from the one before it, packed into variable length integers, so a reading usually
+ * takes around ten bytes on disk. A station's history is decoded into memory the first time it's
+ * queried and kept in sync with every append, so range queries are a binary search. All file access
+ * and the decoded histories stay on one background thread, results are handed back on the main thread.
+ */
+public class BuoyHistoryStore {
+
+    private static final String TAG = "BuoyHistoryStore";
+    private static final String HISTORY_DIRECTORY_NAME = "buoy_history";
+    private static final String HISTORY_FILE_SUFFIX = ".bin";
+
+    private static final int FILE_MAGIC = 0x42485331;
+    private static final int HEADER_SIZE = 4;
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    private static final long SECOND_MILLIS = 1000;
+
+    // Older readings are dropped the next time the file is compacted
+    private static final int RETENTION_HOURS = 7 * 24;
+
+    // Rewrite the file once this much expired history has piled up in it
+    private static final int COMPACT_SLACK_HOURS = 24;
+
+    // Values are kept as integers in these units: hundredths of a foot, tenths of a second, degrees and tenths of a degree
+    private static final double[] FIELD_SCALES = {100.0, 10.0, 1.0, 10.0, 10.0};
+
+    private static BuoyHistoryStore mInstance;
+
+    private final File mHistoryDirectory;
+    private final Executor mHistoryExecutor;
+    private final Executor mCallbackExecutor;
+
+    // Only touched from the history executor
+    private final HashMap<String, StationHistory> mStationHistories;
+
+    /**
+     * The decoded history of one station. The last values are what the next appended reading is
+     * encoded against.
+     */
+    private static class StationHistory {
+        int size = 0;
+        long[] times = new long[64];
+        byte[] masks = new byte[64];
+        int[][] values = new int[BuoyHistorySeries.FIELD_COUNT][64];
+
+        long lastSeconds = 0;
+        int[] lastValues = new int[BuoyHistorySeries.FIELD_COUNT];
+
+        void add(long seconds, byte mask, int[] fieldValues) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+                for (int i = 0; i < BuoyHistorySeries.FIELD_COUNT; i++) {
+                    values[i] = Arrays.copyOf(values[i], capacity);
+                }
+            }
+
+            times[size] = seconds * SECOND_MILLIS;
+            masks[size] = mask;
+            for (int i = 0; i < BuoyHistorySeries.FIELD_COUNT; i++) {
+                values[i][size] = fieldValues[i];
+                if ((mask & (1 << i)) != 0) {
+                    lastValues[i] = fieldValues[i];
+                }
+            }
+            lastSeconds = seconds;
+            size++;
+        }
+
+        int lowerBound(long time) {
+            int index = Arrays.binarySearch(times, 0, size, time);
+            if (index < 0) {
+                return -index - 1;
+            }
+
+            // Step back to the first reading at exactly this time
+            while (index > 0 && times[index - 1] == time) {
+                index--;
+            }
+            return index;
+        }
+    }
+
+    public static synchronized BuoyHistoryStore getInstance(Context context) {
+        if (mInstance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            Executor mainExecutor = new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    mainHandler.post(runnable);
+                }
+            };
+
+            // All reads and writes go through a single thread so appends never interleave
+            File historyDirectory = new File(context.getApplicationContext().getFilesDir(), HISTORY_DIRECTORY_NAME);
+            mInstance = new BuoyHistoryStore(historyDirectory, Executors.newSingleThreadExecutor(), mainExecutor);
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param historyDirectory Where the station files live
+     * @param historyExecutor Runs every read and write, must run one task at a time in order
+     * @param callbackExecutor Delivers query results
+     */
+    BuoyHistoryStore(File historyDirectory, Executor historyExecutor, Executor callbackExecutor) {
+        mHistoryDirectory = historyDirectory;
+        if (!mHistoryDirectory.exists()) {
+            mHistoryDirectory.mkdirs();
+        }
+
+        mHistoryExecutor = historyExecutor;
+        mCallbackExecutor = callbackExecutor;
+        mStationHistories = new HashMap<>();
+    }
+
+    /**
+     * Adds a reading to a station's history. Readings that aren't newer than the last one stored are
+     * ignored, so the same reading can be passed in after every refresh.
+     * @param stationId The station the reading came from
+     * @param data The reading
+     */
+    public void append(final String stationId, ApiApiMessagesDataMessage data) {
+        if (stationId == null || data == null || data.getDate() == null) {
+            return;
+        }
+
+        byte mask = 0;
+        final int[] fieldValues = new int[BuoyHistorySeries.FIELD_COUNT];
+        if (data.getWaveSummary() != null) {
+            mask |= quantize(BuoyHistorySeries.WAVE_HEIGHT, data.getWaveSummary().getWaveHeight(), fieldValues);
+            mask |= quantize(BuoyHistorySeries.PERIOD, data.getWaveSummary().getPeriod(), fieldValues);
+            mask |= quantize(BuoyHistorySeries.DIRECTION, data.getWaveSummary().getDirection(), fieldValues);
+        }
+        mask |= quantize(BuoyHistorySeries.WATER_TEMPERATURE, data.getWaterTemperature(), fieldValues);
+        mask |= quantize(BuoyHistorySeries.AIR_TEMPERATURE, data.getAirTemperature(), fieldValues);
+
+        final long seconds = data.getDate().getValue() / SECOND_MILLIS;
+        final byte finalMask = mask;
+        mHistoryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                appendReading(stationId, seconds, finalMask, fieldValues);
+            }
+        });
+    }
+
+    private void appendReading(String stationId, long seconds, byte mask, int[] fieldValues) {
+        StationHistory history = getStationHistory(stationId);
+        if (history.size > 0 && seconds <= history.lastSeconds) {
+            return;
+        }
+
+        byte[] record = encodeRecord(history, seconds, mask, fieldValues);
+        history.add(seconds, mask, fieldValues);
+
+        long compactBefore = (seconds * SECOND_MILLIS) - (RETENTION_HOURS + COMPACT_SLACK_HOURS) * HOUR_MILLIS;
+        if (history.times[0] < compactBefore) {
+            history = dropExpired(history, seconds * SECOND_MILLIS);
+            mStationHistories.put(stationId, history);
+            rewriteHistoryFile(stationId, history);
+            return;
+        }
+
+        appendRecord(stationId, record);
+    }
+
+    /**
+     * Loads the readings of a station in a time range.
+     * @param stationId The station to look up
+     * @param start The start of the range in milliseconds, inclusive
+     * @param end The end of the range in milliseconds, exclusive
+     * @param listener Gets the readings in time order
+     */
+    public void loadHistory(final String stationId, final long start, final long end, final BuoyHistoryListener listener) {
+        mHistoryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final BuoyHistorySeries series = readHistory(stationId, start, end);
+                mCallbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.buoyHistoryLoaded(series);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Loads the readings of a station from the last few hours up to now.
+     * @param stationId The station to look up
+     * @param hours How far back to go
+     * @param listener Gets the readings in time order
+     */
+    public void loadRecentHistory(String stationId, int hours, BuoyHistoryListener listener) {
+        long now = System.currentTimeMillis();
+        loadHistory(stationId, now - hours * HOUR_MILLIS, Long.MAX_VALUE, listener);
+    }
+
+    public void loadLast24Hours(String stationId, BuoyHistoryListener listener) {
+        loadRecentHistory(stationId, 24, listener);
+    }
+
+    public void loadLast72Hours(String stationId, BuoyHistoryListener listener) {
+        loadRecentHistory(stationId, 72, listener);
+    }
+
+    private BuoyHistorySeries readHistory(String stationId, long start, long end) {
+        StationHistory history = getStationHistory(stationId);
+        int from = history.lowerBound(start);
+        int to = Math.max(from, history.lowerBound(end));
+
+        long[] times = Arrays.copyOfRange(history.times, from, to);
+        double[][] values = new double[BuoyHistorySeries.FIELD_COUNT][to - from];
+        for (int field = 0; field < BuoyHistorySeries.FIELD_COUNT; field++) {
+            for (int i = from; i < to; i++) {
+                boolean present = (history.masks[i] & (1 << field)) != 0;
+                values[field][i - from] = present ? history.values[field][i] / FIELD_SCALES[field] : Double.NaN;
+            }
+        }
+
+        return new BuoyHistorySeries(stationId, times, values);
+    }
+
+    private StationHistory getStationHistory(String stationId) {
+        StationHistory history = mStationHistories.get(stationId);
+        if (history == null) {
+            history = loadStationHistory(stationId);
+            mStationHistories.put(stationId, history);
+        }
+        return history;
+    }
+
+    private StationHistory loadStationHistory(String stationId) {
+        StationHistory history = new StationHistory();
+        File historyFile = getHistoryFile(stationId);
+        if (!historyFile.exists()) {
+            return history;
+        }
+
+        long validLength = HEADER_SIZE;
+        InputStream inputStream = null;
+        try {
+            inputStream = new BufferedInputStream(new FileInputStream(historyFile));
+            if (readInt(inputStream) != FILE_MAGIC) {
+                Log.w(TAG, "Discarding unreadable history for " + stationId);
+                historyFile.delete();
+                return history;
+            }
+
+            CountingInput input = new CountingInput(inputStream);
+            int[] fieldValues = new int[BuoyHistorySeries.FIELD_COUNT];
+            while (true) {
+                int first = inputStream.read();
+                if (first == -1) {
+                    break;
+                }
+
+                input.count = 1;
+                byte mask = (byte) first;
+                long seconds = history.lastSeconds + readVarLong(input);
+                for (int i = 0; i < BuoyHistorySeries.FIELD_COUNT; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        fieldValues[i] = history.lastValues[i] + (int) readVarLong(input);
+                    } else {
+                        fieldValues[i] = 0;
+                    }
+                }
+
+                history.add(seconds, mask, fieldValues);
+                validLength += input.count;
+            }
+        } catch (EOFException e) {
+            // A write was cut off part way through a record, drop the partial record
+            Log.w(TAG, "Truncating partial history record for " + stationId);
+            truncate(historyFile, validLength);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read history for " + stationId, e);
+        } finally {
+            closeQuietly(inputStream);
+        }
+
+        long now = System.currentTimeMillis();
+        if (history.size > 0 && history.times[0] < now - RETENTION_HOURS * HOUR_MILLIS) {
+            history = dropExpired(history, now);
+            rewriteHistoryFile(stationId, history);
+        }
+
+        return history;
+    }
+
+    private static StationHistory dropExpired(StationHistory history, long now) {
+        int first = history.lowerBound(now - RETENTION_HOURS * HOUR_MILLIS);
+        if (first == 0) {
+            return history;
+        }
+
+        StationHistory retained = new StationHistory();
+        int[] fieldValues = new int[BuoyHistorySeries.FIELD_COUNT];
+        for (int i = first; i < history.size; i++) {
+            for (int field = 0; field < BuoyHistorySeries.FIELD_COUNT; field++) {
+                fieldValues[field] = history.values[field][i];
+            }
+            retained.add(history.times[i] / SECOND_MILLIS, history.masks[i], fieldValues);
+        }
+        return retained;
+    }
+
+    private void appendRecord(String stationId, byte[] record) {
+        File historyFile = getHistoryFile(stationId);
+        OutputStream outputStream = null;
+        try {
+            boolean isNew = !historyFile.exists() || historyFile.length() < HEADER_SIZE;
+            outputStream = new FileOutputStream(historyFile, !isNew);
+            if (isNew) {
+                writeInt(outputStream, FILE_MAGIC);
+            }
+            outputStream.write(record);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append history for " + stationId, e);
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Rewrites a station's file with exactly the given history.
+     */
+    private void rewriteHistoryFile(String stationId, StationHistory history) {
+        // The deltas restart with the file, so encode every record against a fresh history
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        StationHistory encoder = new StationHistory();
+        int[] fieldValues = new int[BuoyHistorySeries.FIELD_COUNT];
+        for (int i = 0; i < history.size; i++) {
+            for (int field = 0; field < BuoyHistorySeries.FIELD_COUNT; field++) {
+                fieldValues[field] = history.values[field][i];
+            }
+            long seconds = history.times[i] / SECOND_MILLIS;
+            byte[] record = encodeRecord(encoder, seconds, history.masks[i], fieldValues);
+            encoded.write(record, 0, record.length);
+            encoder.add(seconds, history.masks[i], fieldValues);
+        }
+
+        File historyFile = getHistoryFile(stationId);
+        File tempFile = new File(mHistoryDirectory, stationId + HISTORY_FILE_SUFFIX + ".tmp");
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            writeInt(outputStream, FILE_MAGIC);
+            encoded.writeTo(outputStream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compact history for " + stationId, e);
+            closeQuietly(outputStream);
+            tempFile.delete();
+            return;
+        }
+        closeQuietly(outputStream);
+
+        if (!tempFile.renameTo(historyFile)) {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Encodes a reading as a presence mask followed by the zigzag varint deltas of its time and of
+     * every value it has.
+     */
+    private static byte[] encodeRecord(StationHistory history, long seconds, byte mask, int[] fieldValues) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(16);
+        record.write(mask);
+        writeVarLong(record, seconds - history.lastSeconds);
+        for (int i = 0; i < BuoyHistorySeries.FIELD_COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                writeVarLong(record, (long) fieldValues[i] - history.lastValues[i]);
+            }
+        }
+        return record.toByteArray();
+    }
+
+    private static byte quantize(int field, Double value, int[] fieldValues) {
+        if (value == null || value.isNaN() || value.isInfinite()) {
+            return 0;
+        }
+        fieldValues[field] = (int) Math.round(value * FIELD_SCALES[field]);
+        return (byte) (1 << field);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        // Zigzag so small negative deltas stay small
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.write((int) zigzag);
+    }
+
+    private static long readVarLong(CountingInput input) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        while (true) {
+            int b = input.read();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IOException("Malformed varint");
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeInt(OutputStream output, int value) throws IOException {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private static int readInt(InputStream input) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = input.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    private static void truncate(File file, long length) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(length);
+        } catch (IOException e) {
+            file.delete();
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+    }
+
+    private File getHistoryFile(String stationId) {
+        return new File(mHistoryDirectory, stationId + HISTORY_FILE_SUFFIX);
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+
+    /**
+     * Counts the bytes of the record being read so a cut off record can be trimmed from the file.
+     */
+    private static class CountingInput {
+        final InputStream stream;
+        long count = 0;
+
+        CountingInput(InputStream stream) {
+            this.stream = stream;
+        }
+
+        int read() throws IOException {
+            int b = stream.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            count++;
+            return b;
+        }
+    }
+}
@@ -4,22 +4,31 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 
-import com.appspot.mpitester_13.station.Station;
 import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
-import com.google.api.client.extensions.android.http.AndroidHttp;
-import com.google.api.client.json.gson.GsonFactory;
 import com.nucc.hackwinds.listeners.BuoyChangedListener;
+import com.nucc.hackwinds.listeners.BuoyDashboardListener;
+import com.nucc.hackwinds.listeners.BuoyHistoryListener;
+import com.nucc.hackwinds.listeners.ListenerSet;
 import com.nucc.hackwinds.listeners.LatestBuoyFetchListener;
 import com.nucc.hackwinds.tasks.Credentials;
 import com.nucc.hackwinds.tasks.FetchBuoyActiveTask;
 import com.nucc.hackwinds.tasks.FetchBuoyLatestDataTask;
+import com.nucc.hackwinds.tasks.FetchBuoysActiveTask;
+import com.nucc.hackwinds.tasks.FetchBuoysLatestDataTask;
+import com.nucc.hackwinds.tasks.FetchScheduler;
 import com.nucc.hackwinds.tasks.FetchBuoySpectraDataTask;
+import com.nucc.hackwinds.tasks.RestoreCacheTask;
+import com.nucc.hackwinds.tasks.ServiceProvider;
 import com.nucc.hackwinds.types.BuoyDataContainer;
+import com.nucc.hackwinds.utilities.DiskCache;
+import com.nucc.hackwinds.utilities.FetchPolicy;
 import com.nucc.hackwinds.views.SettingsActivity;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class BuoyModel {
@@ -36,10 +45,19 @@ public class BuoyModel {
     private String mCurrentLocation;
     private BuoyDataContainer mCurrentContainer;
     private HashMap<String, BuoyDataContainer> mBuoyDataContainers;
-    private ArrayList<BuoyChangedListener> mBuoyChangedListeners;
+    private ListenerSet<BuoyChangedListener> mBuoyChangedListeners;
+    private ListenerSet<BuoyDashboardListener> mBuoyDashboardListeners;
     private SharedPreferences.OnSharedPreferenceChangeListener mPrefsChangedListener;
+    private BuoyHistoryStore mHistoryStore;
     private Context mContext;
     private Boolean refreshing = false;
+    private boolean mDashboardRefreshing = false;
+
+    // The cached readings are read back in on a worker thread, fetches asked for before then wait on it
+    private boolean mCacheRestored = false;
+    private boolean mFetchAfterRestore = false;
+    private boolean mLatestFetchAfterRestore = false;
+    private boolean mDashboardAfterRestore = false;
 
     public static BuoyModel getInstance(Context context) {
         if (mInstance == null) {
@@ -49,12 +67,21 @@ public class BuoyModel {
         return mInstance;
     }
 
+    /**
+     * @return The model if something already created it, otherwise null
+     */
+    public static BuoyModel peekInstance() {
+        return mInstance;
+    }
+
     private BuoyModel(Context context) {
         // Initialize the data arrays
-        mContext = context;
+        mContext = context.getApplicationContext();
+        mHistoryStore = BuoyHistoryStore.getInstance(mContext);
 
         // Initialize the listener array
-        mBuoyChangedListeners = new ArrayList<>();
+        mBuoyChangedListeners = new ListenerSet<>();
+        mBuoyDashboardListeners = new ListenerSet<>();
 
         // Initialize buoy containers
         initBuoyContainers();
@@ -80,6 +107,18 @@ public class BuoyModel {
         mBuoyChangedListeners.add(listener);
     }
 
+    public void removeBuoyChangedListener(BuoyChangedListener listener) {
+        mBuoyChangedListeners.remove(listener);
+    }
+
+    public void addBuoyDashboardListener(BuoyDashboardListener listener) {
+        mBuoyDashboardListeners.add(listener);
+    }
+
+    public void removeBuoyDashboardListener(BuoyDashboardListener listener) {
+        mBuoyDashboardListeners.remove(listener);
+    }
+
     private void initBuoyContainers() {
         final String BLOCK_ISLAND_BUOY_ID = "44097";
         final String MONTAUK_BUOY_ID = "44017";
@@ -120,10 +159,14 @@ public class BuoyModel {
         String location = sharedPrefs.getString(SettingsActivity.BUOY_LOCATION_KEY, BLOCK_ISLAND_LOCATION);
         mCurrentContainer = mBuoyDataContainers.get(location);
         mCurrentLocation = location;
+
+        // Pull in the last good readings from disk so there is something to show right away
+        restoreCachedBuoyDataInBackground();
     }
 
     public void resetData() {
         mCurrentContainer.buoyData = null;
+        mCurrentContainer.latestBuoyData = null;
     }
 
     public void changeLocation() {
@@ -143,24 +186,135 @@ public class BuoyModel {
         fetchBuoyData();
     }
 
-    public void checkForUpdate() {
-        if (mCurrentContainer.buoyData == null) {
-            return;
+    public boolean checkForUpdate() {
+        return checkForUpdate(mCurrentContainer);
+    }
+
+    private boolean checkForUpdate(BuoyDataContainer buoyDataContainer) {
+        return checkForUpdate(buoyDataContainer.buoyData, buoyDataContainer.updateInterval);
+    }
+
+    /**
+     * @param fetchSpectra True if the connection allows fetching the wave spectra
+     * @return True if the buoy has a reading due, or the spectra reading fell behind one fetched without spectra
+     */
+    private static boolean needsFetch(BuoyDataContainer buoyDataContainer, boolean fetchSpectra) {
+        if (!fetchSpectra) {
+            return checkForUpdate(getDashboardReading(buoyDataContainer), buoyDataContainer.updateInterval);
         }
 
-        if (mCurrentContainer.buoyData.getDate() == null) {
-            return;
+        ApiApiMessagesDataMessage spectraData = buoyDataContainer.buoyData;
+        ApiApiMessagesDataMessage latestData = buoyDataContainer.latestBuoyData;
+        if (spectraData == null || spectraData.getDate() == null) {
+            return true;
+        } else if (latestData != null && latestData.getDate() != null && latestData.getDate().getValue() > spectraData.getDate().getValue()) {
+            return true;
+        }
+        return checkForUpdate(spectraData, buoyDataContainer.updateInterval);
+    }
+
+    private static boolean checkForUpdate(ApiApiMessagesDataMessage buoyData, int updateInterval) {
+        if (buoyData == null) {
+            return true;
+        }
+
+        if (buoyData.getDate() == null) {
+            return true;
         }
 
         Date now = new Date();
-        long rawTimeDiff = now.getTime() - mCurrentContainer.buoyData.getDate().getValue();
+        long rawTimeDiff = now.getTime() - buoyData.getDate().getValue();
         int minuteDiff = (int)TimeUnit.MILLISECONDS.toMinutes(rawTimeDiff);
 
-        if (mCurrentContainer.updateInterval < minuteDiff) {
-            resetData();
+        return updateInterval < minuteDiff;
+    }
+
+    private void restoreCachedBuoyDataInBackground() {
+        final ArrayList<BuoyDataContainer> buoyContainers = new ArrayList<>(mBuoyDataContainers.values());
+
+        // Every station is read and parsed on the worker, the readings are handed to the containers on the main thread
+        new RestoreCacheTask<>("buoys", new RestoreCacheTask.RestoreCacheTaskListener<HashMap<String, ApiApiMessagesDataMessage>>() {
+            @Override
+            public HashMap<String, ApiApiMessagesDataMessage> restore() {
+                HashMap<String, ApiApiMessagesDataMessage> cachedReadings = new HashMap<>();
+                for (BuoyDataContainer buoyDataContainer : buoyContainers) {
+                    ApiApiMessagesDataMessage cachedBuoyData = readCachedBuoyData(buoyDataContainer);
+                    if (cachedBuoyData != null) {
+                        cachedReadings.put(buoyDataContainer.buoyID, cachedBuoyData);
+                    }
+                }
+                return cachedReadings;
+            }
+
+            @Override
+            public void onRestored(HashMap<String, ApiApiMessagesDataMessage> cachedReadings) {
+                onCachedBuoyDataRestored(buoyContainers, cachedReadings);
+            }
+        }).execute();
+    }
+
+    private void onCachedBuoyDataRestored(ArrayList<BuoyDataContainer> buoyContainers, HashMap<String, ApiApiMessagesDataMessage> cachedReadings) {
+        synchronized (this) {
+            mCacheRestored = true;
+            if (cachedReadings != null) {
+                for (BuoyDataContainer buoyDataContainer : buoyContainers) {
+                    ApiApiMessagesDataMessage cachedBuoyData = cachedReadings.get(buoyDataContainer.buoyID);
+                    if (cachedBuoyData != null && buoyDataContainer.buoyData == null) {
+                        buoyDataContainer.buoyData = cachedBuoyData;
+                    }
+                }
+            }
+
+            // Run whatever was asked for while the cache was loading, they serve the restored readings first
+            if (mFetchAfterRestore) {
+                mFetchAfterRestore = false;
+                fetchBuoyData();
+            } else if (mLatestFetchAfterRestore) {
+                fetchLatestBuoyReading();
+            } else if (getBuoyData() != null) {
+                notifyBuoyDataUpdated();
+            }
+            mLatestFetchAfterRestore = false;
+
+            if (mDashboardAfterRestore) {
+                mDashboardAfterRestore = false;
+                fetchBuoyDashboard();
+            } else if (cachedReadings != null && !cachedReadings.isEmpty()) {
+                notifyBuoyDashboardUpdated();
+            }
+        }
+    }
+
+    private ApiApiMessagesDataMessage readCachedBuoyData(BuoyDataContainer buoyDataContainer) {
+        String cachedBuoyData = DiskCache.getInstance(mContext).getString(getBuoyCacheKey(buoyDataContainer));
+        if (cachedBuoyData == null) {
+            return null;
+        }
+
+        try {
+            return ServiceProvider.getJsonFactory().fromString(cachedBuoyData, ApiApiMessagesDataMessage.class);
+        } catch (IOException e) {
+            return null;
         }
     }
 
+    private void saveBuoyData(BuoyDataContainer buoyDataContainer) {
+        if (buoyDataContainer.buoyData == null) {
+            return;
+        }
+
+        try {
+            String rawBuoyData = ServiceProvider.getJsonFactory().toString(buoyDataContainer.buoyData);
+            DiskCache.getInstance(mContext).putString(getBuoyCacheKey(buoyDataContainer), rawBuoyData);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String getBuoyCacheKey(BuoyDataContainer buoyDataContainer) {
+        return "buoy_" + buoyDataContainer.buoyID + ".json";
+    }
+
     public Boolean allBuoyStatusFetched() {
         for (final BuoyDataContainer buoyDataContainer : mBuoyDataContainers.values()) {
             if (!buoyDataContainer.statusFetched) {
@@ -188,7 +342,7 @@ public class BuoyModel {
     }
 
     public void fetchBuoyActive() {
-        FetchBuoyActiveTask fetchActiveTask = new FetchBuoyActiveTask(new FetchBuoyActiveTask.BuoyActiveTaskListener() {
+        FetchBuoyActiveTask fetchActiveTask = new FetchBuoyActiveTask(mContext, new FetchBuoyActiveTask.BuoyActiveTaskListener() {
             @Override
             public void onFinished(Boolean active) {
                 if (active == null) {
@@ -198,31 +352,43 @@ public class BuoyModel {
                 mCurrentContainer.active = active;
             }
         });
+        fetchActiveTask.setGroup(FetchScheduler.GROUP_BUOY);
         fetchActiveTask.execute(mCurrentContainer.buoyID);
     }
 
     public void fetchBuoysActive() {
-        for (final BuoyDataContainer buoyContainer : mBuoyDataContainers.values()) {
-            FetchBuoyActiveTask fetchActiveTask = new FetchBuoyActiveTask(new FetchBuoyActiveTask.BuoyActiveTaskListener() {
-                @Override
-                public void onFinished(Boolean active) {
-                    buoyContainer.active = active;
+        // Resolve every station's status in one concurrent batch instead of six separate tasks
+        final ArrayList<BuoyDataContainer> buoyContainers = new ArrayList<>(mBuoyDataContainers.values());
+        String[] buoyIDs = new String[buoyContainers.size()];
+        for (int i = 0; i < buoyContainers.size(); i++) {
+            buoyIDs[i] = buoyContainers.get(i).buoyID;
+        }
+
+        FetchBuoysActiveTask fetchActiveTask = new FetchBuoysActiveTask(mContext, new FetchBuoysActiveTask.BuoysActiveTaskListener() {
+            @Override
+            public void onFinished(HashMap<String, Boolean> activeStatuses) {
+                for (BuoyDataContainer buoyContainer : buoyContainers) {
+                    Boolean active = null;
+                    if (activeStatuses != null) {
+                        active = activeStatuses.get(buoyContainer.buoyID);
+                    }
+
+                    buoyContainer.active = active != null && active;
                     buoyContainer.statusFetched = true;
+                }
 
-                    if (allBuoyStatusFetched()) {
-                        String closestLocation = getClosestActiveBuoy();
+                String closestLocation = getClosestActiveBuoy();
 
-                        // Change the location
-                        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
-                        sharedPrefs.edit().putString(SettingsActivity.BUOY_LOCATION_KEY, closestLocation).apply();
+                // Change the location
+                SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+                sharedPrefs.edit().putString(SettingsActivity.BUOY_LOCATION_KEY, closestLocation).apply();
 
-                        // Fetch buoy data
-                        fetchBuoyData();
-                    }
-                }
-            });
-            fetchActiveTask.execute(buoyContainer.buoyID);
-        }
+                // Fetch buoy data
+                fetchBuoyData();
+            }
+        });
+        fetchActiveTask.setGroup(FetchScheduler.GROUP_BUOY);
+        fetchActiveTask.execute(buoyIDs);
     }
 
     public void fetchNewBuoyData() {
@@ -232,113 +398,119 @@ public class BuoyModel {
 
     public void fetchBuoyData() {
         synchronized (this) {
-            checkForUpdate();
+            if (!mCacheRestored) {
+                mFetchAfterRestore = true;
+                return;
+            }
+
+            FetchPolicy fetchPolicy = FetchPolicy.getInstance(mContext);
+            boolean fetchSpectra = fetchPolicy.shouldFetchWaveSpectra();
 
-            if (mCurrentContainer.buoyData != null) {
+            if (getBuoyData() != null) {
                 // Send an update to the listeners cuz the data is already here
-                for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                    if (listener != null) {
-                        listener.buoyDataUpdated();
-                    }
+                notifyBuoyDataUpdated();
+
+                if (!needsFetch(mCurrentContainer, fetchSpectra)) {
+                    return;
                 }
+            }
+
+            final BuoyDataContainer fetchingContainer = mCurrentContainer;
+
+            if (!fetchSpectra) {
+                // The spectra payload is too heavy for this connection, the latest reading will do until it isn't
+                fetchPolicy.recordSkippedFetch();
+                fetchLatestBuoyReading(fetchingContainer);
                 return;
             }
 
             refreshing = true;
-            for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                if (listener != null) {
-                    listener.buoyRefreshStarted();
-                }
-            }
+            notifyBuoyRefreshStarted();
 
-            FetchBuoySpectraDataTask buoyDataTask = new FetchBuoySpectraDataTask(new FetchBuoySpectraDataTask.BuoySpectraDataTaskListener() {
+            FetchBuoySpectraDataTask buoyDataTask = new FetchBuoySpectraDataTask(mContext, new FetchBuoySpectraDataTask.BuoySpectraDataTaskListener() {
                 @Override
                 public void onFinished(ApiApiMessagesDataMessage data) {
                     refreshing = false;
                     if (data != null) {
-                        mCurrentContainer.buoyData = data;
+                        fetchingContainer.buoyData = data;
+                        saveBuoyData(fetchingContainer);
+                        mHistoryStore.append(fetchingContainer.buoyID, data);
 
                         // Tell the children that there is new data!
-                        for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                            if (listener != null) {
-                                listener.buoyDataUpdated();
-                            }
-                        }
+                        notifyBuoyDataUpdated();
                     } else {
                         // Throw message saying failure to the children listeners
-                        for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                            if (listener != null) {
-                                listener.buoyDataUpdateFailed();
-                            }
-                        }
+                        notifyBuoyDataUpdateFailed();
                     }
                 }
             });
-            buoyDataTask.execute(mCurrentContainer.buoyID);
+            buoyDataTask.setGroup(FetchScheduler.GROUP_BUOY);
+            buoyDataTask.execute(fetchingContainer.buoyID);
         }
     }
 
     public void fetchLatestBuoyReading() {
         synchronized (this) {
-            checkForUpdate();
+            if (!mCacheRestored) {
+                mLatestFetchAfterRestore = true;
+                return;
+            }
 
-            if (mCurrentContainer.buoyData != null) {
+            if (getBuoyData() != null) {
                 // Send an update to the listeners cuz the data is already here
-                for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                    if (listener != null) {
-                        listener.buoyDataUpdated();
-                    }
+                notifyBuoyDataUpdated();
+
+                if (!needsFetch(mCurrentContainer, false)) {
+                    return;
                 }
-                return;
             }
 
+            fetchLatestBuoyReading(mCurrentContainer);
+        }
+    }
+
+    private void fetchLatestBuoyReading(final BuoyDataContainer fetchingContainer) {
+        synchronized (this) {
             refreshing = true;
-            for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                if (listener != null) {
-                    listener.buoyRefreshStarted();
-                }
-            }
+            notifyBuoyRefreshStarted();
 
-            FetchBuoyLatestDataTask latestBuoyDataTask = new FetchBuoyLatestDataTask(new FetchBuoyLatestDataTask.BuoyLatestDataTaskListener() {
+            FetchBuoyLatestDataTask latestBuoyDataTask = new FetchBuoyLatestDataTask(mContext, new FetchBuoyLatestDataTask.BuoyLatestDataTaskListener() {
                 @Override
                 public void onFinished(ApiApiMessagesDataMessage data) {
                     refreshing = false;
                     if (data != null) {
-                        mCurrentContainer.buoyData = data;
+                        // Keep the spectra reading, it is only marked stale until the spectra can be fetched again
+                        fetchingContainer.latestBuoyData = data;
+                        mHistoryStore.append(fetchingContainer.buoyID, data);
 
                         // Tell the children that there is new data!
-                        for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                            if (listener != null) {
-                                listener.buoyDataUpdated();
-                            }
-                        }
+                        notifyBuoyDataUpdated();
                     } else {
                         // Throw message saying failure to the children listeners
-                        for (BuoyChangedListener listener : mBuoyChangedListeners) {
-                            if (listener != null) {
-                                listener.buoyDataUpdateFailed();
-                            }
-                        }
+                        notifyBuoyDataUpdateFailed();
                     }
                 }
             });
-            latestBuoyDataTask.execute(mCurrentContainer.buoyID);
+            latestBuoyDataTask.setGroup(FetchScheduler.GROUP_BUOY);
+            latestBuoyDataTask.execute(fetchingContainer.buoyID);
         }
     }
 
     public void fetchLatestBuoyReadingForLocation(String location, final LatestBuoyFetchListener listener) {
         synchronized (this) {
             // Change the location. Get the original first to change the location back.
-            BuoyDataContainer buoyDataContainer = mBuoyDataContainers.get(location);
+            final BuoyDataContainer buoyDataContainer = mBuoyDataContainers.get(location);
             if (buoyDataContainer == null) {
                 listener.latestBuoyFetchFailed();
                 return;
             }
 
-            FetchBuoyLatestDataTask latestDataTask = new FetchBuoyLatestDataTask(new FetchBuoyLatestDataTask.BuoyLatestDataTaskListener() {
+            FetchBuoyLatestDataTask latestDataTask = new FetchBuoyLatestDataTask(mContext, new FetchBuoyLatestDataTask.BuoyLatestDataTaskListener() {
                 @Override
                 public void onFinished(ApiApiMessagesDataMessage data) {
                     if (data != null) {
+                        mHistoryStore.append(buoyDataContainer.buoyID, data);
+
                         // Tell the listener we have the new buoy!
                         listener.latestBuoyFetchSuccess(data);
                     } else {
@@ -347,20 +519,179 @@ public class BuoyModel {
                     }
                 }
             });
-            latestDataTask.execute(mBuoyDataContainers.get(location).buoyID);
+            // The listener owns this fetch so it can cancel it when it goes away
+            latestDataTask.setOwner(listener);
+            latestDataTask.execute(buoyDataContainer.buoyID);
+        }
+    }
+
+    /**
+     * Fetches the latest reading from every buoy at once for comparing locations side by side. Each
+     * reading is passed to the dashboard listeners as soon as it arrives, followed by the whole snapshot
+     * once every station has answered or the batch deadline passes. Stations with a recent enough
+     * reading are served from memory and not fetched again.
+     */
+    public void fetchBuoyDashboard() {
+        synchronized (this) {
+            if (!mCacheRestored) {
+                mDashboardAfterRestore = true;
+                return;
+            }
+
+            if (mDashboardRefreshing) {
+                // The batch in flight will notify everyone when it's done
+                return;
+            }
+
+            final HashMap<String, String> stationLocations = new HashMap<>();
+            for (Map.Entry<String, BuoyDataContainer> buoyEntry : mBuoyDataContainers.entrySet()) {
+                BuoyDataContainer buoyDataContainer = buoyEntry.getValue();
+                if (checkForUpdate(getDashboardReading(buoyDataContainer), buoyDataContainer.updateInterval)) {
+                    stationLocations.put(buoyDataContainer.buoyID, buoyEntry.getKey());
+                }
+            }
+
+            if (stationLocations.isEmpty()) {
+                notifyBuoyDashboardUpdated();
+                return;
+            }
+
+            mDashboardRefreshing = true;
+            notifyBuoyDashboardRefreshStarted();
+
+            FetchBuoysLatestDataTask latestDataTask = new FetchBuoysLatestDataTask(mContext, new FetchBuoysLatestDataTask.BuoysLatestDataTaskListener() {
+                @Override
+                public void onStationFinished(String stationId, ApiApiMessagesDataMessage data) {
+                    String location = stationLocations.get(stationId);
+                    if (data == null || location == null) {
+                        return;
+                    }
+
+                    mBuoyDataContainers.get(location).latestBuoyData = data;
+                    mHistoryStore.append(stationId, data);
+                    notifyBuoyDashboardReadingUpdated(location, data);
+                }
+
+                @Override
+                public void onFinished(HashMap<String, ApiApiMessagesDataMessage> latestData) {
+                    mDashboardRefreshing = false;
+
+                    // Stations that failed or missed the deadline keep whatever reading they had before
+                    notifyBuoyDashboardUpdated();
+                }
+            });
+            latestDataTask.setGroup(FetchScheduler.GROUP_BUOY);
+            latestDataTask.execute(stationLocations.keySet().toArray(new String[stationLocations.size()]));
+        }
+    }
+
+    /**
+     * @return The most recent reading of every buoy location that has one
+     */
+    public HashMap<String, ApiApiMessagesDataMessage> getBuoyDashboard() {
+        HashMap<String, ApiApiMessagesDataMessage> latestBuoys = new HashMap<>();
+        for (Map.Entry<String, BuoyDataContainer> buoyEntry : mBuoyDataContainers.entrySet()) {
+            ApiApiMessagesDataMessage reading = getDashboardReading(buoyEntry.getValue());
+            if (reading != null) {
+                latestBuoys.put(buoyEntry.getKey(), reading);
+            }
+        }
+        return latestBuoys;
+    }
+
+    public boolean isDashboardRefreshing() {
+        return mDashboardRefreshing;
+    }
+
+    private static ApiApiMessagesDataMessage getDashboardReading(BuoyDataContainer buoyDataContainer) {
+        // The full spectra data carries the same summary, use whichever reading is newer
+        ApiApiMessagesDataMessage latestData = buoyDataContainer.latestBuoyData;
+        ApiApiMessagesDataMessage fullData = buoyDataContainer.buoyData;
+        if (latestData == null || latestData.getDate() == null) {
+            return fullData != null ? fullData : latestData;
+        } else if (fullData == null || fullData.getDate() == null) {
+            return latestData;
         }
+        return fullData.getDate().getValue() >= latestData.getDate().getValue() ? fullData : latestData;
     }
 
+    /**
+     * @return True while the cached readings are being restored or a reading for the current location is being fetched
+     */
     public Boolean isRefreshing() {
-        return refreshing;
+        return refreshing || !mCacheRestored;
+    }
+
+    /**
+     * @return True if anything is listening for the buoy readings or there is a reading to keep fresh
+     */
+    public boolean isInUse() {
+        return mBuoyChangedListeners.size() > 0 || mBuoyDashboardListeners.size() > 0 || mCurrentContainer.buoyData != null;
+    }
+
+    /**
+     * Fetches again if the reading being served for the current location is stale, for when the network comes back.
+     */
+    public void revalidate() {
+        if (needsFetch(mCurrentContainer, FetchPolicy.getInstance(mContext).shouldFetchWaveSpectra())) {
+            fetchBuoyData();
+        }
     }
 
+    /**
+     * @return True if the reading for the current location is older than the buoy's update interval
+     */
+    public boolean isBuoyDataStale() {
+        return mCurrentContainer.buoyData != null && checkForUpdate();
+    }
+
+    /**
+     * @return When the buoy for the current location should have a new reading in milliseconds, 0 if it should be fetched now
+     */
+    public long getNextUpdateTime() {
+        long readingTime = getBuoyDataTimestamp();
+        if (readingTime == 0 || checkForUpdate()) {
+            return 0;
+        }
+        return readingTime + TimeUnit.MINUTES.toMillis(mCurrentContainer.updateInterval);
+    }
+
+    /**
+     * @return When the buoy took the reading for the current location in milliseconds, 0 if there is none
+     */
+    public long getBuoyDataTimestamp() {
+        ApiApiMessagesDataMessage buoyData = mCurrentContainer.buoyData;
+        if (buoyData == null || buoyData.getDate() == null) {
+            return 0;
+        }
+        return buoyData.getDate().getValue();
+    }
+
+    /**
+     * @return The reading with wave spectra for the current location, or the latest reading without them if no spectra were fetched yet
+     */
     public ApiApiMessagesDataMessage getBuoyData() {
-        return mCurrentContainer.buoyData;
+        return getBuoyData(mCurrentContainer);
     }
 
     public ApiApiMessagesDataMessage getBuoyData(String buoyLocation) {
-        return mBuoyDataContainers.get(buoyLocation).buoyData;
+        return getBuoyData(mBuoyDataContainers.get(buoyLocation));
+    }
+
+    private static ApiApiMessagesDataMessage getBuoyData(BuoyDataContainer buoyDataContainer) {
+        if (buoyDataContainer.buoyData != null) {
+            return buoyDataContainer.buoyData;
+        }
+        return buoyDataContainer.latestBuoyData;
+    }
+
+    /**
+     * Loads the readings recorded for the current buoy location over the last few hours, without going to the network.
+     * @param hours How far back to go, usually 24 or 72
+     * @param listener Gets the readings in time order on the main thread
+     */
+    public void loadBuoyHistory(int hours, BuoyHistoryListener listener) {
+        mHistoryStore.loadRecentHistory(mCurrentContainer.buoyID, hours, listener);
     }
 
     public Boolean getBuoyStatus() {
@@ -370,4 +701,59 @@ public class BuoyModel {
     public Boolean getBuoyStatus(String buoyLocation) {
         return mBuoyDataContainers.get(buoyLocation).active;
     }
+
+    private void notifyBuoyDataUpdated() {
+        mBuoyChangedListeners.dispatch(new ListenerSet.Dispatcher<BuoyChangedListener>() {
+            @Override
+            public void dispatch(BuoyChangedListener listener) {
+                listener.buoyDataUpdated();
+            }
+        });
+    }
+
+    private void notifyBuoyRefreshStarted() {
+        mBuoyChangedListeners.dispatch(new ListenerSet.Dispatcher<BuoyChangedListener>() {
+            @Override
+            public void dispatch(BuoyChangedListener listener) {
+                listener.buoyRefreshStarted();
+            }
+        });
+    }
+
+    private void notifyBuoyDataUpdateFailed() {
+        mBuoyChangedListeners.dispatch(new ListenerSet.Dispatcher<BuoyChangedListener>() {
+            @Override
+            public void dispatch(BuoyChangedListener listener) {
+                listener.buoyDataUpdateFailed();
+            }
+        });
+    }
+
+    private void notifyBuoyDashboardRefreshStarted() {
+        mBuoyDashboardListeners.dispatch(new ListenerSet.Dispatcher<BuoyDashboardListener>() {
+            @Override
+            public void dispatch(BuoyDashboardListener listener) {
+                listener.buoyDashboardRefreshStarted();
+            }
+        });
+    }
+
+    private void notifyBuoyDashboardReadingUpdated(final String location, final ApiApiMessagesDataMessage latestBuoy) {
+        mBuoyDashboardListeners.dispatch(new ListenerSet.Dispatcher<BuoyDashboardListener>() {
+            @Override
+            public void dispatch(BuoyDashboardListener listener) {
+                listener.buoyDashboardReadingUpdated(location, latestBuoy);
+            }
+        });
+    }
+
+    private void notifyBuoyDashboardUpdated() {
+        final HashMap<String, ApiApiMessagesDataMessage> latestBuoys = getBuoyDashboard();
+        mBuoyDashboardListeners.dispatch(new ListenerSet.Dispatcher<BuoyDashboardListener>() {
+            @Override
+            public void dispatch(BuoyDashboardListener listener) {
+                listener.buoyDashboardUpdated(latestBuoys);
+            }
+        });
+    }
 }
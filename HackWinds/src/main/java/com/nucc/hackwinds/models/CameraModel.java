@@ -7,20 +7,33 @@ import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraMessage;
 import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraLocationsMessage;
 import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraRegionMessage;
 import com.nucc.hackwinds.listeners.CameraChangedListener;
+import com.nucc.hackwinds.listeners.ListenerSet;
 import com.nucc.hackwinds.tasks.FetchCamerasTask;
+import com.nucc.hackwinds.tasks.FetchScheduler;
+import com.nucc.hackwinds.tasks.RestoreCacheTask;
+import com.nucc.hackwinds.tasks.ServiceProvider;
+import com.nucc.hackwinds.utilities.DiskCache;
+import com.nucc.hackwinds.utilities.Extensions;
 import com.nucc.hackwinds.views.SettingsActivity;
 
-import java.util.ArrayList;
+import java.io.IOException;
 
 public class CameraModel {
 
     private static CameraModel mInstance;
     private Context mContext;
-    private ArrayList<CameraChangedListener> mCameraChangedListeners;
+    private ListenerSet<CameraChangedListener> mCameraChangedListeners;
     private boolean mForceReload;
     private MessagesCameraCameraMessage mDefaultCamera;
     private MessagesCameraCameraLocationsMessage mCameraLocations;
 
+    // False while the camera list is a persisted copy the server hasn't confirmed yet
+    private boolean mDataValidated = false;
+
+    // The cached camera list is read back in on a worker thread before the first fetch goes out
+    private boolean mCacheRestored = false;
+    private boolean mRestoringCache = false;
+
     public static CameraModel getInstance(Context ctx) {
         if ( mInstance == null ) {
             mInstance = new CameraModel(ctx);
@@ -28,9 +41,17 @@ public class CameraModel {
         return mInstance;
     }
 
+    /**
+     * @return The model if something already created it, otherwise null
+     */
+    public static CameraModel peekInstance() {
+        return mInstance;
+    }
+
     private CameraModel(Context ctx) {
         // Initialize the context
         mContext = ctx;
+        mCameraChangedListeners = new ListenerSet<>();
         reset();
     }
 
@@ -38,15 +59,52 @@ public class CameraModel {
         mCameraChangedListeners.add(listener);
     }
 
+    public void removeCameraChangedListener(CameraChangedListener listener) {
+        mCameraChangedListeners.remove(listener);
+    }
+
+    /**
+     * @return True if anything is listening for the camera list or there is one to keep fresh
+     */
+    public boolean isInUse() {
+        return mCameraChangedListeners.size() > 0 || mCameraLocations != null;
+    }
+
     public void reset() {
         mForceReload = true;
-        mCameraChangedListeners = new ArrayList<>();
+        mCameraChangedListeners.clear();
     }
 
     public MessagesCameraCameraMessage getDefaultCamera() {
         return mDefaultCamera;
     }
 
+    /**
+     * @return The default camera if it streams video, otherwise the first camera in the list that does, or null if none do
+     */
+    public MessagesCameraCameraMessage getDefaultVideoCamera() {
+        if (mDefaultCamera != null && Extensions.isVideoCamera(mDefaultCamera)) {
+            return mDefaultCamera;
+        }
+
+        if (mCameraLocations == null || mCameraLocations.getCameraLocations() == null) {
+            return null;
+        }
+
+        for (MessagesCameraCameraRegionMessage region : mCameraLocations.getCameraLocations()) {
+            if (region.getCameras() == null) {
+                continue;
+            }
+
+            for (MessagesCameraCameraMessage camera : region.getCameras()) {
+                if (Extensions.isVideoCamera(camera)) {
+                    return camera;
+                }
+            }
+        }
+        return null;
+    }
+
     public MessagesCameraCameraLocationsMessage getmCameraLocations() {
         return mCameraLocations;
     }
@@ -117,43 +175,146 @@ public class CameraModel {
     }
 
     public void fetchCameras() {
-        FetchCamerasTask fetchCamerasTask = new FetchCamerasTask(new FetchCamerasTask.CameraTaskListener() {
+        final Boolean premiumEnabled = PreferenceManager.getDefaultSharedPreferences(mContext).getBoolean(SettingsActivity.SHOW_PREMIUM_CONTENT_KEY, false);
+
+        // On a cold start, pull in the last good camera list from disk so there is something to show right away.
+        // This comes back around once it's restored.
+        if (!mCacheRestored && mCameraLocations == null) {
+            restoreCachedCamerasInBackground(premiumEnabled);
+            return;
+        }
+
+        FetchCamerasTask fetchCamerasTask = new FetchCamerasTask(mContext, new FetchCamerasTask.CameraTaskListener() {
             @Override
             public void onFinished(MessagesCameraCameraLocationsMessage cameraLocations) {
-                if (cameraLocations == null) {
-                    for (CameraChangedListener listener : mCameraChangedListeners) {
-                        if (listener != null) {
-                            listener.cameraDataUpdateFailed();
-                        }
+                if (cameraLocations == null || cameraLocations.getCameraLocations() == null || cameraLocations.getCameraLocations().size() < 1) {
+                    if (mCameraLocations != null) {
+                        // Keep serving the cached cameras, they stay stale until the network is back
+                        mDataValidated = false;
+                        return;
                     }
-                    return;
-                }
 
-                if (cameraLocations.getCameraLocations().size() < 1) {
-                    for (CameraChangedListener listener : mCameraChangedListeners) {
-                        if (listener != null) {
-                            listener.cameraDataUpdateFailed();
-                        }
-                    }
+                    notifyCameraDataUpdateFailed();
                     return;
                 }
 
                 mCameraLocations = cameraLocations;
                 mDefaultCamera = getCamera("Narragansett", "Warm Winds");
-                for (CameraChangedListener listener : mCameraChangedListeners) {
-                    if (listener != null) {
-                        listener.cameraDataUpdated();
-                    }
-                }
+                mDataValidated = true;
+                saveCameras(premiumEnabled);
+                notifyCameraDataUpdated();
             }
         });
 
-        final Boolean premiumEnabled = PreferenceManager.getDefaultSharedPreferences(mContext).getBoolean(SettingsActivity.SHOW_PREMIUM_CONTENT_KEY, false);
+        fetchCamerasTask.setGroup(FetchScheduler.GROUP_LIVE);
         fetchCamerasTask.execute(premiumEnabled);
     }
 
+    /**
+     * Fetches again if the camera list being served is stale, for when the network comes back.
+     */
+    public void revalidate() {
+        if (mCameraLocations == null || isDataStale()) {
+            fetchCameras();
+        }
+    }
+
+    /**
+     * @return True if the camera list is a persisted copy that hasn't been confirmed by the server since it was loaded
+     */
+    public boolean isDataStale() {
+        return mCameraLocations != null && !mDataValidated;
+    }
+
+    /**
+     * @return When the camera list was last fetched in milliseconds, 0 if there is none
+     */
+    public long getDataTimestamp() {
+        Boolean premiumEnabled = PreferenceManager.getDefaultSharedPreferences(mContext).getBoolean(SettingsActivity.SHOW_PREMIUM_CONTENT_KEY, false);
+        return DiskCache.getInstance(mContext).getLastModified(getCameraCacheKey(premiumEnabled));
+    }
+
+    private void restoreCachedCamerasInBackground(final boolean premium) {
+        if (mRestoringCache) {
+            return;
+        }
+        mRestoringCache = true;
+
+        // Only the reading and parsing happen on the worker, the list is swapped in on the main thread
+        final String cacheKey = getCameraCacheKey(premium);
+        new RestoreCacheTask<>(cacheKey, new RestoreCacheTask.RestoreCacheTaskListener<MessagesCameraCameraLocationsMessage>() {
+            @Override
+            public MessagesCameraCameraLocationsMessage restore() {
+                return parseCachedCameras(DiskCache.getInstance(mContext).getString(cacheKey));
+            }
+
+            @Override
+            public void onRestored(MessagesCameraCameraLocationsMessage cameraLocations) {
+                mRestoringCache = false;
+                mCacheRestored = true;
+
+                if (cameraLocations != null) {
+                    mCameraLocations = cameraLocations;
+                    mDefaultCamera = getCamera("Narragansett", "Warm Winds");
+                    mDataValidated = false;
+                    notifyCameraDataUpdated();
+                }
+
+                // Revalidates the restored list
+                fetchCameras();
+            }
+        }).execute();
+    }
+
+    private static MessagesCameraCameraLocationsMessage parseCachedCameras(String cachedCameras) {
+        if (cachedCameras == null) {
+            return null;
+        }
+
+        try {
+            MessagesCameraCameraLocationsMessage cameraLocations = ServiceProvider.getJsonFactory().fromString(cachedCameras, MessagesCameraCameraLocationsMessage.class);
+            if (cameraLocations.getCameraLocations() == null || cameraLocations.getCameraLocations().isEmpty()) {
+                return null;
+            }
+            return cameraLocations;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void saveCameras(boolean premium) {
+        try {
+            String rawCameras = ServiceProvider.getJsonFactory().toString(mCameraLocations);
+            DiskCache.getInstance(mContext).putString(getCameraCacheKey(premium), rawCameras);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String getCameraCacheKey(boolean premium) {
+        return premium ? "cameras_premium.json" : "cameras.json";
+    }
+
     public void forceFetchCameras() {
         mForceReload = true;
         fetchCameras();
     }
+
+    private void notifyCameraDataUpdateFailed() {
+        mCameraChangedListeners.dispatch(new ListenerSet.Dispatcher<CameraChangedListener>() {
+            @Override
+            public void dispatch(CameraChangedListener listener) {
+                listener.cameraDataUpdateFailed();
+            }
+        });
+    }
+
+    private void notifyCameraDataUpdated() {
+        mCameraChangedListeners.dispatch(new ListenerSet.Dispatcher<CameraChangedListener>() {
+            @Override
+            public void dispatch(CameraChangedListener listener) {
+                listener.cameraDataUpdated();
+            }
+        });
+    }
 }
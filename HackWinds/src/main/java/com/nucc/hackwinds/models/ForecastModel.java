@@ -1,19 +1,32 @@
 package com.nucc.hackwinds.models;
 
 import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
 
-import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
 import com.koushikdutta.async.future.FutureCallback;
 import com.koushikdutta.ion.Ion;
-import com.nucc.hackwinds.types.Forecast;
+import com.koushikdutta.ion.Response;
+import com.nucc.hackwinds.types.ForecastDayView;
 import com.nucc.hackwinds.listeners.ForecastChangedListener;
+import com.nucc.hackwinds.listeners.ListenerSet;
+import com.nucc.hackwinds.tasks.RestoreCacheTask;
 import com.nucc.hackwinds.types.ForecastDailySummary;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import com.nucc.hackwinds.types.ForecastSeries;
+import com.nucc.hackwinds.utilities.DiskCache;
+import com.nucc.hackwinds.utilities.FetchPolicy;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.ArrayList;
@@ -27,19 +40,64 @@ public class ForecastModel {
     public String waveModelRun;
     public String windModelName;
     public String windModelRun;
-    public ArrayList<Forecast> forecasts;
     public ArrayList<ForecastDailySummary> dailyForecasts;
     public final int FORECAST_DATA_COUNT = 60;
     public final int FORECAST_DATA_BEGIN_INDEX = 2;
+    private static final int DAY_INDEX_COUNT = 8;
+    private static final String FORECAST_CACHE_KEY = "forecast.json";
+
+    // Binary copy of the parsed model, so a cold start doesn't have to parse the json again
+    private static final String FORECAST_SNAPSHOT_KEY = "forecast.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x48574653;
+    // Version 2 keeps compass directions that aren't compass points
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String TAG = "ForecastModel";
+    private static final ForecastDayView EMPTY_DAY = new ForecastDayView(ForecastSeries.empty(), 0, 0);
 
     // Private Member variables
     private Context mContext;
     private static ForecastModel mInstance;
-    private ArrayList<ForecastChangedListener> mForecastChangedListeners;
+    private ListenerSet<ForecastChangedListener> mForecastChangedListeners;
+    private ForecastSeries mForecastSeries;
+
+    // One view per day, dropped whenever the series is replaced
+    private ForecastDayView[] mDayViews = new ForecastDayView[DAY_INDEX_COUNT];
     private int dayCount;
     private int dayIndices[];
     private Date mLastFetchDate;
 
+    // False while the forecast on screen is a persisted copy the server hasn't confirmed yet
+    private boolean mDataValidated = false;
+
+    // True while a request is out, so the app and the background sync don't fetch the same forecast twice
+    private boolean mFetching = false;
+
+    // The cached forecast is read back in on a worker thread before the first fetch goes out
+    private boolean mCacheRestored = false;
+    private boolean mRestoringCache = false;
+
+    // How long the cold start restore took and whether the snapshot served it
+    private long mRestoreNanos = 0;
+    private boolean mRestoredFromSnapshot = false;
+
+    /**
+     * Everything read out of one forecast. It's built up on the side, off the main thread on a cold start,
+     * and swapped into the model in one go on the main thread.
+     */
+    static class ForecastData {
+        String locationName;
+        String waveModelName;
+        String waveModelRun;
+        String windModelName;
+        String windModelRun;
+        Date lastFetchDate;
+        ForecastSeries series;
+        int dayIndices[];
+        int dayCount;
+        ArrayList<ForecastDailySummary> dailyForecasts;
+    }
+
     public static ForecastModel getInstance( Context context ) {
         if ( mInstance == null ) {
             mInstance = new ForecastModel( context );
@@ -47,20 +105,27 @@ public class ForecastModel {
         return mInstance;
     }
 
+    /**
+     * @return The model if something already created it, otherwise null
+     */
+    public static ForecastModel peekInstance() {
+        return mInstance;
+    }
+
     private ForecastModel( Context context ) {
         // Initialize the context
         mContext = context.getApplicationContext();
 
         // Initialize the forecast changed listener
-        mForecastChangedListeners = new ArrayList<>();
+        mForecastChangedListeners = new ListenerSet<>();
 
         // Initialize the data arrays
-        forecasts = new ArrayList<>();
+        mForecastSeries = ForecastSeries.empty();
         dailyForecasts = new ArrayList<>();
 
         // Set up the day indices array indicating its empty
-        dayIndices = new int[8];
-        for (int i = 0; i < 8; i++) {
+        dayIndices = new int[DAY_INDEX_COUNT];
+        for (int i = 0; i < DAY_INDEX_COUNT; i++) {
             dayIndices[i] = -1;
         }
         dayCount = 0;
@@ -69,111 +134,443 @@ public class ForecastModel {
     }
 
     void resetData() {
-        forecasts.clear();
-        dailyForecasts.clear();
+        mForecastSeries = ForecastSeries.empty();
+        mDayViews = new ForecastDayView[DAY_INDEX_COUNT];
+        dailyForecasts = new ArrayList<>();
     }
 
     public void addForecastChangedListener( ForecastChangedListener forecastListener ) {
         mForecastChangedListeners.add(forecastListener);
     }
 
-    void checkForUpdate() {
-        if (mLastFetchDate == null) {
-            return;
-        }
+    public void removeForecastChangedListener( ForecastChangedListener forecastListener ) {
+        mForecastChangedListeners.remove(forecastListener);
+    }
 
-        if (forecasts == null) {
-            return;
+    boolean checkForUpdate() {
+        if (mLastFetchDate == null) {
+            return true;
         }
 
-        if (forecasts.size() < 1) {
-            return;
+        if (mForecastSeries.isEmpty()) {
+            return true;
         }
 
         Date now = new Date();
         long rawTimeDiff = now.getTime() - mLastFetchDate.getTime();
         int hourDiff = (int) TimeUnit.MILLISECONDS.toHours(rawTimeDiff);
-        if (hourDiff >= 6) {
-            resetData();
-        }
+        return hourDiff >= 6;
     }
 
     public void fetchForecastData() {
         synchronized (this) {
-            checkForUpdate();
+            // On a cold start, pull in the last good forecast from disk so there is something to show right away.
+            // This comes back around once it's restored.
+            if (!mCacheRestored) {
+                restoreCachedForecastDataInBackground();
+                return;
+            }
 
-            if (!forecasts.isEmpty()) {
-                for(ForecastChangedListener listener : mForecastChangedListeners) {
-                    if (listener != null) {
-                        listener.forecastDataUpdated();
-                    }
+            if (!mForecastSeries.isEmpty()) {
+                if (!checkForUpdate()) {
+                    // The newest model run is already here, nothing to revalidate
+                    mDataValidated = true;
+                    notifyForecastDataUpdated();
+                    return;
                 }
+
+                // Serve what we have right away, stale, and revalidate behind it
+                notifyForecastDataUpdated();
+            }
+
+            if (mFetching) {
+                // The request in flight will notify everyone when it's done
                 return;
             }
+            mFetching = true;
 
             // Make the data URL
             final String dataURL = "https://rhodycast.appspot.com/forecast_as_json";
-            Ion.with(mContext).load(dataURL).asString().setCallback(new FutureCallback<String>() {
+            // Ask the server to skip the body if it hasn't changed since the cached copy
+            final HttpRevalidator revalidator = HttpRevalidator.getInstance(mContext);
+            revalidator.applyValidators(Ion.with(mContext).load(dataURL), FORECAST_CACHE_KEY).asString().withResponse().setCallback(new FutureCallback<Response<String>>() {
                 @Override
-                public void onCompleted(Exception e, String result) {
+                public void onCompleted(Exception e, Response<String> response) {
+                    mFetching = false;
+
+                    if (e == null && response.getHeaders() != null && response.getHeaders().code() == HttpRevalidator.NOT_MODIFIED_STATUS) {
+                        if (mForecastSeries.isEmpty()) {
+                            // Nothing usable was cached, make the next request a full one
+                            revalidator.putValidators(FORECAST_CACHE_KEY, null, null);
+                            notifyForecastDataUpdateFailed();
+                        } else {
+                            revalidator.recordNotModified(FORECAST_CACHE_KEY);
+
+                            // Same forecast, but it's fresh now
+                            mDataValidated = true;
+                            notifyForecastDataUpdated();
+                        }
+                        return;
+                    }
+
+                    String result = e == null ? response.getResult() : null;
                     if (e != null) {
-                        for(ForecastChangedListener listener : mForecastChangedListeners) {
-                            if (listener != null) {
-                                listener.forecastDataUpdateFailed();
-                            }
+                        // Keep serving the cached forecast if there is one, it stays stale until the network is back
+                        if (!mForecastSeries.isEmpty()) {
+                            mDataValidated = false;
+                            return;
                         }
+
+                        notifyForecastDataUpdateFailed();
                         return;
                     }
 
-                    Boolean successfulParse = parseForecasts(result);
-                    if (successfulParse) {
-                        // Parse out the forecasts for the summaries
-                        createDailyForecasts();
+                    FetchPolicy.getInstance(mContext).recordBytes(response.getHeaders(), result);
 
-                        for(ForecastChangedListener listener : mForecastChangedListeners) {
-                            if (listener != null) {
-                                listener.forecastDataUpdated();
-                            }
-                        }
-                    } else {
-                        for(ForecastChangedListener listener : mForecastChangedListeners) {
-                            if (listener != null) {
-                                listener.forecastDataUpdateFailed();
-                            }
-                        }
+                    ForecastData forecastData = decodeForecasts(result);
+                    if (forecastData != null) {
+                        applyForecastData(forecastData);
+
+                        // Save the raw forecast for revalidation and the parsed one so the next cold start can render it immediately
+                        DiskCache.getInstance(mContext).putString(FORECAST_CACHE_KEY, result);
+                        revalidator.putValidators(FORECAST_CACHE_KEY, response.getHeaders());
+                        saveForecastSnapshot(forecastData);
+
+                        mDataValidated = true;
+                        notifyForecastDataUpdated();
+                    } else if (mForecastSeries.isEmpty()) {
+                        notifyForecastDataUpdateFailed();
                     }
                 }
             });
         }
     }
 
-    public ArrayList<Forecast> getForecastsForDay( int day ) {
-        // Return the array of conditions
-        if (forecasts.size() == 0) {
+    private void restoreCachedForecastDataInBackground() {
+        if (mRestoringCache) {
+            return;
+        }
+        mRestoringCache = true;
+
+        // The cached forecast is decoded on the worker and only swapped into the model on the main thread
+        new RestoreCacheTask<>(FORECAST_CACHE_KEY, new RestoreCacheTask.RestoreCacheTaskListener<ForecastData>() {
+            @Override
+            public ForecastData restore() {
+                return restoreCachedForecastData();
+            }
+
+            @Override
+            public void onRestored(ForecastData restored) {
+                mRestoringCache = false;
+                mCacheRestored = true;
+                if (restored != null) {
+                    applyForecastData(restored);
+                }
+
+                // Serves the restored forecast and revalidates it
+                fetchForecastData();
+            }
+        }).execute();
+    }
+
+    /**
+     * Reads the last good forecast back from disk, without touching the model.
+     * @return The cached forecast, or null if there is none
+     */
+    private ForecastData restoreCachedForecastData() {
+        long startTime = System.nanoTime();
+        ByteBuffer snapshot = DiskCache.getInstance(mContext).mapBytes(FORECAST_SNAPSHOT_KEY);
+        ForecastData forecastData = snapshot != null ? decodeForecastSnapshot(snapshot) : null;
+        if (forecastData != null) {
+            mRestoreNanos = System.nanoTime() - startTime;
+            mRestoredFromSnapshot = true;
+            Log.d(TAG, "Restored forecast from snapshot in " + TimeUnit.NANOSECONDS.toMicros(mRestoreNanos) + "us");
+            return forecastData;
+        }
+
+        forecastData = decodeForecasts(DiskCache.getInstance(mContext).getString(FORECAST_CACHE_KEY));
+        if (forecastData == null) {
             return null;
         }
 
-        int startIndex = 0;
-        int endIndex = 0;
+        mRestoreNanos = System.nanoTime() - startTime;
+        mRestoredFromSnapshot = false;
+        Log.d(TAG, "Restored forecast from json in " + TimeUnit.NANOSECONDS.toMicros(mRestoreNanos) + "us");
 
-        if (day < 8) {
-            startIndex = dayIndices[day];
+        // Older installs only have the json cached, write the snapshot so the next start can use it
+        saveForecastSnapshot(forecastData);
+        return forecastData;
+    }
+
+    /**
+     * Swaps a decoded forecast into the model. Call on the main thread.
+     */
+    private void applyForecastData(ForecastData forecastData) {
+        locationName = forecastData.locationName;
+        waveModelName = forecastData.waveModelName;
+        waveModelRun = forecastData.waveModelRun;
+        windModelName = forecastData.windModelName;
+        windModelRun = forecastData.windModelRun;
+        mLastFetchDate = forecastData.lastFetchDate;
+        mForecastSeries = forecastData.series;
+        mDayViews = new ForecastDayView[DAY_INDEX_COUNT];
+        dayIndices = forecastData.dayIndices;
+        dayCount = forecastData.dayCount;
+        dailyForecasts = forecastData.dailyForecasts;
+    }
+
+    /**
+     * @return True if anything is listening for the forecast or there is one to keep fresh
+     */
+    public boolean isInUse() {
+        return mForecastChangedListeners.size() > 0 || !mForecastSeries.isEmpty();
+    }
+
+    /**
+     * Fetches again if the forecast being served is stale, for when the network comes back.
+     */
+    public void revalidate() {
+        if (mForecastSeries.isEmpty() || isDataStale()) {
+            fetchForecastData();
         }
+    }
 
-        if (startIndex == -1) {
+    /**
+     * @return True if the forecast is a persisted copy that hasn't been confirmed by the server since it was loaded
+     */
+    public boolean isDataStale() {
+        return !mForecastSeries.isEmpty() && !mDataValidated;
+    }
+
+    /**
+     * @return When the server last sent or confirmed the forecast in milliseconds, 0 if there is none
+     */
+    public long getDataTimestamp() {
+        return DiskCache.getInstance(mContext).getLastModified(FORECAST_CACHE_KEY);
+    }
+
+    /**
+     * @return True while the cached forecast is being restored or a forecast request is in flight
+     */
+    public boolean isFetching() {
+        return mRestoringCache || mFetching;
+    }
+
+    /**
+     * @return When the next model run should be available in milliseconds, 0 if the forecast should be fetched now
+     */
+    public long getNextUpdateTime() {
+        if (mLastFetchDate == null || mForecastSeries.isEmpty()) {
+            return 0;
+        }
+        return mLastFetchDate.getTime() + TimeUnit.HOURS.toMillis(6);
+    }
+
+    /**
+     * @return How long the last cold start restore took in nanoseconds, 0 if there was none
+     */
+    public long getRestoreNanos() {
+        return mRestoreNanos;
+    }
+
+    /**
+     * @return True if the last cold start restore was served by the binary snapshot instead of the json
+     */
+    public boolean isRestoredFromSnapshot() {
+        return mRestoredFromSnapshot;
+    }
+
+    private void saveForecastSnapshot(ForecastData forecastData) {
+        byte[] snapshot = encodeForecastSnapshot(forecastData);
+        if (snapshot != null) {
+            DiskCache.getInstance(mContext).putBytes(FORECAST_SNAPSHOT_KEY, snapshot);
+        }
+    }
+
+    /**
+     * @param forecastData The forecast to encode
+     * @return The forecast encoded as a snapshot, or null if it couldn't be encoded
+     */
+    static byte[] encodeForecastSnapshot(ForecastData forecastData) {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(16 * 1024);
+        DataOutputStream output = new DataOutputStream(snapshot);
+        try {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeLong(forecastData.lastFetchDate != null ? forecastData.lastFetchDate.getTime() : 0);
+            writeSnapshotString(output, forecastData.locationName);
+            writeSnapshotString(output, forecastData.waveModelName);
+            writeSnapshotString(output, forecastData.waveModelRun);
+            writeSnapshotString(output, forecastData.windModelName);
+            writeSnapshotString(output, forecastData.windModelRun);
+
+            output.writeInt(forecastData.dayCount);
+            output.writeInt(forecastData.dayIndices.length);
+            for (int dayIndex : forecastData.dayIndices) {
+                output.writeInt(dayIndex);
+            }
+
+            forecastData.series.writeTo(output);
+
+            output.writeInt(forecastData.dailyForecasts.size());
+            for (ForecastDailySummary summary : forecastData.dailyForecasts) {
+                output.writeDouble(summary.morningMinimumWaveHeight);
+                output.writeDouble(summary.morningMaximumWaveHeight);
+                output.writeDouble(summary.morningWindSpeed);
+                writeSnapshotString(output, summary.morningWindCompassDirection);
+                output.writeDouble(summary.afternoonMinimumWaveHeight);
+                output.writeDouble(summary.afternoonMaximumWaveHeight);
+                output.writeDouble(summary.afternoonWindSpeed);
+                writeSnapshotString(output, summary.afternoonWindCompassDirection);
+            }
+            output.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to encode forecast snapshot", e);
             return null;
         }
 
-        if (day < 7) {
-            endIndex = dayIndices[day+1];
-            if (endIndex < 0) {
-                endIndex = forecasts.size();
+        return snapshot.toByteArray();
+    }
+
+    /**
+     * Reads a snapshot written by encodeForecastSnapshot().
+     * @return The forecast in the snapshot, or null if the snapshot isn't valid
+     */
+    static ForecastData decodeForecastSnapshot(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                return null;
             }
-        } else {
-            endIndex = forecasts.size();
+
+            long newLastFetchTime = buffer.getLong();
+            String newLocationName = readSnapshotString(buffer);
+            String newWaveModelName = readSnapshotString(buffer);
+            String newWaveModelRun = readSnapshotString(buffer);
+            String newWindModelName = readSnapshotString(buffer);
+            String newWindModelRun = readSnapshotString(buffer);
+
+            int newDayCount = buffer.getInt();
+            int newDayIndices[] = new int[buffer.getInt()];
+            if (newDayIndices.length != DAY_INDEX_COUNT || newDayCount < 0 || newDayCount > newDayIndices.length) {
+                return null;
+            }
+            for (int i = 0; i < newDayIndices.length; i++) {
+                newDayIndices[i] = buffer.getInt();
+            }
+
+            ForecastSeries newSeries = ForecastSeries.readFrom(buffer);
+            if (newSeries == null || newSeries.isEmpty() || newWaveModelRun == null || newLastFetchTime == 0) {
+                return null;
+            }
+
+            int summaryCount = buffer.getInt();
+            if (summaryCount < 0 || summaryCount > newDayIndices.length) {
+                return null;
+            }
+            ArrayList<ForecastDailySummary> newDailyForecasts = new ArrayList<>(summaryCount);
+            for (int i = 0; i < summaryCount; i++) {
+                ForecastDailySummary summary = new ForecastDailySummary();
+                summary.morningMinimumWaveHeight = buffer.getDouble();
+                summary.morningMaximumWaveHeight = buffer.getDouble();
+                summary.morningWindSpeed = buffer.getDouble();
+                summary.morningWindCompassDirection = readSnapshotString(buffer);
+                summary.afternoonMinimumWaveHeight = buffer.getDouble();
+                summary.afternoonMaximumWaveHeight = buffer.getDouble();
+                summary.afternoonWindSpeed = buffer.getDouble();
+                summary.afternoonWindCompassDirection = readSnapshotString(buffer);
+                newDailyForecasts.add(summary);
+            }
+
+            ForecastData forecastData = new ForecastData();
+            forecastData.locationName = newLocationName;
+            forecastData.waveModelName = newWaveModelName;
+            forecastData.waveModelRun = newWaveModelRun;
+            forecastData.windModelName = newWindModelName;
+            forecastData.windModelRun = newWindModelRun;
+            forecastData.lastFetchDate = new Date(newLastFetchTime);
+            forecastData.series = newSeries;
+            forecastData.dayIndices = newDayIndices;
+            forecastData.dayCount = newDayCount;
+            forecastData.dailyForecasts = newDailyForecasts;
+            return forecastData;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Discarding unreadable forecast snapshot");
+            return null;
+        }
+    }
+
+    private static void writeSnapshotString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] valueBytes = value.getBytes(UTF8);
+        output.writeInt(valueBytes.length);
+        output.write(valueBytes);
+    }
+
+    private static String readSnapshotString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        } else if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] valueBytes = new byte[length];
+        buffer.get(valueBytes);
+        return new String(valueBytes, UTF8);
+    }
+
+    public ForecastSeries getForecastSeries() {
+        return mForecastSeries;
+    }
+
+    /**
+     * Gets a read only view of the forecasts for a day. The view shares the model's series and is
+     * kept until the series changes, so it is cheap to call, and it keeps showing the data it was
+     * created from after a refresh.
+     * @param day The day index
+     * @return The forecasts for the day, empty if there is no data for it
+     */
+    public ForecastDayView getForecastsForDay( int day ) {
+        int startIndex = getDayStartIndex(day);
+        if (startIndex == -1) {
+            return EMPTY_DAY;
+        }
+
+        ForecastDayView dayView = mDayViews[day];
+        if (dayView == null) {
+            dayView = new ForecastDayView(mForecastSeries, startIndex, getDayEndIndex(day));
+            mDayViews[day] = dayView;
+        }
+        return dayView;
+    }
+
+    private int getDayStartIndex(int day) {
+        return getDayStartIndex(mForecastSeries, dayIndices, day);
+    }
+
+    private int getDayEndIndex(int day) {
+        return getDayEndIndex(mForecastSeries, dayIndices, day);
+    }
+
+    private static int getDayStartIndex(ForecastSeries series, int[] dayIndices, int day) {
+        if (series.isEmpty() || day < 0 || day >= dayIndices.length) {
+            return -1;
         }
+        return dayIndices[day];
+    }
 
-        return new ArrayList<>(forecasts.subList(startIndex, endIndex));
+    private static int getDayEndIndex(ForecastSeries series, int[] dayIndices, int day) {
+        if (day < dayIndices.length - 1) {
+            int endIndex = dayIndices[day+1];
+            if (endIndex >= 0) {
+                return endIndex;
+            }
+        }
+        return series.size();
     }
 
     public int getDayForecastStartingIndex(int day) {
@@ -188,109 +585,248 @@ public class ForecastModel {
         return dayCount;
     }
 
-    private boolean parseForecasts(String rawData) {
-        // Get the raw data
-        if (rawData == null) {
+    /**
+     * Parses a forecast response and swaps it into the model.
+     * @return True if the response parsed cleanly
+     */
+    boolean parseForecasts(String rawData) {
+        ForecastData forecastData = decodeForecasts(rawData);
+        if (forecastData == null) {
             return false;
         }
 
-        if (!forecasts.isEmpty()) {
-            forecasts.clear();
+        applyForecastData(forecastData);
+        return true;
+    }
+
+    /**
+     * Parses a forecast response and works out its daily summaries, without touching the model.
+     * @return The parsed forecast, or null if the response didn't parse cleanly
+     */
+    ForecastData decodeForecasts(String rawData) {
+        // Get the raw data
+        if (rawData == null) {
+            return null;
         }
 
+        // Stream the response straight into the columnar series so we never hold the
+        // full json tree or an object per forecast in memory.
+        String newLocationName = null;
+        String newWaveModelName = null;
+        String newWaveModelRun = null;
+        String newWindModelName = null;
+        String newWindModelRun = null;
+        ForecastSeries.Builder newSeries = new ForecastSeries.Builder(FORECAST_DATA_COUNT - FORECAST_DATA_BEGIN_INDEX);
+        int newDayIndices[] = new int[DAY_INDEX_COUNT];
+        Arrays.fill(newDayIndices, -1);
+        int newDayCount = 0;
+
+        JsonReader reader = new JsonReader(new StringReader(rawData));
         try {
-            // Make a json array from the response string
-            JSONObject jsonObj = new JSONObject( rawData );
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("LocationName")) {
+                    newLocationName = readString(reader);
+                } else if (name.equals("WaveModel")) {
+                    String[] modelInfo = readModelInfo(reader);
+                    newWaveModelName = modelInfo[0];
+                    newWaveModelRun = modelInfo[1];
+                } else if (name.equals("WindModel")) {
+                    String[] modelInfo = readModelInfo(reader);
+                    newWindModelName = modelInfo[0];
+                    newWindModelRun = modelInfo[1];
+                } else if (name.equals("ForecastData")) {
+                    // Get alllllll of the forecast data!
+                    reader.beginArray();
+                    int i = 0;
+                    while (reader.hasNext()) {
+                        if (i < FORECAST_DATA_BEGIN_INDEX || i >= FORECAST_DATA_COUNT) {
+                            reader.skipValue();
+                            i++;
+                            continue;
+                        }
 
-            locationName = jsonObj.getString("LocationName");
-            waveModelName = jsonObj.getJSONObject("WaveModel").getString("Description");
-            waveModelRun = jsonObj.getJSONObject("WaveModel").getString("ModelRun");
+                        int hour = readForecast(reader, newSeries);
+                        if (hour < 0) {
+                            return null;
+                        }
 
-            // We need to save the model run for later so we can check for updates
-            SimpleDateFormat formatter = new SimpleDateFormat("EEEE MMMM dd, yyyy HHZ");
+                        if (newDayCount < newDayIndices.length) {
+                            if (hour == 1 || hour == 2) {
+                                newDayIndices[newDayCount] = newSeries.size();
+                                newDayCount++;
+                            } else if (newSeries.size() == 0) {
+                                newDayIndices[newDayCount] = newSeries.size();
+                                newDayCount++;
+                            }
+                        }
+
+                        newSeries.nextEntry();
+                        i++;
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
             try {
-                mLastFetchDate = formatter.parse(waveModelRun.replaceAll("z$", "+0000"));
-
-                // Add the hindcasting offset
-                Calendar calendar = Calendar.getInstance();
-                calendar.setTime(mLastFetchDate);
-                calendar.add(Calendar.HOUR_OF_DAY, 5);
-                mLastFetchDate = calendar.getTime();
-            } catch (Exception e) {
-                return false;
+                reader.close();
+            } catch (IOException e) {
+                // Nothing to do, its a string reader
             }
+        }
 
-            windModelName = jsonObj.getJSONObject("WindModel").getString("Description");
-            windModelRun = jsonObj.getJSONObject("WindModel").getString("ModelRun");
-
-            // Get alllllll of the forecast data!
-            JSONArray forecastJsonAray = jsonObj.getJSONArray("ForecastData");
-            dayCount = 0;
-            int forecastOffset = 0;
-            for (int i = FORECAST_DATA_BEGIN_INDEX; i < FORECAST_DATA_COUNT; i++) {
-                Forecast newForecast = new Forecast();
-
-                // Grab the next forecast object from the raw array
-                JSONObject rawForecast = forecastJsonAray.getJSONObject(i);
-
-                newForecast.date = rawForecast.getString("Date");
-                newForecast.time = rawForecast.getString("Time");
-
-                newForecast.minimumBreakingHeight = rawForecast.getDouble("MinimumBreakingHeight");
-                newForecast.maximumBreakingHeight = rawForecast.getDouble("MaximumBreakingHeight");
-                newForecast.windSpeed = rawForecast.getDouble("WindSpeed");
-                newForecast.windDirection = rawForecast.getDouble("WindDirection");
-                newForecast.windCompassDirection = rawForecast.getString("WindCompassDirection");
-
-                ApiApiMessagesSwellMessage primarySwell = new ApiApiMessagesSwellMessage();
-                primarySwell.setWaveHeight(rawForecast.getJSONObject("PrimarySwellComponent").getDouble("WaveHeight"));
-                primarySwell.setPeriod(rawForecast.getJSONObject("PrimarySwellComponent").getDouble("Period"));
-                primarySwell.setDirection(rawForecast.getJSONObject("PrimarySwellComponent").getDouble("Direction"));
-                primarySwell.setCompassDirection( rawForecast.getJSONObject("PrimarySwellComponent").getString("CompassDirection"));
-                newForecast.primarySwellComponent = primarySwell;
-
-                ApiApiMessagesSwellMessage secondarySwell = new ApiApiMessagesSwellMessage();
-                secondarySwell.setWaveHeight(rawForecast.getJSONObject("SecondarySwellComponent").getDouble("WaveHeight"));
-                secondarySwell.setPeriod(rawForecast.getJSONObject("SecondarySwellComponent").getDouble("Period"));
-                secondarySwell.setDirection(rawForecast.getJSONObject("SecondarySwellComponent").getDouble("Direction"));
-                secondarySwell.setCompassDirection(rawForecast.getJSONObject("SecondarySwellComponent").getString("CompassDirection"));
-                newForecast.secondarySwellComponent = secondarySwell;
-
-                ApiApiMessagesSwellMessage tertiarySwell = new ApiApiMessagesSwellMessage();
-                tertiarySwell.setWaveHeight(rawForecast.getJSONObject("TertiarySwellComponent").getDouble("WaveHeight"));
-                tertiarySwell.setPeriod(rawForecast.getJSONObject("TertiarySwellComponent").getDouble("Period"));
-                tertiarySwell.setDirection(rawForecast.getJSONObject("TertiarySwellComponent").getDouble("Direction"));
-                tertiarySwell.setCompassDirection(rawForecast.getJSONObject("TertiarySwellComponent").getString("CompassDirection"));
-                newForecast.tertiarySwellComponent = tertiarySwell;
-
-                if (newForecast.time.equals("01 AM") || newForecast.time.equals("02 AM")) {
-                    dayIndices[dayCount] = i - FORECAST_DATA_BEGIN_INDEX - forecastOffset;
-                    dayCount++;
-                } else if (forecasts.size() == 0) {
-                    dayIndices[dayCount] = i - FORECAST_DATA_BEGIN_INDEX - forecastOffset;
-                    dayCount++;
-                }
+        if (newWaveModelRun == null || newSeries.size() < FORECAST_DATA_COUNT - FORECAST_DATA_BEGIN_INDEX) {
+            return null;
+        }
+
+        // We need to save the model run for later so we can check for updates
+        Date newLastFetchDate;
+        SimpleDateFormat formatter = new SimpleDateFormat("EEEE MMMM dd, yyyy HHZ");
+        try {
+            newLastFetchDate = formatter.parse(newWaveModelRun.replaceAll("z$", "+0000"));
+
+            // Add the hindcasting offset
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(newLastFetchDate);
+            calendar.add(Calendar.HOUR_OF_DAY, 5);
+            newLastFetchDate = calendar.getTime();
+        } catch (Exception e) {
+            return null;
+        }
+
+        ForecastData forecastData = new ForecastData();
+        forecastData.locationName = newLocationName;
+        forecastData.waveModelName = newWaveModelName;
+        forecastData.waveModelRun = newWaveModelRun;
+        forecastData.windModelName = newWindModelName;
+        forecastData.windModelRun = newWindModelRun;
+        forecastData.lastFetchDate = newLastFetchDate;
+        forecastData.series = newSeries.build();
+        forecastData.dayIndices = newDayIndices;
+        forecastData.dayCount = newDayCount;
+        forecastData.dailyForecasts = createDailyForecasts(forecastData.series, newDayIndices, newDayCount);
+        return forecastData;
+    }
 
-                forecasts.add(newForecast);
+    /**
+     * Reads one forecast entry into the current entry of the series builder.
+     * @return The hour of the forecast, or -1 if the entry is missing its time or a swell component
+     */
+    private int readForecast(JsonReader reader, ForecastSeries.Builder series) throws IOException {
+        int hour = -1;
+        int swellComponentCount = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("Date")) {
+                series.setDate(readString(reader));
+            } else if (name.equals("Time")) {
+                hour = ForecastSeries.parseHour(readString(reader));
+                series.setHour(hour);
+            } else if (name.equals("MinimumBreakingHeight")) {
+                series.setMinimumBreakingHeight(readDouble(reader));
+            } else if (name.equals("MaximumBreakingHeight")) {
+                series.setMaximumBreakingHeight(readDouble(reader));
+            } else if (name.equals("WindSpeed")) {
+                series.setWindSpeed(readDouble(reader));
+            } else if (name.equals("WindDirection")) {
+                series.setWindDirection(readDouble(reader));
+            } else if (name.equals("WindCompassDirection")) {
+                series.setWindCompassDirection(readString(reader));
+            } else if (name.equals("PrimarySwellComponent")) {
+                readSwellComponent(reader, series, ForecastSeries.PRIMARY_SWELL);
+                swellComponentCount++;
+            } else if (name.equals("SecondarySwellComponent")) {
+                readSwellComponent(reader, series, ForecastSeries.SECONDARY_SWELL);
+                swellComponentCount++;
+            } else if (name.equals("TertiarySwellComponent")) {
+                readSwellComponent(reader, series, ForecastSeries.TERTIARY_SWELL);
+                swellComponentCount++;
+            } else {
+                reader.skipValue();
             }
-        } catch ( JSONException e ) {
-            e.printStackTrace();
-            return false;
         }
-        return true;
+        reader.endObject();
+
+        if (swellComponentCount < ForecastSeries.SWELL_COMPONENT_COUNT) {
+            return -1;
+        }
+        return hour;
+    }
+
+    private void readSwellComponent(JsonReader reader, ForecastSeries.Builder series, int component) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("WaveHeight")) {
+                series.setSwellHeight(component, readDouble(reader));
+            } else if (name.equals("Period")) {
+                series.setSwellPeriod(component, readDouble(reader));
+            } else if (name.equals("Direction")) {
+                series.setSwellDirection(component, readDouble(reader));
+            } else if (name.equals("CompassDirection")) {
+                series.setSwellCompassDirection(component, readString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private String[] readModelInfo(JsonReader reader) throws IOException {
+        // Index 0 is the description, index 1 is the model run
+        String[] modelInfo = new String[2];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("Description")) {
+                modelInfo[0] = readString(reader);
+            } else if (name.equals("ModelRun")) {
+                modelInfo[1] = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return modelInfo;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
     }
 
-    private void createDailyForecasts() {
-        if (dailyForecasts.size() > 0) {
-            dailyForecasts.clear();
+    private static double readDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
         }
+        return reader.nextDouble();
+    }
 
+    private static ArrayList<ForecastDailySummary> createDailyForecasts(ForecastSeries series, int[] dayIndices, int dayCount) {
+        ArrayList<ForecastDailySummary> newDailyForecasts = new ArrayList<>();
         for (int i = 0; i < dayCount; i++) {
             ForecastDailySummary newSummary = new ForecastDailySummary();
 
-            ArrayList<Forecast> dailyForecastData = getForecastsForDay(i);
+            // Work straight off the series columns instead of building forecast objects
+            int start = getDayStartIndex(series, dayIndices, i);
+            int dayLength = getDayEndIndex(series, dayIndices, i) - start;
 
-            if (dailyForecastData.size() < 8) {
+            if (dayLength < 8) {
                 newSummary.morningMinimumWaveHeight = 0;
                 newSummary.morningMaximumWaveHeight = 0;
                 newSummary.morningWindSpeed = 0;
@@ -300,58 +836,77 @@ public class ForecastModel {
                 newSummary.afternoonWindSpeed = 0;
                 newSummary.afternoonWindCompassDirection = "";
 
-                if (dailyForecasts.size() == 0) {
-                    if (dailyForecastData.size() >= 6) {
-                        newSummary.morningMinimumWaveHeight = (dailyForecastData.get(0).minimumBreakingHeight + dailyForecastData.get(1).minimumBreakingHeight) / 2;
-                        newSummary.morningMaximumWaveHeight = (dailyForecastData.get(0).maximumBreakingHeight + dailyForecastData.get(1).maximumBreakingHeight) / 2;
-                        newSummary.morningWindSpeed = dailyForecastData.get(1).windSpeed;
-                        newSummary.morningWindCompassDirection = dailyForecastData.get(1).windCompassDirection;
-
-                        newSummary.afternoonMinimumWaveHeight = (dailyForecastData.get(2).minimumBreakingHeight + dailyForecastData.get(3).minimumBreakingHeight) / 2;
-                        newSummary.afternoonMaximumWaveHeight = (dailyForecastData.get(2).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight) / 2;
-                        newSummary.afternoonWindSpeed = dailyForecastData.get(3).windSpeed;
-                        newSummary.afternoonWindCompassDirection = dailyForecastData.get(3).windCompassDirection;
-
-                    } else if (dailyForecastData.size() >= 4) {
-                        newSummary.afternoonMinimumWaveHeight = (dailyForecastData.get(1).minimumBreakingHeight + dailyForecastData.get(2).minimumBreakingHeight + dailyForecastData.get(3).minimumBreakingHeight) / 3;
-                        newSummary.afternoonMaximumWaveHeight = (dailyForecastData.get(1).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight) / 3;
-                        newSummary.afternoonWindSpeed = dailyForecastData.get(2).windSpeed;
-                        newSummary.afternoonWindCompassDirection = dailyForecastData.get(2).windCompassDirection;
-                    } else if (dailyForecastData.size() >= 2) {
-                        newSummary.morningMinimumWaveHeight = dailyForecastData.get(1).minimumBreakingHeight;
-                        newSummary.morningMaximumWaveHeight = dailyForecastData.get(1).maximumBreakingHeight;
-                        newSummary.morningWindSpeed = dailyForecastData.get(1).windSpeed;
-                        newSummary.morningWindCompassDirection = dailyForecastData.get(1).windCompassDirection;
+                if (newDailyForecasts.size() == 0) {
+                    if (dayLength >= 6) {
+                        newSummary.morningMinimumWaveHeight = (series.getMinimumBreakingHeight(start) + series.getMinimumBreakingHeight(start + 1)) / 2;
+                        newSummary.morningMaximumWaveHeight = (series.getMaximumBreakingHeight(start) + series.getMaximumBreakingHeight(start + 1)) / 2;
+                        newSummary.morningWindSpeed = series.getWindSpeed(start + 1);
+                        newSummary.morningWindCompassDirection = series.getWindCompassDirection(start + 1);
+
+                        newSummary.afternoonMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 2) + series.getMinimumBreakingHeight(start + 3)) / 2;
+                        newSummary.afternoonMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 2) + series.getMaximumBreakingHeight(start + 3)) / 2;
+                        newSummary.afternoonWindSpeed = series.getWindSpeed(start + 3);
+                        newSummary.afternoonWindCompassDirection = series.getWindCompassDirection(start + 3);
+
+                    } else if (dayLength >= 4) {
+                        newSummary.afternoonMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 1) + series.getMinimumBreakingHeight(start + 2) + series.getMinimumBreakingHeight(start + 3)) / 3;
+                        newSummary.afternoonMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 1) + series.getMaximumBreakingHeight(start + 3) + series.getMaximumBreakingHeight(start + 3)) / 3;
+                        newSummary.afternoonWindSpeed = series.getWindSpeed(start + 2);
+                        newSummary.afternoonWindCompassDirection = series.getWindCompassDirection(start + 2);
+                    } else if (dayLength >= 2) {
+                        newSummary.morningMinimumWaveHeight = series.getMinimumBreakingHeight(start + 1);
+                        newSummary.morningMaximumWaveHeight = series.getMaximumBreakingHeight(start + 1);
+                        newSummary.morningWindSpeed = series.getWindSpeed(start + 1);
+                        newSummary.morningWindCompassDirection = series.getWindCompassDirection(start + 1);
                     }
                 } else {
-                    if (dailyForecastData.size() >= 4) {
-
-                        newSummary.morningMinimumWaveHeight = (dailyForecastData.get(1).minimumBreakingHeight + dailyForecastData.get(2).minimumBreakingHeight + dailyForecastData.get(3).minimumBreakingHeight) / 3;
-                        newSummary.morningMaximumWaveHeight = (dailyForecastData.get(1).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight) / 3;
-                        newSummary.morningWindSpeed = dailyForecastData.get(2).windSpeed;
-                        newSummary.morningWindCompassDirection = dailyForecastData.get(2).windCompassDirection;
-
-                        if (dailyForecastData.size() >= 6) {
-                            newSummary.afternoonMinimumWaveHeight = (dailyForecastData.get(4).minimumBreakingHeight + dailyForecastData.get(5).minimumBreakingHeight) / 2;
-                            newSummary.afternoonMaximumWaveHeight = (dailyForecastData.get(4).maximumBreakingHeight + dailyForecastData.get(5).maximumBreakingHeight) / 2;
-                            newSummary.afternoonWindSpeed = dailyForecastData.get(5).windSpeed;
-                            newSummary.afternoonWindCompassDirection = dailyForecastData.get(5).windCompassDirection;
+                    if (dayLength >= 4) {
+
+                        newSummary.morningMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 1) + series.getMinimumBreakingHeight(start + 2) + series.getMinimumBreakingHeight(start + 3)) / 3;
+                        newSummary.morningMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 1) + series.getMaximumBreakingHeight(start + 3) + series.getMaximumBreakingHeight(start + 3)) / 3;
+                        newSummary.morningWindSpeed = series.getWindSpeed(start + 2);
+                        newSummary.morningWindCompassDirection = series.getWindCompassDirection(start + 2);
+
+                        if (dayLength >= 6) {
+                            newSummary.afternoonMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 4) + series.getMinimumBreakingHeight(start + 5)) / 2;
+                            newSummary.afternoonMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 4) + series.getMaximumBreakingHeight(start + 5)) / 2;
+                            newSummary.afternoonWindSpeed = series.getWindSpeed(start + 5);
+                            newSummary.afternoonWindCompassDirection = series.getWindCompassDirection(start + 5);
                         }
                     }
                 }
             } else {
-                newSummary.morningMinimumWaveHeight = (dailyForecastData.get(1).minimumBreakingHeight + dailyForecastData.get(2).minimumBreakingHeight + dailyForecastData.get(3).minimumBreakingHeight) / 3;
-                newSummary.morningMaximumWaveHeight = (dailyForecastData.get(1).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight + dailyForecastData.get(3).maximumBreakingHeight) / 3;
-                newSummary.morningWindSpeed = dailyForecastData.get(2).windSpeed;
-                newSummary.morningWindCompassDirection = dailyForecastData.get(2).windCompassDirection;
-
-                newSummary.afternoonMinimumWaveHeight = (dailyForecastData.get(4).minimumBreakingHeight + dailyForecastData.get(5).minimumBreakingHeight + dailyForecastData.get(6).minimumBreakingHeight) / 3;
-                newSummary.afternoonMaximumWaveHeight = (dailyForecastData.get(4).maximumBreakingHeight + dailyForecastData.get(5).maximumBreakingHeight + dailyForecastData.get(6).maximumBreakingHeight) / 3;
-                newSummary.afternoonWindSpeed = dailyForecastData.get(5).windSpeed;
-                newSummary.afternoonWindCompassDirection = dailyForecastData.get(5).windCompassDirection;
+                newSummary.morningMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 1) + series.getMinimumBreakingHeight(start + 2) + series.getMinimumBreakingHeight(start + 3)) / 3;
+                newSummary.morningMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 1) + series.getMaximumBreakingHeight(start + 3) + series.getMaximumBreakingHeight(start + 3)) / 3;
+                newSummary.morningWindSpeed = series.getWindSpeed(start + 2);
+                newSummary.morningWindCompassDirection = series.getWindCompassDirection(start + 2);
+
+                newSummary.afternoonMinimumWaveHeight = (series.getMinimumBreakingHeight(start + 4) + series.getMinimumBreakingHeight(start + 5) + series.getMinimumBreakingHeight(start + 6)) / 3;
+                newSummary.afternoonMaximumWaveHeight = (series.getMaximumBreakingHeight(start + 4) + series.getMaximumBreakingHeight(start + 5) + series.getMaximumBreakingHeight(start + 6)) / 3;
+                newSummary.afternoonWindSpeed = series.getWindSpeed(start + 5);
+                newSummary.afternoonWindCompassDirection = series.getWindCompassDirection(start + 5);
             }
 
-            dailyForecasts.add(newSummary);
+            newDailyForecasts.add(newSummary);
         }
+        return newDailyForecasts;
+    }
+
+    private void notifyForecastDataUpdated() {
+        mForecastChangedListeners.dispatch(new ListenerSet.Dispatcher<ForecastChangedListener>() {
+            @Override
+            public void dispatch(ForecastChangedListener listener) {
+                listener.forecastDataUpdated();
+            }
+        });
+    }
+
+    private void notifyForecastDataUpdateFailed() {
+        mForecastChangedListeners.dispatch(new ListenerSet.Dispatcher<ForecastChangedListener>() {
+            @Override
+            public void dispatch(ForecastChangedListener listener) {
+                listener.forecastDataUpdateFailed();
+            }
+        });
     }
 }
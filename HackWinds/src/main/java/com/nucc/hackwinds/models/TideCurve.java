@@ -0,0 +1,120 @@
+package com.nucc.hackwinds.models;
+
+import com.nucc.hackwinds.types.Tide;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Continuous water level curve through a series of high and low tide events. Between two events the
+ * level follows half a cosine wave, which is how the tide actually moves between its extremes.
+ */
+public class TideCurve {
+
+    private final long[] mTimes;
+    private final float[] mHeights;
+
+    // The last sampled curve, reused until a different range is asked for
+    private long mSampleStart;
+    private long mSampleEnd;
+    private float[] mSamples;
+
+    /**
+     * @param events The tide table to fit, anything that isn't a high or low tide is skipped
+     */
+    public TideCurve(List<Tide> events) {
+        ArrayList<Tide> tidalEvents = new ArrayList<>();
+        for (Tide tide : events) {
+            if (tide != null && !tide.isDayItem() && tide.isTidalEvent() && tide.timestamp != null) {
+                tidalEvents.add(tide);
+            }
+        }
+
+        mTimes = new long[tidalEvents.size()];
+        mHeights = new float[tidalEvents.size()];
+        for (int i = 0; i < tidalEvents.size(); i++) {
+            mTimes[i] = tidalEvents.get(i).timestamp.getTime();
+            mHeights[i] = tidalEvents.get(i).heightValue;
+        }
+    }
+
+    public int getEventCount() {
+        return mTimes.length;
+    }
+
+    public long getStartTime() {
+        return mTimes.length > 0 ? mTimes[0] : 0;
+    }
+
+    public long getEndTime() {
+        return mTimes.length > 0 ? mTimes[mTimes.length - 1] : 0;
+    }
+
+    /**
+     * Gets the water level at any time. Outside of the known events the curve mirrors the closest
+     * half cycle, so it only holds up for a few hours past either end.
+     * @param time The time in milliseconds
+     * @return The water level in feet
+     */
+    public float getHeight(long time) {
+        int count = mTimes.length;
+        if (count == 0) {
+            return 0;
+        } else if (count == 1) {
+            return mHeights[0];
+        }
+
+        if (time <= mTimes[0]) {
+            // Mirror the first half cycle back in time
+            long period = mTimes[1] - mTimes[0];
+            return interpolate(mTimes[0] - period, mHeights[1], mTimes[0], mHeights[0], Math.max(time, mTimes[0] - period));
+        } else if (time >= mTimes[count - 1]) {
+            // Mirror the last half cycle forward in time
+            long period = mTimes[count - 1] - mTimes[count - 2];
+            return interpolate(mTimes[count - 1], mHeights[count - 1], mTimes[count - 1] + period, mHeights[count - 2], Math.min(time, mTimes[count - 1] + period));
+        }
+
+        // Find the pair of events around the time
+        int index = Arrays.binarySearch(mTimes, time);
+        if (index >= 0) {
+            return mHeights[index];
+        }
+        int next = -index - 1;
+        return interpolate(mTimes[next - 1], mHeights[next - 1], mTimes[next], mHeights[next], time);
+    }
+
+    /**
+     * Samples the curve at evenly spaced times for charting. The result is cached, so asking for the
+     * same range again doesn't recompute it. Don't modify the returned array.
+     * @param start The time of the first sample in milliseconds
+     * @param end The time of the last sample in milliseconds
+     * @param sampleCount The number of samples, at least two
+     * @return The water level at each sample time
+     */
+    public synchronized float[] sample(long start, long end, int sampleCount) {
+        if (mSamples != null && mSamples.length == sampleCount && mSampleStart == start && mSampleEnd == end) {
+            return mSamples;
+        }
+
+        float[] samples = new float[sampleCount];
+        double step = sampleCount > 1 ? (double) (end - start) / (sampleCount - 1) : 0;
+        for (int i = 0; i < sampleCount; i++) {
+            samples[i] = getHeight(start + (long) (step * i));
+        }
+
+        mSampleStart = start;
+        mSampleEnd = end;
+        mSamples = samples;
+        return samples;
+    }
+
+    private static float interpolate(long startTime, float startHeight, long endTime, float endHeight, long time) {
+        if (endTime == startTime) {
+            return startHeight;
+        }
+
+        double fraction = (double) (time - startTime) / (endTime - startTime);
+        return (float) (startHeight + (endHeight - startHeight) * (1 - Math.cos(Math.PI * fraction)) / 2);
+    }
+}
@@ -5,8 +5,15 @@ import android.content.Context;
 
 import com.koushikdutta.async.future.FutureCallback;
 import com.koushikdutta.ion.Ion;
+import com.koushikdutta.ion.Response;
 import com.nucc.hackwinds.listeners.TideChangedListener;
+import com.nucc.hackwinds.listeners.ListenerSet;
+import com.nucc.hackwinds.listeners.TidePredictionListener;
+import com.nucc.hackwinds.tasks.RestoreCacheTask;
 import com.nucc.hackwinds.types.Tide;
+import com.nucc.hackwinds.utilities.DiskCache;
+import com.nucc.hackwinds.utilities.FetchPolicy;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -29,10 +36,35 @@ public class TideModel {
     private Context mContext;
 
     private static TideModel mInstance;
-    private ArrayList<TideChangedListener> mTideChangedListeners;
+    private ListenerSet<TideChangedListener> mTideChangedListeners;
 
-    private ArrayList<String> mDayIds;
-    private ArrayList<Integer> mDayDataCounts;
+    // The curve through the tide table, built on demand and dropped whenever the table changes
+    private TideCurve mTideCurve;
+    private Tide mLastExpiredTide;
+    private boolean mUsingPredictions = false;
+    private boolean mPublishedPredictions = false;
+    private boolean mPredicting = false;
+
+    // False while the table on screen is a persisted copy or a prediction the tide service hasn't confirmed
+    private boolean mDataValidated = false;
+
+    // True while a request is out, so the app and the background sync don't fetch the same table twice
+    private boolean mFetching = false;
+
+    // The cached tide table is read back in on a worker thread before the first fetch goes out
+    private boolean mCacheRestored = false;
+    private boolean mRestoringCache = false;
+
+    private static final String TIDE_CACHE_KEY = "tides.json";
+
+    // How much of the tide table has to be left before it gets refetched
+    private static final int MIN_UPCOMING_TIDE_COUNT = 5;
+    private static final int MIN_UPCOMING_OTHER_EVENT_COUNT = 2;
+    private static final int MIN_HORIZON_HOURS = 24;
+
+    // How much of the offline prediction to generate when the tide service can't be reached
+    private static final int PREDICTION_DAYS = 3;
+    private static final int PREDICTION_LOOKBACK_HOURS = 7;
 
     public static TideModel getInstance(Context context) {
         if (mInstance == null) {
@@ -41,138 +73,528 @@ public class TideModel {
         return mInstance;
     }
 
+    /**
+     * @return The model if something already created it, otherwise null
+     */
+    public static TideModel peekInstance() {
+        return mInstance;
+    }
+
     private TideModel(Context context) {
+        this();
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Creates a model with an empty tide table and no context, so the table logic can be tested on its own.
+     */
+    TideModel() {
         // Initialize tide array
-        mContext = context;
         tides = new ArrayList<>();
         otherEvents = new ArrayList<>();
-        mTideChangedListeners = new ArrayList<>();
+        mTideChangedListeners = new ListenerSet<>();
     }
 
     public void addTideChangedListener(TideChangedListener listener) {
         mTideChangedListeners.add(listener);
     }
 
+    public void removeTideChangedListener(TideChangedListener listener) {
+        mTideChangedListeners.remove(listener);
+    }
+
     public void resetData() {
         dayCount = 0;
         tides.clear();
         otherEvents.clear();
-        mDayIds.clear();
-        mDayDataCounts.clear();
+        mLastExpiredTide = null;
+        mTideCurve = null;
+        mUsingPredictions = false;
+        mPublishedPredictions = false;
+    }
+
+    /**
+     * Gets the water level curve through the tide table. It starts at the last tide that already
+     * passed so it covers the current time.
+     * @return The tide curve
+     */
+    public TideCurve getTideCurve() {
+        if (mTideCurve == null) {
+            ArrayList<Tide> curveEvents = new ArrayList<>(tides.size() + 1);
+            if (mLastExpiredTide != null) {
+                curveEvents.add(mLastExpiredTide);
+            }
+            curveEvents.addAll(tides);
+            mTideCurve = new TideCurve(curveEvents);
+        }
+        return mTideCurve;
     }
 
-    public void checkForUpdate() {
+    public boolean checkForUpdate() {
         if (tides == null) {
-            return;
+            return true;
         }
 
-        if (tides.size() < 1) {
-            return;
+        // Expired events can be dropped locally, only go to the network when the table runs short
+        long now = System.currentTimeMillis();
+        pruneExpiredEvents(now);
+        return isRunningShort(now);
+    }
+
+    /**
+     * Checks whether the table needs topping up without touching it, the expired events it still
+     * holds simply don't count.
+     * @param now The current time in milliseconds
+     * @return True if the tide service should be asked for a new table
+     */
+    private boolean isRunningShort(long now) {
+        // Predicted tides are only a stand in, keep trying the service until it answers
+        if (mUsingPredictions) {
+            return true;
         }
 
-        if (tides.get(0).timestamp == null) {
-            return;
+        int upcomingTideCount = 0;
+        for (Tide tide : tides) {
+            if (tide.isTidalEvent() && tide.timestamp.getTime() >= now) {
+                upcomingTideCount++;
+            }
+        }
+        if (upcomingTideCount < MIN_UPCOMING_TIDE_COUNT) {
+            return true;
         }
 
-        java.util.Date now = new java.util.Date();
-        long rawTimeDiff = now.getTime() - tides.get(0).timestamp.getTime();
+        int upcomingOtherEventCount = 0;
+        if (otherEvents != null) {
+            for (Tide tide : otherEvents) {
+                if (tide.timestamp.getTime() >= now) {
+                    upcomingOtherEventCount++;
+                }
+            }
+        }
+        if (upcomingOtherEventCount < MIN_UPCOMING_OTHER_EVENT_COUNT) {
+            return true;
+        }
 
-        if (rawTimeDiff > 0) {
-            resetData();
-            return;
+        // Top the table back up once it covers less than a day ahead
+        return getHorizon() - now < TimeUnit.HOURS.toMillis(MIN_HORIZON_HOURS);
+    }
+
+    /**
+     * @return The time of the last known event in milliseconds, or 0 if there are none
+     */
+    private long getHorizon() {
+        for (int i = tides.size() - 1; i >= 0; i--) {
+            Tide tide = tides.get(i);
+            if (!tide.isDayItem()) {
+                return tide.timestamp.getTime();
+            }
         }
+        return 0;
+    }
 
-        if (otherEvents == null) {
-            return;
+    /**
+     * Drops every event that has already happened and relabels the day headers around the
+     * events that are left.
+     * @param now The current time in milliseconds
+     * @return True if any events were dropped
+     */
+    boolean pruneExpiredEvents(long now) {
+        int expiredCount = 0;
+        for (Tide tide : tides) {
+            if (tide.isDayItem()) {
+                continue;
+            }
+            if (tide.timestamp.getTime() >= now) {
+                break;
+            }
+            expiredCount++;
+        }
+
+        if (expiredCount == 0) {
+            return false;
         }
 
-        // Check the other events list if there are any
-        if (otherEvents.size() > 0) {
-            long rawOtherTimeDiff = now.getTime() - otherEvents.get(0).timestamp.getTime();
-            if (rawOtherTimeDiff > 0) {
-                resetData();
+        ArrayList<Tide> remainingEvents = new ArrayList<>(tides.size());
+        for (Tide tide : tides) {
+            if (tide.isDayItem()) {
+                continue;
+            }
+
+            if (tide.timestamp.getTime() >= now) {
+                remainingEvents.add(tide);
+            } else if (tide.isTidalEvent()) {
+                // Hold on to the last tide so the curve still reaches back to now
+                mLastExpiredTide = tide;
             }
         }
+        rebuildTideTable(remainingEvents);
+        return true;
+    }
+
+    /**
+     * Appends the events that are past the current horizon, so events that are already known
+     * keep their objects and only what actually changed touches the lists.
+     * @param fetchedEvents The events from the tide summary in time order, without day headers
+     * @param now The current time in milliseconds
+     * @return True if the tide table changed
+     */
+    boolean mergeTideEvents(ArrayList<Tide> fetchedEvents, long now) {
+        boolean pruned = pruneExpiredEvents(now);
+
+        long horizon = getHorizon();
+        ArrayList<Tide> newEvents = new ArrayList<>();
+        for (Tide tide : fetchedEvents) {
+            long timestamp = tide.timestamp.getTime();
+            if (timestamp > horizon && timestamp >= now) {
+                newEvents.add(tide);
+            }
+        }
+
+        // Tides that already passed still anchor the start of the curve
+        for (Tide tide : fetchedEvents) {
+            long timestamp = tide.timestamp.getTime();
+            if (timestamp < now && tide.isTidalEvent() &&
+                    (mLastExpiredTide == null || timestamp > mLastExpiredTide.timestamp.getTime())) {
+                mLastExpiredTide = tide;
+                mTideCurve = null;
+            }
+        }
+
+        if (newEvents.isEmpty()) {
+            return pruned;
+        }
+        mTideCurve = null;
+
+        // Only add a header when the new events start a day the table doesn't have yet
+        String currentDay = "";
+        for (int i = tides.size() - 1; i >= 0; i--) {
+            if (tides.get(i).isDayItem()) {
+                currentDay = tides.get(i).day;
+                break;
+            }
+        }
+
+        for (Tide tide : newEvents) {
+            if (!currentDay.equals(tide.day)) {
+                currentDay = tide.day;
+                tides.add(createDayHeader(currentDay));
+                dayCount++;
+            }
+
+            tides.add(tide);
+            if (!tide.isTidalEvent()) {
+                otherEvents.add(tide);
+            }
+        }
+        return true;
+    }
+
+    private void rebuildTideTable(ArrayList<Tide> events) {
+        mTideCurve = null;
+        tides.clear();
+        otherEvents.clear();
+        dayCount = 0;
+
+        String currentDay = "";
+        for (Tide tide : events) {
+            if (!currentDay.equals(tide.day)) {
+                currentDay = tide.day;
+                tides.add(createDayHeader(currentDay));
+                dayCount++;
+            }
+
+            tides.add(tide);
+            if (!tide.isTidalEvent()) {
+                otherEvents.add(tide);
+            }
+        }
+    }
+
+    private static Tide createDayHeader(String day) {
+        Tide dayTide = new Tide();
+        dayTide.day = day;
+        dayTide.eventType = Tide.DAY_TAG;
+        return dayTide;
     }
 
     public void fetchTideData() {
         synchronized (this) {
             final String WUNDER_URL = "http://api.wunderground.com/api/2e5424aab8c91757/tide/q/RI/Point_Judith.json";
 
-            checkForUpdate();
+            // On a cold start, pull in the last good tide table from disk so there is something to show right away.
+            // This comes back around once it's restored.
+            if (!mCacheRestored) {
+                restoreCachedTideDataInBackground();
+                return;
+            }
 
             if (!tides.isEmpty()) {
-                for (TideChangedListener listener : mTideChangedListeners) {
-                    if (listener != null) {
-                        listener.tideDataUpdated();
-                    }
+                // Drop the expired events before anyone renders the table
+                boolean needsUpdate = checkForUpdate();
+                if (!needsUpdate) {
+                    mDataValidated = true;
+                }
+                if (!tides.isEmpty()) {
+                    notifyTideDataUpdated();
+                }
+
+                if (!needsUpdate) {
+                    return;
                 }
+            }
+
+            if (mFetching) {
+                // The request in flight will notify everyone when it's done
                 return;
             }
+            mFetching = true;
 
-            Ion.with(mContext).load(WUNDER_URL).asString().setCallback(new FutureCallback<String>() {
+            // Ask the server to skip the body if it hasn't changed since the cached copy
+            final HttpRevalidator revalidator = HttpRevalidator.getInstance(mContext);
+            revalidator.applyValidators(Ion.with(mContext).load(WUNDER_URL), TIDE_CACHE_KEY).asString().withResponse().setCallback(new FutureCallback<Response<String>>() {
                 @Override
-                public void onCompleted(Exception e, String result) {
-                    if (e != null) {
-                        for (TideChangedListener listener : mTideChangedListeners) {
-                            if (listener != null) {
-                                listener.tideDataUpdateFailed();
+                public void onCompleted(Exception e, Response<String> response) {
+                    mFetching = false;
+
+                    if (e == null && response.getHeaders() != null && response.getHeaders().code() == HttpRevalidator.NOT_MODIFIED_STATUS) {
+                        if (tides.isEmpty()) {
+                            // Nothing usable was cached, make the next request a full one
+                            revalidator.putValidators(TIDE_CACHE_KEY, null, null);
+                            handleTideFetchFailure();
+                        } else {
+                            revalidator.recordNotModified(TIDE_CACHE_KEY);
+
+                            // Same table, but it's fresh now
+                            if (!mUsingPredictions) {
+                                mDataValidated = true;
+                                notifyTideDataUpdated();
                             }
                         }
+                        return;
                     }
 
-                    Boolean successfulParse = parseTideData(result);
-                    if (successfulParse) {
-                        for (TideChangedListener listener : mTideChangedListeners) {
-                            if (listener != null) {
-                                listener.tideDataUpdated();
-                            }
+                    String result = e == null ? response.getResult() : null;
+                    if (e != null) {
+                        // Keep serving the cached tides if there are any, they stay stale until the network is back
+                        if (!tides.isEmpty()) {
+                            mDataValidated = false;
+                            return;
                         }
-                    } else {
-                        for (TideChangedListener listener : mTideChangedListeners) {
-                            if (listener != null) {
-                                listener.tideDataUpdateFailed();
-                            }
+
+                        handleTideFetchFailure();
+                        return;
+                    }
+
+                    FetchPolicy.getInstance(mContext).recordBytes(response.getHeaders(), result);
+
+                    ArrayList<Tide> fetchedEvents = parseTideData(result);
+                    if (fetchedEvents != null) {
+                        // Save the raw tide table so the next cold start can render it immediately
+                        DiskCache.getInstance(mContext).putString(TIDE_CACHE_KEY, result);
+                        revalidator.putValidators(TIDE_CACHE_KEY, response.getHeaders());
+
+                        if (applyFetchedEvents(fetchedEvents, System.currentTimeMillis())) {
+                            notifyTideDataUpdated();
                         }
+
+                        // Keep the offline predictions on the published constants while the network is here
+                        TidePredictor.getInstance(mContext).refreshPublishedConstants(TidePredictor.POINT_JUDITH_STATION);
+                    } else if (tides.isEmpty()) {
+                        handleTideFetchFailure();
                     }
                 }
             });
         }
     }
 
+    /**
+     * Falls back to the offline harmonic prediction when there are no tides from the service.
+     */
+    private void handleTideFetchFailure() {
+        if (mPredicting) {
+            return;
+        }
+        mPredicting = true;
+
+        // Start a half cycle back so the tide curve still has the last tide before now
+        long now = System.currentTimeMillis();
+        TidePredictor.getInstance(mContext).predictTideEvents(
+                TidePredictor.POINT_JUDITH_STATION,
+                now - TimeUnit.HOURS.toMillis(PREDICTION_LOOKBACK_HOURS),
+                now + TimeUnit.DAYS.toMillis(PREDICTION_DAYS),
+                new TidePredictionListener() {
+                    @Override
+                    public void tidesPredicted(ArrayList<Tide> events, boolean published) {
+                        mPredicting = false;
+
+                        // The service may have answered while the prediction was running
+                        if (!tides.isEmpty() && !mUsingPredictions) {
+                            return;
+                        }
+
+                        if (events.isEmpty()) {
+                            notifyTideDataUpdateFailed();
+                            return;
+                        }
+
+                        applyPredictedEvents(events, published, System.currentTimeMillis());
+                        notifyTideDataUpdated();
+                    }
+                });
+    }
+
+    /**
+     * Merges a table from the tide service, which also confirms the table being served.
+     * @param fetchedEvents The events from the tide summary in time order, without day headers
+     * @param now The current time in milliseconds
+     * @return True if the table changed or was only just confirmed, either way listeners need to hear about it
+     */
+    boolean applyFetchedEvents(ArrayList<Tide> fetchedEvents, long now) {
+        // Real tides replace any predicted ones outright
+        if (mUsingPredictions) {
+            resetData();
+        }
+
+        boolean wasValidated = mDataValidated;
+        mDataValidated = true;
+        return mergeTideEvents(fetchedEvents, now) || !wasValidated;
+    }
+
+    /**
+     * Serves an offline prediction until the tide service answers.
+     * @param events The predicted tides in time order
+     * @param published True if they were predicted from NOAA's published constants
+     * @param now The current time in milliseconds
+     */
+    void applyPredictedEvents(ArrayList<Tide> events, boolean published, long now) {
+        mergeTideEvents(events, now);
+        mUsingPredictions = true;
+        mPublishedPredictions = published;
+        mDataValidated = false;
+    }
+
+    /**
+     * @return True if anything is listening for the tide table or there is one to keep fresh
+     */
+    public boolean isInUse() {
+        return mTideChangedListeners.size() > 0 || !tides.isEmpty();
+    }
+
+    /**
+     * Fetches again if the tide table being served is stale, for when the network comes back.
+     */
+    public void revalidate() {
+        if (tides.isEmpty() || isDataStale()) {
+            fetchTideData();
+        }
+    }
+
+    /**
+     * @return True if the tide table is a persisted copy or a prediction that the tide service hasn't confirmed
+     */
+    public boolean isDataStale() {
+        return !tides.isEmpty() && (!mDataValidated || mUsingPredictions);
+    }
+
+    /**
+     * @return When the tide service last sent or confirmed the table in milliseconds, 0 if there is none
+     */
+    public long getDataTimestamp() {
+        return DiskCache.getInstance(mContext).getLastModified(TIDE_CACHE_KEY);
+    }
+
+    /**
+     * @return True while the cached tide table is being restored, a tide request is in flight or the offline prediction is running
+     */
+    public boolean isFetching() {
+        return mRestoringCache || mFetching || mPredicting;
+    }
+
+    /**
+     * @return When the tide table will run short and need topping up in milliseconds, 0 if it should be fetched now.
+     * The table is left as it is, so this is safe to call from the background sync
+     */
+    public long getNextUpdateTime() {
+        if (tides.isEmpty() || isRunningShort(System.currentTimeMillis())) {
+            return 0;
+        }
+        return getHorizon() - TimeUnit.HOURS.toMillis(MIN_HORIZON_HOURS);
+    }
+
+    /**
+     * @return True if the tide table is an offline prediction instead of data from the tide service
+     */
+    public boolean isUsingPredictions() {
+        return mUsingPredictions;
+    }
+
+    /**
+     * @return True if the offline predictions come from NOAA's published constants rather than the bundled approximations
+     */
+    public boolean hasPublishedPredictions() {
+        return mPublishedPredictions;
+    }
+
+    private void restoreCachedTideDataInBackground() {
+        if (mRestoringCache) {
+            return;
+        }
+        mRestoringCache = true;
+
+        // Only the reading and parsing happen on the worker, the table is merged on the main thread
+        new RestoreCacheTask<>(TIDE_CACHE_KEY, new RestoreCacheTask.RestoreCacheTaskListener<ArrayList<Tide>>() {
+            @Override
+            public ArrayList<Tide> restore() {
+                return parseTideData(DiskCache.getInstance(mContext).getString(TIDE_CACHE_KEY));
+            }
+
+            @Override
+            public void onRestored(ArrayList<Tide> cachedEvents) {
+                mRestoringCache = false;
+                mCacheRestored = true;
+
+                if (cachedEvents != null) {
+                    mergeTideEvents(cachedEvents, System.currentTimeMillis());
+                }
+
+                // Serves the restored table and revalidates it
+                fetchTideData();
+            }
+        }).execute();
+    }
+
     public ArrayList<Tide> getTideData() {
         // Return the vector of tides
         return tides;
     }
 
-    private boolean parseTideData(String rawData) {
+    /**
+     * Parses the tide summary into events in time order, without day headers.
+     * @return The parsed events, or null if the data couldn't be parsed
+     */
+    private ArrayList<Tide> parseTideData(String rawData) {
         if (rawData == null) {
-            return false;
+            return null;
         }
 
-        if (!tides.isEmpty()) {
-            tides.clear();
-        }
+        ArrayList<Tide> newEvents = new ArrayList<>();
 
         try {
             // Get the tide summary json object from the current json object
             JSONObject jsonObj = new JSONObject(rawData);
             JSONArray tideSummary = jsonObj.getJSONObject("tide").getJSONArray("tideSummary");
-            int currentDayDataCount = 0;
-            dayCount = 0;
-            String currentDay = "";
+
+            // Just a day formatter
+            SimpleDateFormat dayFormatter = new SimpleDateFormat("EEEE", Locale.US);
+
             for (int i = 0; i < tideSummary.length(); i++) {
 
                 // Get the day and time
                 JSONObject tideJSONObject = tideSummary.getJSONObject(i);
                 long epoch = tideJSONObject.getJSONObject("date").getLong("epoch");
-                String day = tideJSONObject.getJSONObject("date").getString("mday");
                 String type = tideJSONObject.getJSONObject("data").getString("type");
                 String height = tideJSONObject.getJSONObject("data").getString("height");
 
-                // Just a day formatter
-                SimpleDateFormat dayFormatter = new SimpleDateFormat("EEEE", Locale.US);
-
                 // Append the data to the current tide object adn increment the data count
                 if (Tide.isValidEvent(type)) {
 
@@ -188,28 +610,35 @@ public class TideModel {
                         thisTide.heightValue = Float.valueOf(height.split(" ")[0]);
                     }
 
-                    if (!currentDay.equals(thisTide.day)) {
-                        dayCount++;
-                        currentDay = thisTide.day;
-
-                        Tide dayTide = new Tide();
-                        dayTide.day = currentDay;
-                        dayTide.eventType = Tide.DAY_TAG;
-                        tides.add(dayTide);
-                    }
-
-                    // Add the tide to the vector
-                    tides.add(thisTide);
-
-                    if (!thisTide.isTidalEvent()) {
-                        otherEvents.add(thisTide);
-                    }
+                    newEvents.add(thisTide);
                 }
             }
-        } catch (JSONException e) {
+        } catch (JSONException | NumberFormatException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
-        return true;
+
+        if (newEvents.isEmpty()) {
+            return null;
+        }
+        return newEvents;
+    }
+
+    private void notifyTideDataUpdated() {
+        mTideChangedListeners.dispatch(new ListenerSet.Dispatcher<TideChangedListener>() {
+            @Override
+            public void dispatch(TideChangedListener listener) {
+                listener.tideDataUpdated();
+            }
+        });
+    }
+
+    private void notifyTideDataUpdateFailed() {
+        mTideChangedListeners.dispatch(new ListenerSet.Dispatcher<TideChangedListener>() {
+            @Override
+            public void dispatch(TideChangedListener listener) {
+                listener.tideDataUpdateFailed();
+            }
+        });
     }
 }
@@ -0,0 +1,535 @@
+package com.nucc.hackwinds.models;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.koushikdutta.async.future.FutureCallback;
+import com.koushikdutta.ion.Ion;
+import com.nucc.hackwinds.R;
+import com.nucc.hackwinds.listeners.TidePredictionListener;
+import com.nucc.hackwinds.types.Tide;
+import com.nucc.hackwinds.utilities.DiskCache;
+import com.nucc.hackwinds.utilities.FetchPolicy;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts tides offline from harmonic constants. NOAA's published constants for a station are
+ * fetched and kept on disk once the app has been on wifi, until then the approximate constants
+ * bundled in res/raw/tide_constituents.json stand in for them. Either way predictions are for when
+ * the tide service can't be reached rather than a replacement for it. The constants are loaded and
+ * every prediction runs on one background thread, results are handed back on the main thread.
+ */
+public class TidePredictor {
+
+    public static final String POINT_JUDITH_STATION = "8455083";
+    public static final String NEWPORT_STATION = "8452660";
+    public static final String BLOCK_ISLAND_STATION = "8459338";
+
+    private static final String TAG = "TidePredictor";
+    private static final String NOAA_STATION_URL = "https://api.tidesandcurrents.noaa.gov/mdapi/prod/webapi/stations/";
+
+    // Published constants only change when NOAA reanalyzes a station, so check back every few months
+    private static final long PUBLISHED_CONSTANTS_LIFETIME = TimeUnit.DAYS.toMillis(90);
+
+    // Resolution used to bracket the highs and lows before refining them
+    private static final long SEARCH_STEP_MILLIS = 6 * 60 * 1000;
+    private static final double HOUR_MILLIS = 60 * 60 * 1000;
+
+    // January 1st 2000 at noon UTC, the reference for the astronomical arguments
+    private static final long J2000_MILLIS = 946728000000L;
+    private static final double DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static TidePredictor mInstance;
+
+    private final Context mContext;
+    private final Executor mPredictionExecutor;
+    private final Handler mMainHandler;
+
+    // Only touched on the prediction thread
+    private HashMap<String, Station> mStations;
+    private final HashSet<String> mRefreshingStations = new HashSet<>();
+
+    static class Constituent {
+        final String name;
+        final double amplitude;
+        final double phase;
+        final double speed;
+
+        Constituent(String name, double amplitude, double phase, double speed) {
+            this.name = name;
+            this.amplitude = amplitude;
+            this.phase = phase;
+            this.speed = speed;
+        }
+    }
+
+    static class Station {
+        String name;
+        double datumOffset;
+        Constituent[] constituents;
+        boolean published;
+    }
+
+    /**
+     * Precomputed terms for one prediction run, so evaluating a level is a plain sum of cosines.
+     */
+    private static class Prediction {
+        final long epoch;
+        final double datumOffset;
+        final double[] amplitudes;
+        final double[] phases;
+        final double[] speeds;
+
+        Prediction(Station station, long epoch) {
+            this.epoch = epoch;
+            this.datumOffset = station.datumOffset;
+
+            int count = station.constituents.length;
+            amplitudes = new double[count];
+            phases = new double[count];
+            speeds = new double[count];
+
+            double[] astronomy = getAstronomicalArguments(epoch);
+            for (int i = 0; i < count; i++) {
+                Constituent constituent = station.constituents[i];
+                double[] nodal = getNodalCorrection(constituent.name, astronomy[4]);
+                amplitudes[i] = nodal[0] * constituent.amplitude;
+                phases[i] = Math.toRadians(getEquilibriumArgument(constituent.name, astronomy) + nodal[1] - constituent.phase);
+                speeds[i] = Math.toRadians(constituent.speed);
+            }
+        }
+
+        double getLevel(long time) {
+            double hours = (time - epoch) / HOUR_MILLIS;
+            double level = datumOffset;
+            for (int i = 0; i < amplitudes.length; i++) {
+                level += amplitudes[i] * Math.cos(phases[i] + speeds[i] * hours);
+            }
+            return level;
+        }
+    }
+
+    public static synchronized TidePredictor getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new TidePredictor(context);
+        }
+        return mInstance;
+    }
+
+    private TidePredictor(Context context) {
+        mContext = context.getApplicationContext();
+        mPredictionExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Fetches a station's published harmonic constants and datums from NOAA and keeps them on disk in
+     * place of the bundled approximations. Does nothing if they were fetched in the last few months or
+     * the connection isn't worth spending on data nobody is looking at yet.
+     * @param stationId The NOAA id of the station
+     */
+    public void refreshPublishedConstants(final String stationId) {
+        mPredictionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Station station = getStation(stationId);
+                if (station == null) {
+                    return;
+                }
+
+                long fetchedTime = DiskCache.getInstance(mContext).getLastModified(getHarmonicsCacheKey(stationId));
+                if (fetchedTime > 0 && System.currentTimeMillis() - fetchedTime < PUBLISHED_CONSTANTS_LIFETIME) {
+                    return;
+                }
+
+                FetchPolicy fetchPolicy = FetchPolicy.getInstance(mContext);
+                if (!fetchPolicy.shouldPrefetch()) {
+                    fetchPolicy.recordSkippedFetch();
+                    return;
+                }
+
+                if (!mRefreshingStations.add(stationId)) {
+                    return;
+                }
+                fetchPublishedConstants(stationId, station.name);
+            }
+        });
+    }
+
+    private void fetchPublishedConstants(final String stationId, final String name) {
+        final String stationUrl = NOAA_STATION_URL + stationId;
+        Ion.with(mContext).load(stationUrl + "/harcon.json?units=english").asString().setCallback(new FutureCallback<String>() {
+            @Override
+            public void onCompleted(Exception e, final String harmonics) {
+                if (e != null || harmonics == null) {
+                    postFinishRefresh(stationId, name, null, null);
+                    return;
+                }
+
+                Ion.with(mContext).load(stationUrl + "/datums.json?units=english").asString().setCallback(new FutureCallback<String>() {
+                    @Override
+                    public void onCompleted(Exception e, String datums) {
+                        postFinishRefresh(stationId, name, harmonics, e == null ? datums : null);
+                    }
+                });
+            }
+        });
+    }
+
+    private void postFinishRefresh(final String stationId, final String name, final String harmonics, final String datums) {
+        // Ion calls back on the main thread, parse the constants where the stations live
+        mPredictionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                finishRefresh(stationId, name, harmonics, datums);
+            }
+        });
+    }
+
+    private void finishRefresh(String stationId, String name, String harmonics, String datums) {
+        mRefreshingStations.remove(stationId);
+
+        if (harmonics == null || datums == null) {
+            Log.d(TAG, "Failed to fetch the published constants for " + stationId);
+            return;
+        }
+
+        Station station;
+        try {
+            station = parsePublishedStation(name, harmonics, datums);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to parse the published constants for " + stationId, e);
+            return;
+        }
+
+        FetchPolicy.getInstance(mContext).recordBytes(harmonics.getBytes(UTF8).length + datums.getBytes(UTF8).length);
+        DiskCache.getInstance(mContext).putString(getHarmonicsCacheKey(stationId), harmonics);
+        DiskCache.getInstance(mContext).putString(getDatumsCacheKey(stationId), datums);
+        mStations.put(stationId, station);
+    }
+
+    /**
+     * Predicts the high and low tides in a time range in the background.
+     * @param stationId The NOAA id of the station
+     * @param start The start of the range in milliseconds
+     * @param end The end of the range in milliseconds
+     * @param listener Gets the tides in time order on the main thread, empty if the station isn't bundled
+     */
+    public void predictTideEvents(final String stationId, final long start, final long end, final TidePredictionListener listener) {
+        mPredictionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Station station = getStation(stationId);
+                final ArrayList<Tide> events = station != null ? predictTideEvents(station, start, end) : new ArrayList<Tide>();
+                final boolean published = station != null && station.published;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.tidesPredicted(events, published);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Predicts the water level above mean lower low water.
+     * @param station The station's constants
+     * @param time The time in milliseconds
+     * @return The water level in feet
+     */
+    static double getWaterLevel(Station station, long time) {
+        return new Prediction(station, time).getLevel(time);
+    }
+
+    static ArrayList<Tide> predictTideEvents(Station station, long start, long end) {
+        ArrayList<Tide> events = new ArrayList<>();
+        if (end <= start) {
+            return events;
+        }
+
+        // The nodal terms barely move over a month, so evaluate them once in the middle of the range
+        Prediction prediction = new Prediction(station, start + (end - start) / 2);
+        SimpleDateFormat dayFormatter = new SimpleDateFormat("EEEE", Locale.US);
+
+        double previousLevel = prediction.getLevel(start - SEARCH_STEP_MILLIS);
+        double level = prediction.getLevel(start);
+        for (long time = start; time < end; time += SEARCH_STEP_MILLIS) {
+            double nextLevel = prediction.getLevel(time + SEARCH_STEP_MILLIS);
+
+            boolean isHigh = level > previousLevel && level >= nextLevel;
+            boolean isLow = level < previousLevel && level <= nextLevel;
+            if (isHigh || isLow) {
+                // Fit a parabola through the three samples to place the turn between them
+                double denominator = previousLevel - 2 * level + nextLevel;
+                double offset = denominator != 0 ? 0.5 * (previousLevel - nextLevel) / denominator : 0;
+                long eventTime = time + (long) (offset * SEARCH_STEP_MILLIS);
+                float eventLevel = (float) prediction.getLevel(eventTime);
+
+                Tide tide = new Tide();
+                tide.timestamp = new Date(eventTime);
+                tide.day = dayFormatter.format(tide.timestamp);
+                tide.eventType = isHigh ? Tide.HIGH_TIDE_TAG : Tide.LOW_TIDE_TAG;
+                tide.heightValue = eventLevel;
+                tide.height = String.format(Locale.US, "%.2f ft", eventLevel);
+                events.add(tide);
+            }
+
+            previousLevel = level;
+            level = nextLevel;
+        }
+
+        return events;
+    }
+
+    private Station getStation(String stationId) {
+        if (mStations == null) {
+            mStations = loadStations();
+        }
+        return mStations.get(stationId);
+    }
+
+    private HashMap<String, Station> loadStations() {
+        HashMap<String, Station> stations = new HashMap<>();
+
+        Reader reader = null;
+        try {
+            InputStream inputStream = mContext.getResources().openRawResource(R.raw.tide_constituents);
+            reader = new InputStreamReader(inputStream, "UTF-8");
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            stations = parseBundledStations(builder.toString());
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to load the tide constituents", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // Nothing left to do
+                }
+            }
+        }
+
+        // Published constants fetched earlier take over from the bundled ones
+        DiskCache diskCache = DiskCache.getInstance(mContext);
+        for (String stationId : new ArrayList<>(stations.keySet())) {
+            String harmonics = diskCache.getString(getHarmonicsCacheKey(stationId));
+            String datums = diskCache.getString(getDatumsCacheKey(stationId));
+            if (harmonics == null || datums == null) {
+                continue;
+            }
+
+            try {
+                stations.put(stationId, parsePublishedStation(stations.get(stationId).name, harmonics, datums));
+            } catch (JSONException e) {
+                Log.e(TAG, "Failed to load the published constants for " + stationId, e);
+            }
+        }
+
+        return stations;
+    }
+
+    /**
+     * Parses the bundled constants file.
+     * @return The stations by NOAA id
+     */
+    static HashMap<String, Station> parseBundledStations(String rawData) throws JSONException {
+        HashMap<String, Station> stations = new HashMap<>();
+
+        JSONArray stationArray = new JSONObject(rawData).getJSONArray("stations");
+        for (int i = 0; i < stationArray.length(); i++) {
+            JSONObject stationObject = stationArray.getJSONObject(i);
+            Station station = new Station();
+            station.name = stationObject.getString("name");
+            station.datumOffset = stationObject.getDouble("datumOffset");
+
+            JSONArray constituentArray = stationObject.getJSONArray("constituents");
+            ArrayList<Constituent> constituents = new ArrayList<>();
+            for (int j = 0; j < constituentArray.length(); j++) {
+                JSONObject constituentObject = constituentArray.getJSONObject(j);
+                String name = constituentObject.getString("name");
+                double speed = getSpeed(name);
+                if (Double.isNaN(speed)) {
+                    continue;
+                }
+                constituents.add(new Constituent(name, constituentObject.getDouble("amplitude"), constituentObject.getDouble("phase"), speed));
+            }
+            station.constituents = constituents.toArray(new Constituent[constituents.size()]);
+
+            stations.put(stationObject.getString("id"), station);
+        }
+
+        return stations;
+    }
+
+    /**
+     * Parses a station from NOAA's metadata api, the harcon.json and datums.json responses in english
+     * units. Constituents this predictor has no astronomical arguments for are left out, they are
+     * small at these stations.
+     * @return The station, with levels above mean lower low water
+     */
+    static Station parsePublishedStation(String name, String harmonics, String datums) throws JSONException {
+        ArrayList<Constituent> constituents = new ArrayList<>();
+        JSONArray constituentArray = new JSONObject(harmonics).getJSONArray("HarmonicConstituents");
+        for (int i = 0; i < constituentArray.length(); i++) {
+            JSONObject constituentObject = constituentArray.getJSONObject(i);
+            String constituentName = constituentObject.getString("name");
+            double speed = getSpeed(constituentName);
+            if (Double.isNaN(speed)) {
+                continue;
+            }
+            constituents.add(new Constituent(constituentName, constituentObject.getDouble("amplitude"), constituentObject.getDouble("phase_GMT"), speed));
+        }
+        if (constituents.isEmpty()) {
+            throw new JSONException("No supported constituents");
+        }
+
+        // The constants describe the level around mean sea level, the tide tables are relative to mean lower low water
+        double meanSeaLevel = Double.NaN;
+        double meanLowerLowWater = Double.NaN;
+        JSONArray datumArray = new JSONObject(datums).getJSONArray("datums");
+        for (int i = 0; i < datumArray.length(); i++) {
+            JSONObject datumObject = datumArray.getJSONObject(i);
+            String datumName = datumObject.getString("name");
+            if (datumName.equals("MSL")) {
+                meanSeaLevel = datumObject.getDouble("value");
+            } else if (datumName.equals("MLLW")) {
+                meanLowerLowWater = datumObject.getDouble("value");
+            }
+        }
+        if (Double.isNaN(meanSeaLevel) || Double.isNaN(meanLowerLowWater)) {
+            throw new JSONException("Missing the MSL or MLLW datum");
+        }
+
+        Station station = new Station();
+        station.name = name;
+        station.datumOffset = meanSeaLevel - meanLowerLowWater;
+        station.constituents = constituents.toArray(new Constituent[constituents.size()]);
+        station.published = true;
+        return station;
+    }
+
+    private static String getHarmonicsCacheKey(String stationId) {
+        return "tide_harcon_" + stationId + ".json";
+    }
+
+    private static String getDatumsCacheKey(String stationId) {
+        return "tide_datums_" + stationId + ".json";
+    }
+
+    /**
+     * @return The speed of the constituent in degrees per hour, or NaN if it isn't supported
+     */
+    private static double getSpeed(String name) {
+        switch (name) {
+            case "M2": return 28.9841042;
+            case "S2": return 30.0;
+            case "N2": return 28.4397295;
+            case "K2": return 30.0821373;
+            case "K1": return 15.0410686;
+            case "O1": return 13.9430356;
+            case "P1": return 14.9589314;
+            case "Q1": return 13.3986609;
+            case "M4": return 57.9682084;
+            case "M6": return 86.9523127;
+            default: return Double.NaN;
+        }
+    }
+
+    /**
+     * Gets the mean longitudes driving the tide at a time, in degrees.
+     * @return The solar hour angle, moon, sun, lunar perigee and lunar node longitudes
+     */
+    static double[] getAstronomicalArguments(long time) {
+        double days = (time - J2000_MILLIS) / DAY_MILLIS;
+        double utcHours = ((time % (long) DAY_MILLIS) + (long) DAY_MILLIS) % (long) DAY_MILLIS / HOUR_MILLIS;
+
+        double t = 180.0 + 15.0 * utcHours;
+        double s = 218.3164 + 13.17639648 * days;
+        double h = 280.4661 + 0.98564736 * days;
+        double p = 83.3535 + 0.11140353 * days;
+        double n = 125.0445 - 0.05295377 * days;
+        return new double[] {t, s, h, p, n};
+    }
+
+    /**
+     * Gets the equilibrium argument of a constituent in Schureman's convention.
+     * @param astronomy The arguments from getAstronomicalArguments()
+     * @return The argument in degrees
+     */
+    static double getEquilibriumArgument(String name, double[] astronomy) {
+        double t = astronomy[0];
+        double s = astronomy[1];
+        double h = astronomy[2];
+        double p = astronomy[3];
+
+        switch (name) {
+            case "M2": return 2 * t - 2 * s + 2 * h;
+            case "S2": return 2 * t;
+            case "N2": return 2 * t - 3 * s + 2 * h + p;
+            case "K2": return 2 * t + 2 * h;
+            case "K1": return t + h - 90;
+            case "O1": return t - 2 * s + h + 90;
+            case "P1": return t - h + 90;
+            case "Q1": return t - 3 * s + h + p + 90;
+            case "M4": return 4 * t - 4 * s + 4 * h;
+            case "M6": return 6 * t - 6 * s + 6 * h;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Gets the 18.6 year nodal modulation of a constituent.
+     * @return The amplitude factor and the phase correction in degrees
+     */
+    static double[] getNodalCorrection(String name, double node) {
+        double n = Math.toRadians(node);
+        double m2Factor = 1.0004 - 0.0373 * Math.cos(n) + 0.0002 * Math.cos(2 * n);
+        double m2Phase = -2.14 * Math.sin(n);
+
+        switch (name) {
+            case "M2":
+            case "N2":
+                return new double[] {m2Factor, m2Phase};
+            case "M4":
+                return new double[] {m2Factor * m2Factor, 2 * m2Phase};
+            case "M6":
+                return new double[] {m2Factor * m2Factor * m2Factor, 3 * m2Phase};
+            case "K1":
+                return new double[] {1.006 + 0.115 * Math.cos(n) - 0.009 * Math.cos(2 * n), -8.86 * Math.sin(n) + 0.68 * Math.sin(2 * n)};
+            case "O1":
+            case "Q1":
+                return new double[] {1.0089 + 0.1871 * Math.cos(n) - 0.0147 * Math.cos(2 * n), 10.8 * Math.sin(n) - 1.34 * Math.sin(2 * n)};
+            case "K2":
+                return new double[] {1.0241 + 0.2863 * Math.cos(n) + 0.0083 * Math.cos(2 * n), -17.74 * Math.sin(n) + 0.68 * Math.sin(2 * n)};
+            default:
+                return new double[] {1.0, 0.0};
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package com.nucc.hackwinds.tasks;
 
-import android.os.AsyncTask;
+import android.content.Context;
 
 import com.appspot.mpitester_13.station.Station;
-import com.google.api.client.extensions.android.http.AndroidHttp;
-import com.google.api.client.json.gson.GsonFactory;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
 
 
-public class FetchBuoyActiveTask extends AsyncTask<String, Void, Boolean> {
+public class FetchBuoyActiveTask extends FetchTask<Boolean> {
 
     public interface BuoyActiveTaskListener {
         public void onFinished(Boolean active);
@@ -15,41 +14,43 @@ public class FetchBuoyActiveTask extends AsyncTask<String, Void, Boolean> {
 
     private final BuoyActiveTaskListener mListener;
     private Station mStationService;
+    private HttpRevalidator mRevalidator;
+    private String mStationId;
 
-    public FetchBuoyActiveTask(BuoyActiveTaskListener taskListener) {
+    public FetchBuoyActiveTask(Context context, BuoyActiveTaskListener taskListener) {
         mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
 
-        // Set up the service
-        Station.Builder serviceBuilder = new Station.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(),null);
-        mStationService = serviceBuilder.build();
+        // Use the shared service so every request reuses the same transport and connection pool
+        mStationService = ServiceProvider.getStationService();
+    }
+
+    public void execute(String stationId) {
+        mStationId = stationId;
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        return buoyRequestKey(mStationId, "STATUS");
     }
 
     @Override
-    protected Boolean doInBackground(String... strings) {
+    protected Boolean doInBackground() {
         try {
-            return mStationService.info(strings[0]).setKey(Credentials.BUOYFINDER_API_KEY).execute().getActive();
+            return mRevalidator.execute(mStationService.info(mStationId).setKey(Credentials.BUOYFINDER_API_KEY)).getActive();
         } catch (Exception e) {
             return false;
         }
     }
 
     @Override
-    protected void onPostExecute(Boolean result) {
-        super.onPostExecute(result);
-
-        // In onPostExecute we check if the listener is valid
+    protected void onFinished(Boolean result) {
+        // Check if the listener is valid
         if(mListener != null) {
 
             // And if it is we call the callback function on it.
             mListener.onFinished(result);
         }
     }
-
-    @Override
-    protected void onPreExecute() {
-    }
-
-    @Override
-    protected void onProgressUpdate(Void... values) {
-    }
 }
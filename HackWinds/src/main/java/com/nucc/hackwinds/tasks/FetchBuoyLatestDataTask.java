@@ -1,55 +1,56 @@
 package com.nucc.hackwinds.tasks;
 
-import android.os.AsyncTask;
+import android.content.Context;
 
 import com.appspot.mpitester_13.station.Station;
 import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
-import com.google.api.client.extensions.android.http.AndroidHttp;
-import com.google.api.client.json.gson.GsonFactory;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
 
 
-public class FetchBuoyLatestDataTask extends AsyncTask <String, Void, ApiApiMessagesDataMessage> {
+public class FetchBuoyLatestDataTask extends FetchTask<ApiApiMessagesDataMessage> {
     public interface BuoyLatestDataTaskListener {
         public void onFinished(ApiApiMessagesDataMessage data);
     }
 
     private final BuoyLatestDataTaskListener mListener;
     private Station mStationService;
+    private HttpRevalidator mRevalidator;
+    private String mStationId;
 
-    public FetchBuoyLatestDataTask(BuoyLatestDataTaskListener taskListener) {
+    public FetchBuoyLatestDataTask(Context context, BuoyLatestDataTaskListener taskListener) {
         mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
 
-        // Set up the service
-        Station.Builder serviceBuilder = new Station.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(),null);
-        mStationService = serviceBuilder.build();
+        // Use the shared service so every request reuses the same transport and connection pool
+        mStationService = ServiceProvider.getStationService();
+    }
+
+    public void execute(String stationId) {
+        mStationId = stationId;
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        return buoyRequestKey(mStationId, "LATEST");
     }
 
     @Override
-    protected ApiApiMessagesDataMessage doInBackground(String... strings) {
+    protected ApiApiMessagesDataMessage doInBackground() {
         try {
-            return mStationService.data("ENGLISH", strings[0]).setKey(Credentials.BUOYFINDER_API_KEY).execute();
+            return mRevalidator.execute(mStationService.data("ENGLISH", mStationId).setKey(Credentials.BUOYFINDER_API_KEY));
         } catch (Exception e) {
             return null;
         }
     }
 
     @Override
-    protected void onPostExecute(ApiApiMessagesDataMessage result) {
-        super.onPostExecute(result);
-
-        // In onPostExecute we check if the listener is valid
+    protected void onFinished(ApiApiMessagesDataMessage result) {
+        // Check if the listener is valid
         if(mListener != null) {
 
             // And if it is we call the callback function on it.
             mListener.onFinished(result);
         }
     }
-
-    @Override
-    protected void onPreExecute() {
-    }
-
-    @Override
-    protected void onProgressUpdate(Void... values) {
-    }
 }
@@ -1,55 +1,67 @@
 package com.nucc.hackwinds.tasks;
 
-import android.os.AsyncTask;
+import android.content.Context;
 
 import com.appspot.mpitester_13.station.Station;
 import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
-import com.google.api.client.extensions.android.http.AndroidHttp;
-import com.google.api.client.json.gson.GsonFactory;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
+import com.nucc.hackwinds.utilities.WaveSpectraAnalyzer;
 
 
-public class FetchBuoySpectraDataTask extends AsyncTask <String, Void, ApiApiMessagesDataMessage> {
+public class FetchBuoySpectraDataTask extends FetchTask<ApiApiMessagesDataMessage> {
     public interface BuoySpectraDataTaskListener {
         public void onFinished(ApiApiMessagesDataMessage data);
     }
 
     private final BuoySpectraDataTaskListener mListener;
     private Station mStationService;
+    private HttpRevalidator mRevalidator;
+    private String mStationId;
 
-    public FetchBuoySpectraDataTask(BuoySpectraDataTaskListener taskListener) {
+    public FetchBuoySpectraDataTask(Context context, BuoySpectraDataTaskListener taskListener) {
         mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
 
-        // Set up the service
-        Station.Builder serviceBuilder = new Station.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(),null);
-        mStationService = serviceBuilder.build();
+        // Use the shared service so every request reuses the same transport and connection pool
+        mStationService = ServiceProvider.getStationService();
+    }
+
+    public void execute(String stationId) {
+        mStationId = stationId;
+        submit();
     }
 
     @Override
-    protected ApiApiMessagesDataMessage doInBackground(String... strings) {
+    protected String getRequestKey() {
+        return buoyRequestKey(mStationId, "SPECTRA");
+    }
+
+    @Override
+    protected ApiApiMessagesDataMessage doInBackground() {
+        ApiApiMessagesDataMessage data;
         try {
-            return mStationService.data("ENGLISH", strings[0]).setKey(Credentials.BUOYFINDER_API_KEY).setDataType("SPECTRA").execute();
+            data = mRevalidator.execute(mStationService.data("ENGLISH", mStationId).setKey(Credentials.BUOYFINDER_API_KEY).setDataType("SPECTRA"));
         } catch (Exception e) {
             return null;
         }
+
+        // Work out the swell components from the raw spectra when the station didn't send any
+        if (data != null && data.getWaveSpectra() != null &&
+                (data.getSwellComponents() == null || data.getSwellComponents().isEmpty())) {
+            // The reading is in english units, but the spectral energy may not have been converted with it
+            WaveSpectraAnalyzer analyzer = new WaveSpectraAnalyzer(data.getWaveSpectra(), WaveSpectraAnalyzer.isEnergyInFeet(data, true));
+            data.setSwellComponents(analyzer.getSwellComponents(true));
+        }
+        return data;
     }
 
     @Override
-    protected void onPostExecute(ApiApiMessagesDataMessage result) {
-        super.onPostExecute(result);
-
-        // In onPostExecute we check if the listener is valid
+    protected void onFinished(ApiApiMessagesDataMessage result) {
+        // Check if the listener is valid
         if(mListener != null) {
 
             // And if it is we call the callback function on it.
             mListener.onFinished(result);
         }
     }
-
-    @Override
-    protected void onPreExecute() {
-    }
-
-    @Override
-    protected void onProgressUpdate(Void... values) {
-    }
 }
@@ -0,0 +1,129 @@
+package com.nucc.hackwinds.tasks;
+
+import android.content.Context;
+
+import com.appspot.mpitester_13.station.Station;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+public class FetchBuoysActiveTask extends FetchTask<HashMap<String, Boolean>> {
+
+    public interface BuoysActiveTaskListener {
+        public void onFinished(HashMap<String, Boolean> activeStatuses);
+    }
+
+    // How long to wait on the whole batch before giving up on the stragglers
+    private static final long STATUS_DEADLINE_SECONDS = 10;
+
+    private static ThreadPoolExecutor mStatusExecutor;
+
+    private final BuoysActiveTaskListener mListener;
+    private Station mStationService;
+    private HttpRevalidator mRevalidator;
+    private String[] mStationIds;
+
+    public FetchBuoysActiveTask(Context context, BuoysActiveTaskListener taskListener) {
+        mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
+
+        // Use the shared service so every request reuses the same transport and connection pool
+        mStationService = ServiceProvider.getStationService();
+    }
+
+    /**
+     * One thread per station, but no more than the connection pool keeps alive, so every connection
+     * a burst opens is reused by the next one.
+     * @param stationCount The number of stations checked at once
+     * @return The number of status requests to run at the same time
+     */
+    static int getStatusPoolSize(int stationCount) {
+        return Math.max(1, Math.min(stationCount, ServiceProvider.MAX_CONNECTIONS_PER_HOST));
+    }
+
+    private static synchronized ExecutorService getStatusExecutor(int stationCount) {
+        int poolSize = getStatusPoolSize(stationCount);
+        if (mStatusExecutor == null) {
+            mStatusExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(poolSize);
+        } else if (mStatusExecutor.getCorePoolSize() < poolSize) {
+            // Grow the maximum first, it can't be below the core size
+            mStatusExecutor.setMaximumPoolSize(poolSize);
+            mStatusExecutor.setCorePoolSize(poolSize);
+        }
+        return mStatusExecutor;
+    }
+
+    public void execute(String... stationIds) {
+        mStationIds = stationIds;
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        StringBuilder keyBuilder = new StringBuilder("active");
+        for (String stationId : mStationIds) {
+            keyBuilder.append('/').append(stationId);
+        }
+        return keyBuilder.toString();
+    }
+
+    @Override
+    protected HashMap<String, Boolean> doInBackground() {
+        String[] stationIds = mStationIds;
+
+        // Fire every status request at once so the whole batch takes about one round trip
+        List<Callable<Boolean>> statusRequests = new ArrayList<>();
+        for (final String stationId : stationIds) {
+            statusRequests.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return mRevalidator.execute(mStationService.info(stationId).setKey(Credentials.BUOYFINDER_API_KEY)).getActive();
+                }
+            });
+        }
+
+        List<Future<Boolean>> statusResults;
+        try {
+            statusResults = getStatusExecutor(stationIds.length).invokeAll(statusRequests, STATUS_DEADLINE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return null;
+        }
+
+        // Anything that failed or missed the deadline is treated as inactive
+        HashMap<String, Boolean> activeStatuses = new HashMap<>();
+        for (int i = 0; i < stationIds.length; i++) {
+            Boolean active = false;
+            try {
+                Future<Boolean> statusResult = statusResults.get(i);
+                if (!statusResult.isCancelled()) {
+                    active = statusResult.get();
+                }
+            } catch (Exception e) {
+                active = false;
+            }
+
+            activeStatuses.put(stationIds[i], active != null && active);
+        }
+
+        return activeStatuses;
+    }
+
+    @Override
+    protected void onFinished(HashMap<String, Boolean> result) {
+        // Check if the listener is valid
+        if(mListener != null) {
+
+            // And if it is we call the callback function on it.
+            mListener.onFinished(result);
+        }
+    }
+}
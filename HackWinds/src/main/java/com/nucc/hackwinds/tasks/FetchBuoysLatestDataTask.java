@@ -0,0 +1,162 @@
+package com.nucc.hackwinds.tasks;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.appspot.mpitester_13.station.Station;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+public class FetchBuoysLatestDataTask extends FetchTask<HashMap<String, ApiApiMessagesDataMessage>> {
+
+    public interface BuoysLatestDataTaskListener {
+        /**
+         * Called on the main thread as soon as each station's reading comes back, before the batch is done.
+         * @param stationId The station that finished
+         * @param data The latest reading, or null if the station failed
+         */
+        public void onStationFinished(String stationId, ApiApiMessagesDataMessage data);
+
+        public void onFinished(HashMap<String, ApiApiMessagesDataMessage> latestData);
+    }
+
+    // How long to wait on the whole batch before giving up on the stragglers
+    private static final long DATA_DEADLINE_SECONDS = 15;
+
+    // Data responses are a lot bigger than status checks, so don't open a socket for every station at once
+    private static final int MAX_CONCURRENT_DATA_REQUESTS = 3;
+
+    private static ExecutorService mDataExecutor;
+    private static Handler mMainHandler;
+
+    private final BuoysLatestDataTaskListener mListener;
+    private Station mStationService;
+    private HttpRevalidator mRevalidator;
+    private String[] mStationIds;
+
+    public FetchBuoysLatestDataTask(Context context, BuoysLatestDataTaskListener taskListener) {
+        mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
+
+        // Use the shared service so every request reuses the same transport and connection pool
+        mStationService = ServiceProvider.getStationService();
+    }
+
+    private static synchronized ExecutorService getDataExecutor() {
+        if (mDataExecutor == null) {
+            mDataExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_DATA_REQUESTS);
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mDataExecutor;
+    }
+
+    public void execute(String... stationIds) {
+        mStationIds = stationIds;
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        StringBuilder keyBuilder = new StringBuilder("latest");
+        for (String stationId : mStationIds) {
+            keyBuilder.append('/').append(stationId);
+        }
+        return keyBuilder.toString();
+    }
+
+    @Override
+    protected HashMap<String, ApiApiMessagesDataMessage> doInBackground() {
+        String[] stationIds = mStationIds;
+        CompletionService<Object[]> completionService = new ExecutorCompletionService<>(getDataExecutor());
+
+        List<Future<Object[]>> dataRequests = new ArrayList<>();
+        for (final String stationId : stationIds) {
+            dataRequests.add(completionService.submit(new Callable<Object[]>() {
+                @Override
+                public Object[] call() throws Exception {
+                    ApiApiMessagesDataMessage data;
+                    try {
+                        data = mRevalidator.execute(mStationService.data("ENGLISH", stationId).setKey(Credentials.BUOYFINDER_API_KEY));
+                    } catch (Exception e) {
+                        data = null;
+                    }
+                    return new Object[] {stationId, data};
+                }
+            }));
+        }
+
+        // Hand each station back the moment it lands instead of waiting on the slowest one
+        HashMap<String, ApiApiMessagesDataMessage> latestData = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DATA_DEADLINE_SECONDS);
+        try {
+            for (int i = 0; i < stationIds.length; i++) {
+                long remaining = deadline - System.nanoTime();
+                Future<Object[]> dataResult = remaining > 0 ? completionService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (dataResult == null) {
+                    break;
+                }
+
+                Object[] stationResult = dataResult.get();
+                String stationId = (String) stationResult[0];
+                ApiApiMessagesDataMessage data = (ApiApiMessagesDataMessage) stationResult[1];
+                if (data != null) {
+                    latestData.put(stationId, data);
+                }
+                postStationFinished(stationId, data);
+            }
+        } catch (Exception e) {
+            // Interrupted, deliver whatever made it in
+        } finally {
+            // Anything still running missed the deadline
+            for (Future<Object[]> dataRequest : dataRequests) {
+                dataRequest.cancel(true);
+            }
+        }
+
+        return latestData;
+    }
+
+    private void postStationFinished(final String stationId, final ApiApiMessagesDataMessage data) {
+        // Callers coalesced onto this request are waiting on the same stations, so they get them too
+        final List<FetchTask<?>> subscribers = FetchScheduler.getInstance().getSubscribers(this);
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (FetchTask<?> subscriber : subscribers) {
+                    if (!(subscriber instanceof FetchBuoysLatestDataTask) || subscriber.isCancelled()) {
+                        continue;
+                    }
+
+                    BuoysLatestDataTaskListener listener = ((FetchBuoysLatestDataTask) subscriber).mListener;
+                    if (listener != null) {
+                        listener.onStationFinished(stationId, data);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onFinished(HashMap<String, ApiApiMessagesDataMessage> result) {
+        // Check if the listener is valid
+        if(mListener != null) {
+
+            // And if it is we call the callback function on it.
+            mListener.onFinished(result);
+        }
+    }
+}
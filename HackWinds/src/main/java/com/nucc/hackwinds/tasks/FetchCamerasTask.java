@@ -1,14 +1,13 @@
 package com.nucc.hackwinds.tasks;
 
-import android.os.AsyncTask;
+import android.content.Context;
 
 import com.appspot.hackwinds.hackwinds.Hackwinds;
 import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraLocationsMessage;
-import com.google.api.client.extensions.android.http.AndroidHttp;
-import com.google.api.client.json.gson.GsonFactory;
+import com.nucc.hackwinds.utilities.HttpRevalidator;
 
 
-public class FetchCamerasTask extends AsyncTask<Boolean, Void, MessagesCameraCameraLocationsMessage> {
+public class FetchCamerasTask extends FetchTask<MessagesCameraCameraLocationsMessage> {
 
     public interface CameraTaskListener {
         public void onFinished(MessagesCameraCameraLocationsMessage cameraLocations);
@@ -16,41 +15,43 @@ public class FetchCamerasTask extends AsyncTask<Boolean, Void, MessagesCameraCam
 
     private final CameraTaskListener mListener;
     private Hackwinds mCameraService;
+    private HttpRevalidator mRevalidator;
+    private Boolean mPremium;
 
-    public FetchCamerasTask(CameraTaskListener taskListener) {
+    public FetchCamerasTask(Context context, CameraTaskListener taskListener) {
         mListener = taskListener;
+        mRevalidator = HttpRevalidator.getInstance(context);
 
-        // Set up the service
-        Hackwinds.Builder serviceBuilder = new Hackwinds.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(),null);
-        mCameraService = serviceBuilder.build();
+        // Use the shared service so every request reuses the same transport and connection pool
+        mCameraService = ServiceProvider.getHackwindsService();
+    }
+
+    public void execute(Boolean premium) {
+        mPremium = premium;
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        return "cameras/" + mPremium;
     }
 
     @Override
-    protected MessagesCameraCameraLocationsMessage doInBackground(Boolean... premiums) {
+    protected MessagesCameraCameraLocationsMessage doInBackground() {
         try {
-            return mCameraService.camera().cameras(premiums[0]).setKey(Credentials.HACKWINDS_API_KEY).execute();
+            return mRevalidator.execute(mCameraService.camera().cameras(mPremium).setKey(Credentials.HACKWINDS_API_KEY));
         } catch (Exception e) {
             return null;
         }
     }
 
     @Override
-    protected void onPostExecute(MessagesCameraCameraLocationsMessage result) {
-        super.onPostExecute(result);
-
-        // In onPostExecute we check if the listener is valid
+    protected void onFinished(MessagesCameraCameraLocationsMessage result) {
+        // Check if the listener is valid
         if(mListener != null) {
 
             // And if it is we call the callback function on it.
             mListener.onFinished(result);
         }
     }
-
-    @Override
-    protected void onPreExecute() {
-    }
-
-    @Override
-    protected void onProgressUpdate(Void... values) {
-    }
 }
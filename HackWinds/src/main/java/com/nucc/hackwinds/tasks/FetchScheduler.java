@@ -0,0 +1,245 @@
+package com.nucc.hackwinds.tasks;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class FetchScheduler {
+
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+
+    // Groups map fetches to the tab that is waiting on them
+    public static final String GROUP_LIVE = "live";
+    public static final String GROUP_FORECAST = "forecast";
+    public static final String GROUP_BUOY = "buoy";
+    public static final String GROUP_TIDE = "tide";
+
+    private static final String TAG = "FetchScheduler";
+    private static final int MAX_CONCURRENT_FETCHES = 4;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    private static FetchScheduler mInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler;
+    private final HashMap<String, FetchRequest> mInFlightRequests;
+    private long mSequence = 0;
+    private String mForegroundGroup;
+
+    // Counters so we can see how much network the coalescing actually saves
+    private final AtomicInteger mSubmittedFetchCount = new AtomicInteger();
+    private final AtomicInteger mExecutedFetchCount = new AtomicInteger();
+    private final AtomicInteger mCoalescedFetchCount = new AtomicInteger();
+
+    public static synchronized FetchScheduler getInstance() {
+        if (mInstance == null) {
+            mInstance = new FetchScheduler();
+        }
+        return mInstance;
+    }
+
+    private FetchScheduler() {
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mInFlightRequests = new HashMap<>();
+
+        // The queue orders waiting requests by priority, so the visible tab is served first
+        mExecutor = new ThreadPoolExecutor(MAX_CONCURRENT_FETCHES, MAX_CONCURRENT_FETCHES,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the group of the currently visible tab. Fetches submitted for that group jump ahead of the rest.
+     * @param group The group that is in the foreground, or null for none
+     */
+    public synchronized void setForegroundGroup(String group) {
+        mForegroundGroup = group;
+    }
+
+    public synchronized <T> void submit(FetchTask<T> task) {
+        mSubmittedFetchCount.incrementAndGet();
+
+        int priority = task.getPriority();
+        if (task.getGroup() != null && task.getGroup().equals(mForegroundGroup)) {
+            priority = PRIORITY_HIGH;
+        }
+
+        String key = task.getRequestKey();
+        FetchRequest request = mInFlightRequests.get(key);
+        if (request != null) {
+            // The same fetch is already in flight so just wait on its result
+            request.subscribers.add(task);
+            int coalescedCount = mCoalescedFetchCount.incrementAndGet();
+            Log.d(TAG, "Coalesced " + key + ", " + coalescedCount + " network calls saved so far");
+
+            if (!request.started && priority > request.priority) {
+                // Requeue so the raised priority takes effect
+                if (mExecutor.getQueue().remove(request)) {
+                    request.priority = priority;
+                    mExecutor.execute(request);
+                }
+            }
+            return;
+        }
+
+        request = new FetchRequest(key, priority, mSequence++);
+        request.subscribers.add(task);
+        mInFlightRequests.put(key, request);
+        mExecutor.execute(request);
+    }
+
+    /**
+     * Cancels every pending fetch owned by the given owner. Requests that nobody is waiting on anymore
+     * are dropped from the queue, and results of requests already running are not delivered.
+     * @param owner The owner the fetches were submitted with
+     */
+    public synchronized void cancel(Object owner) {
+        if (owner == null) {
+            return;
+        }
+
+        Iterator<FetchRequest> requestIterator = mInFlightRequests.values().iterator();
+        while (requestIterator.hasNext()) {
+            FetchRequest request = requestIterator.next();
+
+            Iterator<FetchTask<?>> taskIterator = request.subscribers.iterator();
+            while (taskIterator.hasNext()) {
+                FetchTask<?> task = taskIterator.next();
+                if (task.getOwner() == owner) {
+                    task.cancel();
+                    taskIterator.remove();
+                }
+            }
+
+            if (request.subscribers.isEmpty() && !request.started) {
+                mExecutor.getQueue().remove(request);
+                requestIterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The number of fetches submitted to the scheduler
+     */
+    public int getSubmittedFetchCount() {
+        return mSubmittedFetchCount.get();
+    }
+
+    /**
+     * @return The number of fetches that actually went out over the network
+     */
+    public int getExecutedFetchCount() {
+        return mExecutedFetchCount.get();
+    }
+
+    /**
+     * @return The number of fetches that were served by a request already in flight
+     */
+    public int getCoalescedFetchCount() {
+        return mCoalescedFetchCount.get();
+    }
+
+    /**
+     * Lets a running task reach every task that was coalesced onto its request, for results it hands out before it finishes.
+     * @param task The task doing the work
+     * @return Every task waiting on the same request, including the given one
+     */
+    synchronized ArrayList<FetchTask<?>> getSubscribers(FetchTask<?> task) {
+        FetchRequest request = mInFlightRequests.get(task.getRequestKey());
+        if (request == null || !request.subscribers.contains(task)) {
+            ArrayList<FetchTask<?>> subscribers = new ArrayList<>();
+            subscribers.add(task);
+            return subscribers;
+        }
+        return new ArrayList<>(request.subscribers);
+    }
+
+    private synchronized FetchTask<?> startRequest(FetchRequest request) {
+        request.started = true;
+        for (FetchTask<?> task : request.subscribers) {
+            if (!task.isCancelled()) {
+                mExecutedFetchCount.incrementAndGet();
+                return task;
+            }
+        }
+
+        // Nobody is waiting on this anymore
+        mInFlightRequests.remove(request.key);
+        return null;
+    }
+
+    private synchronized ArrayList<FetchTask<?>> finishRequest(FetchRequest request) {
+        mInFlightRequests.remove(request.key);
+        return new ArrayList<>(request.subscribers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void deliver(FetchTask<T> task, Object result) {
+        if (!task.isCancelled()) {
+            task.onFinished((T) result);
+        }
+    }
+
+    private class FetchRequest implements Runnable, Comparable<FetchRequest> {
+        final String key;
+        final long sequence;
+        final ArrayList<FetchTask<?>> subscribers;
+        int priority;
+        boolean started = false;
+
+        FetchRequest(String key, int priority, long sequence) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.subscribers = new ArrayList<>();
+        }
+
+        @Override
+        public void run() {
+            FetchTask<?> worker = startRequest(this);
+            if (worker == null) {
+                return;
+            }
+
+            Object result;
+            try {
+                result = worker.doInBackground();
+            } catch (Exception e) {
+                // Every subscriber gets a failed result, keep the reason for debugging
+                Log.e(TAG, "Fetch " + key + " failed", e);
+                result = null;
+            }
+
+            final Object finalResult = result;
+            final ArrayList<FetchTask<?>> tasks = finishRequest(this);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (FetchTask<?> task : tasks) {
+                        deliver(task, finalResult);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(FetchRequest other) {
+            // Higher priority first, then first come first served
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.nucc.hackwinds.tasks;
+
+
+public abstract class FetchTask<T> {
+
+    private int mPriority = FetchScheduler.PRIORITY_NORMAL;
+    private String mGroup;
+    private Object mOwner;
+    private volatile boolean mCancelled = false;
+
+    /**
+     * Identifies the work this task does. Tasks with the same key that are in flight at the
+     * same time share a single network request and its result.
+     * @return The request key
+     */
+    protected abstract String getRequestKey();
+
+    /**
+     * Does the actual fetch. Called on one of the scheduler's worker threads.
+     * @return The result of the fetch, or null if it failed
+     */
+    protected abstract T doInBackground();
+
+    /**
+     * Delivers the result. Called on the main thread unless the task was cancelled.
+     * @param result The result of the fetch, or null if it failed
+     */
+    protected abstract void onFinished(T result);
+
+    public FetchTask<T> setPriority(int priority) {
+        mPriority = priority;
+        return this;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public FetchTask<T> setGroup(String group) {
+        mGroup = group;
+        return this;
+    }
+
+    public String getGroup() {
+        return mGroup;
+    }
+
+    public FetchTask<T> setOwner(Object owner) {
+        mOwner = owner;
+        return this;
+    }
+
+    public Object getOwner() {
+        return mOwner;
+    }
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Builds the request key for a buoy fetch. Every caller asking for the same data type from
+     * the same station at the same time ends up sharing one request.
+     * @param stationId The station being fetched
+     * @param dataType The kind of data being fetched from the station
+     * @return The request key
+     */
+    protected static String buoyRequestKey(String stationId, String dataType) {
+        return "buoy/" + stationId + "/" + dataType;
+    }
+
+    protected void submit() {
+        FetchScheduler.getInstance().submit(this);
+    }
+}
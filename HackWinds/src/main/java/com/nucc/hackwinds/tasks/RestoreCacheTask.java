@@ -0,0 +1,53 @@
+package com.nucc.hackwinds.tasks;
+
+
+/**
+ * Reads a model's cached data back in on one of the scheduler's worker threads, so a cold start
+ * doesn't parse the cache on the main thread.
+ */
+public class RestoreCacheTask<T> extends FetchTask<T> {
+
+    public interface RestoreCacheTaskListener<T> {
+        /**
+         * Reads and parses the cached data. Called on a worker thread.
+         * @return The restored data, or null if nothing usable was cached
+         */
+        public T restore();
+
+        /**
+         * Called on the main thread once the restore is done.
+         * @param restored The restored data, or null if nothing usable was cached
+         */
+        public void onRestored(T restored);
+    }
+
+    private final RestoreCacheTaskListener<T> mListener;
+    private final String mCacheKey;
+
+    public RestoreCacheTask(String cacheKey, RestoreCacheTaskListener<T> taskListener) {
+        mCacheKey = cacheKey;
+        mListener = taskListener;
+
+        // Reading the disk is quicker than any fetch, and the fetches wait on it anyway
+        setPriority(FetchScheduler.PRIORITY_HIGH);
+    }
+
+    public void execute() {
+        submit();
+    }
+
+    @Override
+    protected String getRequestKey() {
+        return "restore/" + mCacheKey;
+    }
+
+    @Override
+    protected T doInBackground() {
+        return mListener.restore();
+    }
+
+    @Override
+    protected void onFinished(T result) {
+        mListener.onRestored(result);
+    }
+}
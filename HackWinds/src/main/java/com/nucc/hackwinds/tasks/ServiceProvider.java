@@ -0,0 +1,79 @@
+package com.nucc.hackwinds.tasks;
+
+import com.appspot.hackwinds.hackwinds.Hackwinds;
+import com.appspot.mpitester_13.station.Station;
+import com.google.api.client.extensions.android.http.AndroidHttp;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+
+
+public class ServiceProvider {
+
+    // HttpURLConnection only keeps 5 idle connections per host by default, fewer than the buoy stations
+    // checked in one burst. The pool is shared by the whole process and sized from http.maxConnections
+    // when it's first used, so it is raised before any connection goes out.
+    static final int MAX_CONNECTIONS_PER_HOST = 8;
+    private static final String MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    private static HttpTransport mTransport;
+    private static JsonFactory mJsonFactory;
+    private static Station mStationService;
+    private static Hackwinds mHackwindsService;
+
+    /**
+     * Raises the per host connection pool so a burst of requests can all be kept alive. Call this
+     * before the app opens its first connection, later calls have no effect on the pool.
+     */
+    public static synchronized void configureConnectionPool() {
+        int maxConnections = 0;
+        try {
+            maxConnections = Integer.parseInt(System.getProperty(MAX_CONNECTIONS_PROPERTY, "0"));
+        } catch (NumberFormatException e) {
+            // Treat it as unset
+        }
+
+        if (maxConnections < MAX_CONNECTIONS_PER_HOST) {
+            System.setProperty(MAX_CONNECTIONS_PROPERTY, String.valueOf(MAX_CONNECTIONS_PER_HOST));
+        }
+    }
+
+    /**
+     * Gets the transport shared by every api client. It is thread safe and reuses pooled connections.
+     * @return The shared http transport
+     */
+    public static synchronized HttpTransport getTransport() {
+        if (mTransport == null) {
+            configureConnectionPool();
+            mTransport = AndroidHttp.newCompatibleTransport();
+        }
+        return mTransport;
+    }
+
+    /**
+     * Gets the json factory shared by every api client and cache.
+     * @return The shared json factory
+     */
+    public static synchronized JsonFactory getJsonFactory() {
+        if (mJsonFactory == null) {
+            mJsonFactory = GsonFactory.getDefaultInstance();
+        }
+        return mJsonFactory;
+    }
+
+    public static synchronized Station getStationService() {
+        if (mStationService == null) {
+            Station.Builder serviceBuilder = new Station.Builder(getTransport(), getJsonFactory(), null);
+            mStationService = serviceBuilder.build();
+        }
+        return mStationService;
+    }
+
+    public static synchronized Hackwinds getHackwindsService() {
+        if (mHackwindsService == null) {
+            Hackwinds.Builder serviceBuilder = new Hackwinds.Builder(getTransport(), getJsonFactory(), null);
+            mHackwindsService = serviceBuilder.build();
+        }
+        return mHackwindsService;
+    }
+}
@@ -10,6 +10,7 @@ public class BuoyDataContainer {
 
     public String buoyID;
     public ApiApiMessagesDataMessage buoyData;
+    public ApiApiMessagesDataMessage latestBuoyData;
     public int updateInterval = 60;
     public Boolean active = false;
     public Boolean statusFetched = false;
@@ -0,0 +1,70 @@
+package com.nucc.hackwinds.types;
+
+/**
+ * A range of past buoy readings for one station, stored column by column in time order. Values a
+ * reading didn't report are NaN.
+ */
+public class BuoyHistorySeries {
+
+    public static final int WAVE_HEIGHT = 0;
+    public static final int PERIOD = 1;
+    public static final int DIRECTION = 2;
+    public static final int WATER_TEMPERATURE = 3;
+    public static final int AIR_TEMPERATURE = 4;
+    public static final int FIELD_COUNT = 5;
+
+    private final String mStationId;
+    private final long[] mTimes;
+    private final double[][] mValues;
+
+    /**
+     * @param stationId The station the readings came from
+     * @param times The time of each reading in milliseconds, ascending
+     * @param values The values of each field, indexed by field then reading
+     */
+    public BuoyHistorySeries(String stationId, long[] times, double[][] values) {
+        mStationId = stationId;
+        mTimes = times;
+        mValues = values;
+    }
+
+    public String getStationId() {
+        return mStationId;
+    }
+
+    public int size() {
+        return mTimes.length;
+    }
+
+    public boolean isEmpty() {
+        return mTimes.length == 0;
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    public double getValue(int field, int index) {
+        return mValues[field][index];
+    }
+
+    public double getWaveHeight(int index) {
+        return mValues[WAVE_HEIGHT][index];
+    }
+
+    public double getPeriod(int index) {
+        return mValues[PERIOD][index];
+    }
+
+    public double getDirection(int index) {
+        return mValues[DIRECTION][index];
+    }
+
+    public double getWaterTemperature(int index) {
+        return mValues[WATER_TEMPERATURE][index];
+    }
+
+    public double getAirTemperature(int index) {
+        return mValues[AIR_TEMPERATURE][index];
+    }
+}
@@ -44,6 +44,10 @@ public class Forecast {
     }
 
     public String getConditionSummary() {
+        return getConditionSummary(minimumBreakingHeight, maximumBreakingHeight, windCompassDirection, windSpeed);
+    }
+
+    public static String getConditionSummary(double minimumBreakingHeight, double maximumBreakingHeight, String windCompassDirection, double windSpeed) {
         return String.format(Locale.US, "%d - %d ft, Wind %s %d mph", (int)minimumBreakingHeight, (int)maximumBreakingHeight, windCompassDirection, (int)windSpeed);
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.nucc.hackwinds.types;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read only view of one day of a forecast series. Nothing is copied, the forecast for a row is only
+ * created the first time it is asked for. Lists that redraw rows often should read the values
+ * through the accessors below instead, they go straight to the series without creating anything.
+ */
+public class ForecastDayView extends AbstractList<Forecast> implements RandomAccess {
+
+    private final ForecastSeries mSeries;
+    private final int mStartIndex;
+    private final Forecast[] mForecasts;
+
+    public ForecastDayView(ForecastSeries series, int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex > series.size() || startIndex > endIndex) {
+            throw new IndexOutOfBoundsException("Invalid day range " + startIndex + " to " + endIndex);
+        }
+
+        mSeries = series;
+        mStartIndex = startIndex;
+        mForecasts = new Forecast[endIndex - startIndex];
+    }
+
+    @Override
+    public Forecast get(int index) {
+        Forecast forecast = mForecasts[index];
+        if (forecast == null) {
+            forecast = mSeries.getForecast(mStartIndex + index);
+            mForecasts[index] = forecast;
+        }
+        return forecast;
+    }
+
+    @Override
+    public int size() {
+        return mForecasts.length;
+    }
+
+    public String getTime(int index) {
+        return mSeries.getTime(toSeriesIndex(index));
+    }
+
+    public String getShortTime(int index) {
+        return mSeries.getShortTime(toSeriesIndex(index));
+    }
+
+    public String getTwentyFourHourTime(int index) {
+        return mSeries.getTwentyFourHourTime(toSeriesIndex(index));
+    }
+
+    public double getMinimumBreakingHeight(int index) {
+        return mSeries.getMinimumBreakingHeight(toSeriesIndex(index));
+    }
+
+    public double getMaximumBreakingHeight(int index) {
+        return mSeries.getMaximumBreakingHeight(toSeriesIndex(index));
+    }
+
+    public double getWindSpeed(int index) {
+        return mSeries.getWindSpeed(toSeriesIndex(index));
+    }
+
+    public String getWindCompassDirection(int index) {
+        return mSeries.getWindCompassDirection(toSeriesIndex(index));
+    }
+
+    public double getSwellHeight(int component, int index) {
+        return mSeries.getSwellHeight(component, toSeriesIndex(index));
+    }
+
+    public double getSwellPeriod(int component, int index) {
+        return mSeries.getSwellPeriod(component, toSeriesIndex(index));
+    }
+
+    public double getSwellDirection(int component, int index) {
+        return mSeries.getSwellDirection(component, toSeriesIndex(index));
+    }
+
+    public String getSwellCompassDirection(int component, int index) {
+        return mSeries.getSwellCompassDirection(component, toSeriesIndex(index));
+    }
+
+    private int toSeriesIndex(int index) {
+        if (index < 0 || index >= mForecasts.length) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mForecasts.length);
+        }
+        return mStartIndex + index;
+    }
+
+    /**
+     * @return The index of the first forecast of the day in the backing series
+     */
+    public int getStartIndex() {
+        return mStartIndex;
+    }
+
+    public ForecastSeries getSeries() {
+        return mSeries;
+    }
+}
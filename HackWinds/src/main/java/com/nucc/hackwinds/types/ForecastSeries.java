@@ -0,0 +1,564 @@
+package com.nucc.hackwinds.types;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.nucc.hackwinds.utilities.Extensions;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Forecast time series stored column by column in primitive arrays. Forecast objects are only
+ * created on demand when a view needs one.
+ */
+public class ForecastSeries {
+
+    public static final int PRIMARY_SWELL = 0;
+    public static final int SECONDARY_SWELL = 1;
+    public static final int TERTIARY_SWELL = 2;
+    public static final int SWELL_COMPONENT_COUNT = 3;
+
+    // Compass codes below 16 are the compass points. Anything else the service sends, like "NULL" when
+    // there is no direction, is kept in a table and escaped with a code from 16 up, read as unsigned.
+    private static final byte COMPASS_MISSING = -1;
+    private static final int COMPASS_POINT_COUNT = 16;
+    private static final int MAX_COMPASS_TABLE_SIZE = 0xFF - COMPASS_POINT_COUNT;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Every hour's labels are formatted once up front instead of for every row that's drawn
+    private static final String[] TIMES = new String[24];
+    private static final String[] SHORT_TIMES = new String[24];
+    private static final String[] TWENTY_FOUR_HOUR_TIMES = new String[24];
+
+    static {
+        for (int hour = 0; hour < 24; hour++) {
+            int twelveHour = hour % 12 == 0 ? 12 : hour % 12;
+            String ampm = hour < 12 ? "AM" : "PM";
+            TIMES[hour] = String.format(Locale.US, "%02d %s", twelveHour, ampm);
+            SHORT_TIMES[hour] = String.format(Locale.US, "%d %s", twelveHour, ampm);
+            TWENTY_FOUR_HOUR_TIMES[hour] = String.format(Locale.US, "%d:00", hour);
+        }
+    }
+
+    private final int mSize;
+    private final String[] mDateTable;
+    private final String[] mCompassTable;
+    private final short[] mDateCodes;
+    private final byte[] mHours;
+    private final double[] mMinimumBreakingHeights;
+    private final double[] mMaximumBreakingHeights;
+    private final double[] mWindSpeeds;
+    private final double[] mWindDirections;
+    private final byte[] mWindCompassDirections;
+    private final double[][] mSwellHeights;
+    private final double[][] mSwellPeriods;
+    private final double[][] mSwellDirections;
+    private final byte[][] mSwellCompassDirections;
+
+    private ForecastSeries(Builder builder) {
+        mSize = builder.mSize;
+        mDateTable = builder.mDateTable.toArray(new String[builder.mDateTable.size()]);
+        mCompassTable = builder.mCompassTable.toArray(new String[builder.mCompassTable.size()]);
+        mDateCodes = Arrays.copyOf(builder.mDateCodes, mSize);
+        mHours = Arrays.copyOf(builder.mHours, mSize);
+        mMinimumBreakingHeights = Arrays.copyOf(builder.mMinimumBreakingHeights, mSize);
+        mMaximumBreakingHeights = Arrays.copyOf(builder.mMaximumBreakingHeights, mSize);
+        mWindSpeeds = Arrays.copyOf(builder.mWindSpeeds, mSize);
+        mWindDirections = Arrays.copyOf(builder.mWindDirections, mSize);
+        mWindCompassDirections = Arrays.copyOf(builder.mWindCompassDirections, mSize);
+
+        mSwellHeights = new double[SWELL_COMPONENT_COUNT][];
+        mSwellPeriods = new double[SWELL_COMPONENT_COUNT][];
+        mSwellDirections = new double[SWELL_COMPONENT_COUNT][];
+        mSwellCompassDirections = new byte[SWELL_COMPONENT_COUNT][];
+        for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+            mSwellHeights[i] = Arrays.copyOf(builder.mSwellHeights[i], mSize);
+            mSwellPeriods[i] = Arrays.copyOf(builder.mSwellPeriods[i], mSize);
+            mSwellDirections[i] = Arrays.copyOf(builder.mSwellDirections[i], mSize);
+            mSwellCompassDirections[i] = Arrays.copyOf(builder.mSwellCompassDirections[i], mSize);
+        }
+    }
+
+    private ForecastSeries(int size, String[] dateTable, String[] compassTable) {
+        mSize = size;
+        mDateTable = dateTable;
+        mCompassTable = compassTable;
+        mDateCodes = new short[size];
+        mHours = new byte[size];
+        mMinimumBreakingHeights = new double[size];
+        mMaximumBreakingHeights = new double[size];
+        mWindSpeeds = new double[size];
+        mWindDirections = new double[size];
+        mWindCompassDirections = new byte[size];
+        mSwellHeights = new double[SWELL_COMPONENT_COUNT][size];
+        mSwellPeriods = new double[SWELL_COMPONENT_COUNT][size];
+        mSwellDirections = new double[SWELL_COMPONENT_COUNT][size];
+        mSwellCompassDirections = new byte[SWELL_COMPONENT_COUNT][size];
+    }
+
+    public static ForecastSeries empty() {
+        return new Builder(0).build();
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public String getDate(int index) {
+        return mDateTable[mDateCodes[index]];
+    }
+
+    /**
+     * @return The hour of the forecast on a 24 hour clock
+     */
+    public int getHour(int index) {
+        return mHours[index];
+    }
+
+    /**
+     * @return The time of the forecast in the "01 AM" format the forecast service sends
+     */
+    public String getTime(int index) {
+        return getTimeLabel(TIMES, index);
+    }
+
+    /**
+     * @return The time of the forecast without the leading zero, like "1 AM"
+     */
+    public String getShortTime(int index) {
+        return getTimeLabel(SHORT_TIMES, index);
+    }
+
+    /**
+     * @return The time of the forecast on a 24 hour clock, like "13:00"
+     */
+    public String getTwentyFourHourTime(int index) {
+        return getTimeLabel(TWENTY_FOUR_HOUR_TIMES, index);
+    }
+
+    private String getTimeLabel(String[] labels, int index) {
+        // The hour is -1 when the service sent a time that couldn't be read
+        int hour = mHours[index];
+        return hour >= 0 && hour < labels.length ? labels[hour] : "";
+    }
+
+    public double getMinimumBreakingHeight(int index) {
+        return mMinimumBreakingHeights[index];
+    }
+
+    public double getMaximumBreakingHeight(int index) {
+        return mMaximumBreakingHeights[index];
+    }
+
+    public double getWindSpeed(int index) {
+        return mWindSpeeds[index];
+    }
+
+    public double getWindDirection(int index) {
+        return mWindDirections[index];
+    }
+
+    public String getWindCompassDirection(int index) {
+        return decodeCompassDirection(mWindCompassDirections[index]);
+    }
+
+    public double getSwellHeight(int component, int index) {
+        return mSwellHeights[component][index];
+    }
+
+    public double getSwellPeriod(int component, int index) {
+        return mSwellPeriods[component][index];
+    }
+
+    public double getSwellDirection(int component, int index) {
+        return mSwellDirections[component][index];
+    }
+
+    public String getSwellCompassDirection(int component, int index) {
+        return decodeCompassDirection(mSwellCompassDirections[component][index]);
+    }
+
+    public ApiApiMessagesSwellMessage getSwellComponent(int component, int index) {
+        ApiApiMessagesSwellMessage swell = new ApiApiMessagesSwellMessage();
+        swell.setWaveHeight(mSwellHeights[component][index]);
+        swell.setPeriod(mSwellPeriods[component][index]);
+        swell.setDirection(mSwellDirections[component][index]);
+        swell.setCompassDirection(getSwellCompassDirection(component, index));
+        return swell;
+    }
+
+    /**
+     * Creates a standalone forecast object for one entry of the series.
+     * @param index The index of the forecast entry
+     * @return A new forecast object holding the values at the index
+     */
+    public Forecast getForecast(int index) {
+        Forecast forecast = new Forecast();
+        forecast.date = getDate(index);
+        forecast.time = getTime(index);
+        forecast.minimumBreakingHeight = mMinimumBreakingHeights[index];
+        forecast.maximumBreakingHeight = mMaximumBreakingHeights[index];
+        forecast.windSpeed = mWindSpeeds[index];
+        forecast.windDirection = mWindDirections[index];
+        forecast.windCompassDirection = getWindCompassDirection(index);
+        forecast.primarySwellComponent = getSwellComponent(PRIMARY_SWELL, index);
+        forecast.secondarySwellComponent = getSwellComponent(SECONDARY_SWELL, index);
+        forecast.tertiarySwellComponent = getSwellComponent(TERTIARY_SWELL, index);
+        return forecast;
+    }
+
+    /**
+     * Writes the columns out as they are stored, so reading them back is a handful of bulk copies.
+     * @param output The stream to write to
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(mSize);
+        writeTable(output, mDateTable);
+        writeTable(output, mCompassTable);
+
+        for (short dateCode : mDateCodes) {
+            output.writeShort(dateCode);
+        }
+        output.write(mHours);
+        output.write(mWindCompassDirections);
+        for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+            output.write(mSwellCompassDirections[i]);
+        }
+
+        writeDoubles(output, mMinimumBreakingHeights);
+        writeDoubles(output, mMaximumBreakingHeights);
+        writeDoubles(output, mWindSpeeds);
+        writeDoubles(output, mWindDirections);
+        for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+            writeDoubles(output, mSwellHeights[i]);
+            writeDoubles(output, mSwellPeriods[i]);
+            writeDoubles(output, mSwellDirections[i]);
+        }
+    }
+
+    /**
+     * Reads a series written by writeTo(), advancing the buffer past it.
+     * @param buffer The buffer to read from, positioned at the start of the series
+     * @return The series, or null if the buffer doesn't hold a valid one
+     */
+    public static ForecastSeries readFrom(ByteBuffer buffer) {
+        try {
+            int size = buffer.getInt();
+            if (size < 0 || size > buffer.remaining()) {
+                return null;
+            }
+            String[] dateTable = readTable(buffer);
+            String[] compassTable = readTable(buffer);
+
+            ForecastSeries series = new ForecastSeries(size, dateTable, compassTable);
+            buffer.asShortBuffer().get(series.mDateCodes);
+            buffer.position(buffer.position() + size * 2);
+            for (short dateCode : series.mDateCodes) {
+                if (dateCode < 0 || dateCode >= dateTable.length) {
+                    return null;
+                }
+            }
+
+            buffer.get(series.mHours);
+            buffer.get(series.mWindCompassDirections);
+            for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+                buffer.get(series.mSwellCompassDirections[i]);
+            }
+            if (!isValidCompassColumn(series.mWindCompassDirections, compassTable.length)) {
+                return null;
+            }
+            for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+                if (!isValidCompassColumn(series.mSwellCompassDirections[i], compassTable.length)) {
+                    return null;
+                }
+            }
+
+            readDoubles(buffer, series.mMinimumBreakingHeights);
+            readDoubles(buffer, series.mMaximumBreakingHeights);
+            readDoubles(buffer, series.mWindSpeeds);
+            readDoubles(buffer, series.mWindDirections);
+            for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+                readDoubles(buffer, series.mSwellHeights[i]);
+                readDoubles(buffer, series.mSwellPeriods[i]);
+                readDoubles(buffer, series.mSwellDirections[i]);
+            }
+            return series;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeTable(DataOutputStream output, String[] table) throws IOException {
+        output.writeShort(table.length);
+        for (String value : table) {
+            byte[] valueBytes = value != null ? value.getBytes(UTF8) : null;
+            output.writeShort(valueBytes != null ? valueBytes.length : 0xFFFF);
+            if (valueBytes != null) {
+                output.write(valueBytes);
+            }
+        }
+    }
+
+    private static String[] readTable(ByteBuffer buffer) {
+        String[] table = new String[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < table.length; i++) {
+            int length = buffer.getShort() & 0xFFFF;
+            if (length == 0xFFFF) {
+                continue;
+            }
+            byte[] valueBytes = new byte[length];
+            buffer.get(valueBytes);
+            table[i] = new String(valueBytes, UTF8);
+        }
+        return table;
+    }
+
+    private static boolean isValidCompassColumn(byte[] codes, int compassTableSize) {
+        for (byte code : codes) {
+            if (code != COMPASS_MISSING && (code & 0xFF) >= COMPASS_POINT_COUNT + compassTableSize) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeDoubles(DataOutputStream output, double[] values) throws IOException {
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    private static void readDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * 8);
+    }
+
+    private String decodeCompassDirection(byte code) {
+        if (code == COMPASS_MISSING) {
+            return null;
+        }
+
+        int index = code & 0xFF;
+        if (index >= COMPASS_POINT_COUNT) {
+            return mCompassTable[index - COMPASS_POINT_COUNT];
+        }
+        return Extensions.getCompassDirectionForIndex(index);
+    }
+
+    /**
+     * Parses a time in the "01 AM" format into an hour on a 24 hour clock.
+     * @return The hour, or -1 if the time couldn't be parsed
+     */
+    public static int parseHour(String time) {
+        if (time == null || time.length() < 5) {
+            return -1;
+        }
+
+        int hour;
+        try {
+            hour = Integer.parseInt(time.substring(0, 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+
+        if (hour < 1 || hour > 12) {
+            return -1;
+        }
+
+        String ampm = time.substring(3);
+        if (ampm.equals("AM")) {
+            return hour == 12 ? 0 : hour;
+        } else if (ampm.equals("PM")) {
+            return hour == 12 ? 12 : hour + 12;
+        }
+        return -1;
+    }
+
+    /**
+     * Fills a series one forecast entry at a time. Set the values for the current entry then call
+     * nextEntry() to move on to the next one.
+     */
+    public static class Builder {
+        private int mSize = 0;
+        private final ArrayList<String> mDateTable = new ArrayList<>();
+        private final ArrayList<String> mCompassTable = new ArrayList<>();
+        private short[] mDateCodes;
+        private byte[] mHours;
+        private double[] mMinimumBreakingHeights;
+        private double[] mMaximumBreakingHeights;
+        private double[] mWindSpeeds;
+        private double[] mWindDirections;
+        private byte[] mWindCompassDirections;
+        private double[][] mSwellHeights;
+        private double[][] mSwellPeriods;
+        private double[][] mSwellDirections;
+        private byte[][] mSwellCompassDirections;
+
+        public Builder(int capacity) {
+            mDateCodes = new short[capacity];
+            mHours = new byte[capacity];
+            mMinimumBreakingHeights = new double[capacity];
+            mMaximumBreakingHeights = new double[capacity];
+            mWindSpeeds = new double[capacity];
+            mWindDirections = new double[capacity];
+            mWindCompassDirections = new byte[capacity];
+            mSwellHeights = new double[SWELL_COMPONENT_COUNT][capacity];
+            mSwellPeriods = new double[SWELL_COMPONENT_COUNT][capacity];
+            mSwellDirections = new double[SWELL_COMPONENT_COUNT][capacity];
+            mSwellCompassDirections = new byte[SWELL_COMPONENT_COUNT][capacity];
+            fillMissingCompassDirections(0);
+        }
+
+        public int size() {
+            return mSize;
+        }
+
+        public Builder setDate(String date) {
+            ensureCapacity();
+
+            // Dates repeat for every entry in a day so only keep each one once
+            int dateCode = mDateTable.lastIndexOf(date);
+            if (dateCode < 0) {
+                dateCode = mDateTable.size();
+                mDateTable.add(date);
+            }
+            mDateCodes[mSize] = (short) dateCode;
+            return this;
+        }
+
+        public Builder setHour(int hour) {
+            ensureCapacity();
+            mHours[mSize] = (byte) hour;
+            return this;
+        }
+
+        public Builder setMinimumBreakingHeight(double minimumBreakingHeight) {
+            ensureCapacity();
+            mMinimumBreakingHeights[mSize] = minimumBreakingHeight;
+            return this;
+        }
+
+        public Builder setMaximumBreakingHeight(double maximumBreakingHeight) {
+            ensureCapacity();
+            mMaximumBreakingHeights[mSize] = maximumBreakingHeight;
+            return this;
+        }
+
+        public Builder setWindSpeed(double windSpeed) {
+            ensureCapacity();
+            mWindSpeeds[mSize] = windSpeed;
+            return this;
+        }
+
+        public Builder setWindDirection(double windDirection) {
+            ensureCapacity();
+            mWindDirections[mSize] = windDirection;
+            return this;
+        }
+
+        public Builder setWindCompassDirection(String windCompassDirection) {
+            ensureCapacity();
+            mWindCompassDirections[mSize] = encodeCompassDirection(windCompassDirection);
+            return this;
+        }
+
+        public Builder setSwellHeight(int component, double height) {
+            ensureCapacity();
+            mSwellHeights[component][mSize] = height;
+            return this;
+        }
+
+        public Builder setSwellPeriod(int component, double period) {
+            ensureCapacity();
+            mSwellPeriods[component][mSize] = period;
+            return this;
+        }
+
+        public Builder setSwellDirection(int component, double direction) {
+            ensureCapacity();
+            mSwellDirections[component][mSize] = direction;
+            return this;
+        }
+
+        public Builder setSwellCompassDirection(int component, String compassDirection) {
+            ensureCapacity();
+            mSwellCompassDirections[component][mSize] = encodeCompassDirection(compassDirection);
+            return this;
+        }
+
+        /**
+         * Finishes the current entry and starts filling the next one.
+         */
+        public Builder nextEntry() {
+            ensureCapacity();
+            mSize++;
+            return this;
+        }
+
+        public ForecastSeries build() {
+            return new ForecastSeries(this);
+        }
+
+        private byte encodeCompassDirection(String compassDirection) {
+            if (compassDirection == null) {
+                return COMPASS_MISSING;
+            }
+
+            int compassIndex = Extensions.getCompassDirectionIndex(compassDirection);
+            if (compassIndex >= 0) {
+                return (byte) compassIndex;
+            }
+
+            // Not a compass point, escape it into the table so it reads back as it was sent
+            int tableIndex = mCompassTable.indexOf(compassDirection);
+            if (tableIndex < 0) {
+                if (mCompassTable.size() >= MAX_COMPASS_TABLE_SIZE) {
+                    throw new IllegalStateException("Too many unknown compass directions");
+                }
+                tableIndex = mCompassTable.size();
+                mCompassTable.add(compassDirection);
+            }
+            return (byte) (COMPASS_POINT_COUNT + tableIndex);
+        }
+
+        private void ensureCapacity() {
+            if (mSize < mHours.length) {
+                return;
+            }
+
+            int newCapacity = Math.max(8, mHours.length * 2);
+            mDateCodes = Arrays.copyOf(mDateCodes, newCapacity);
+            mHours = Arrays.copyOf(mHours, newCapacity);
+            mMinimumBreakingHeights = Arrays.copyOf(mMinimumBreakingHeights, newCapacity);
+            mMaximumBreakingHeights = Arrays.copyOf(mMaximumBreakingHeights, newCapacity);
+            mWindSpeeds = Arrays.copyOf(mWindSpeeds, newCapacity);
+            mWindDirections = Arrays.copyOf(mWindDirections, newCapacity);
+            mWindCompassDirections = Arrays.copyOf(mWindCompassDirections, newCapacity);
+            for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+                mSwellHeights[i] = Arrays.copyOf(mSwellHeights[i], newCapacity);
+                mSwellPeriods[i] = Arrays.copyOf(mSwellPeriods[i], newCapacity);
+                mSwellDirections[i] = Arrays.copyOf(mSwellDirections[i], newCapacity);
+                mSwellCompassDirections[i] = Arrays.copyOf(mSwellCompassDirections[i], newCapacity);
+            }
+            fillMissingCompassDirections(mSize);
+        }
+
+        private void fillMissingCompassDirections(int fromIndex) {
+            // Entries without a direction shouldn't read back as north
+            Arrays.fill(mWindCompassDirections, fromIndex, mWindCompassDirections.length, COMPASS_MISSING);
+            for (int i = 0; i < SWELL_COMPONENT_COUNT; i++) {
+                Arrays.fill(mSwellCompassDirections[i], fromIndex, mSwellCompassDirections[i].length, COMPASS_MISSING);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.WakefulBroadcastReceiver;
+
+/**
+ * Starts the background sync when its alarm goes off, holding a wake lock until the sync is done,
+ * and puts the alarm back after a reboot clears it.
+ */
+public class BackgroundSyncReceiver extends WakefulBroadcastReceiver {
+
+    public static final String ACTION_SYNC = "com.nucc.hackwinds.action.BACKGROUND_SYNC";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            BackgroundSyncService.schedule(context);
+            return;
+        }
+
+        startWakefulService(context, new Intent(context, BackgroundSyncService.class));
+    }
+}
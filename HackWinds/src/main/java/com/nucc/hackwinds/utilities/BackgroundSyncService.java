@@ -0,0 +1,180 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import com.nucc.hackwinds.models.BuoyModel;
+import com.nucc.hackwinds.models.ForecastModel;
+import com.nucc.hackwinds.models.TideModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up in the background when the forecast, tides or buoy are due for new data, fetches them all
+ * in one go and persists them so the app opens to fresh data without waiting on the network. The
+ * next wake up is lined up with whichever model is due next, pulling in any others due soon after so
+ * the radio only comes up once for them.
+ */
+public class BackgroundSyncService extends Service {
+
+    private static final String TAG = "BackgroundSyncService";
+    private static final String PREFS_NAME = "background_sync";
+    private static final String NEXT_SYNC_TIME_KEY = "next_sync_time";
+
+    // Don't wake up more often than this, or wait longer than this between syncs
+    private static final long MIN_SYNC_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+    private static final long MAX_SYNC_INTERVAL = TimeUnit.HOURS.toMillis(6);
+
+    // Models due within this long of the first one are picked up by the same wake up
+    private static final long BATCH_WINDOW = TimeUnit.MINUTES.toMillis(45);
+
+    // How long to hold the device awake waiting on the fetches
+    private static final long SYNC_DEADLINE = TimeUnit.SECONDS.toMillis(60);
+    private static final long SYNC_POLL_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private Handler mHandler;
+    private Intent mWakefulIntent;
+    private long mSyncDeadline;
+
+    /**
+     * Makes sure a sync alarm is set, at the last planned time if it is still ahead.
+     * @param context The context
+     */
+    public static void schedule(Context context) {
+        long now = System.currentTimeMillis();
+        long nextSyncTime = getPrefs(context).getLong(NEXT_SYNC_TIME_KEY, 0);
+        if (nextSyncTime < now + MIN_SYNC_INTERVAL) {
+            nextSyncTime = now + MIN_SYNC_INTERVAL;
+        }
+        scheduleAt(context, nextSyncTime);
+    }
+
+    private static void scheduleAt(Context context, long syncTime) {
+        getPrefs(context).edit().putLong(NEXT_SYNC_TIME_KEY, syncTime).apply();
+
+        // Inexact on newer devices, so the system can batch it with other apps' wake ups too
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.RTC_WAKEUP, syncTime, getSyncIntent(context));
+    }
+
+    private static PendingIntent getSyncIntent(Context context) {
+        Intent intent = new Intent(context, BackgroundSyncReceiver.class);
+        intent.setAction(BackgroundSyncReceiver.ACTION_SYNC);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (mWakefulIntent != null) {
+            // Already syncing, let go of the extra wake lock
+            BackgroundSyncReceiver.completeWakefulIntent(intent);
+            return START_NOT_STICKY;
+        }
+        mWakefulIntent = intent;
+
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(this);
+        int networkClass = fetchPolicy.getEffectiveNetworkClass();
+        if (networkClass == FetchPolicy.NETWORK_NONE || networkClass == FetchPolicy.NETWORK_SLOW) {
+            // Try again later, the connectivity monitor catches up if the app is opened first
+            fetchPolicy.recordSkippedFetch();
+            finishSync(System.currentTimeMillis() + MIN_SYNC_INTERVAL);
+            return START_NOT_STICKY;
+        }
+
+        // Each model only goes to the network if its data is due
+        ForecastModel.getInstance(this).fetchForecastData();
+        TideModel.getInstance(this).fetchTideData();
+        BuoyModel.getInstance(this).fetchBuoyData();
+
+        mSyncDeadline = System.currentTimeMillis() + SYNC_DEADLINE;
+        mHandler.postDelayed(mSyncCheck, SYNC_POLL_INTERVAL);
+        return START_NOT_STICKY;
+    }
+
+    private final Runnable mSyncCheck = new Runnable() {
+        @Override
+        public void run() {
+            boolean fetching = ForecastModel.getInstance(BackgroundSyncService.this).isFetching() ||
+                    TideModel.getInstance(BackgroundSyncService.this).isFetching() ||
+                    BuoyModel.getInstance(BackgroundSyncService.this).isRefreshing();
+
+            if (fetching && System.currentTimeMillis() < mSyncDeadline) {
+                mHandler.postDelayed(this, SYNC_POLL_INTERVAL);
+                return;
+            }
+
+            finishSync(getNextSyncTime());
+        }
+    };
+
+    private void finishSync(long nextSyncTime) {
+        scheduleAt(this, nextSyncTime);
+
+        BackgroundSyncReceiver.completeWakefulIntent(mWakefulIntent);
+        mWakefulIntent = null;
+        stopSelf();
+    }
+
+    /**
+     * @return The time of the next wake up, when the first model is due plus any due shortly after it
+     */
+    private long getNextSyncTime() {
+        long now = System.currentTimeMillis();
+        long[] updateTimes = {
+                ForecastModel.getInstance(this).getNextUpdateTime(),
+                TideModel.getInstance(this).getNextUpdateTime(),
+                BuoyModel.getInstance(this).getNextUpdateTime(),
+        };
+
+        long firstUpdateTime = Long.MAX_VALUE;
+        for (long updateTime : updateTimes) {
+            firstUpdateTime = Math.min(firstUpdateTime, Math.max(updateTime, now));
+        }
+
+        // Hold off a little so models due right after the first one come along with it
+        long syncTime = firstUpdateTime;
+        for (long updateTime : updateTimes) {
+            if (updateTime > syncTime && updateTime <= firstUpdateTime + BATCH_WINDOW) {
+                syncTime = updateTime;
+            }
+        }
+
+        syncTime = Math.max(now + MIN_SYNC_INTERVAL, Math.min(syncTime, now + MAX_SYNC_INTERVAL));
+        Log.d(TAG, "Next background sync in " + TimeUnit.MILLISECONDS.toMinutes(syncTime - now) + " minutes");
+        return syncTime;
+    }
+
+    @Override
+    public void onDestroy() {
+        mHandler.removeCallbacks(mSyncCheck);
+        if (mWakefulIntent != null) {
+            BackgroundSyncReceiver.completeWakefulIntent(mWakefulIntent);
+            mWakefulIntent = null;
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.nucc.hackwinds.utilities;
+
+
+/**
+ * Keeps count of the bytes that come in over the network. FetchPolicy outside of tests.
+ */
+interface ByteCounter {
+
+    void recordBytes(long bytes);
+}
@@ -0,0 +1,369 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.koushikdutta.async.future.FutureCallback;
+import com.koushikdutta.ion.Ion;
+import com.koushikdutta.ion.Response;
+import com.koushikdutta.ion.builder.Builders;
+import com.nucc.hackwinds.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+public class CameraImageLoader {
+
+    public interface ImageLoadListener {
+        void onImageLoaded(Bitmap bitmap);
+        void onImageLoadFailed();
+    }
+
+    public interface FrameRefreshListener {
+        void onFrameUnchanged();
+        void onFrameLoaded(Bitmap bitmap);
+        void onFrameLoadFailed();
+    }
+
+    // What is known about the last frame fetched from a live camera url
+    private static class FrameState {
+        String etag;
+        String lastModified;
+        long contentHash = -1;
+    }
+
+    private static final String TAG = "CameraImageLoader";
+
+    // Only decode a couple of frames at once so a full slider refresh never spikes the heap
+    private static final int MAX_CONCURRENT_DECODES = 2;
+    private static final int MAX_POOLED_BITMAPS = 8;
+
+    private static CameraImageLoader mInstance;
+
+    private final Context mContext;
+    private final ExecutorService mDecodeExecutor;
+    private final Handler mMainHandler;
+    private final FetchPolicy mFetchPolicy;
+    private final ArrayList<Bitmap> mBitmapPool;
+    private final HashMap<String, FrameState> mFrameStates;
+
+    // Metrics for the memory the loaded frames take up
+    private long mLiveBitmapBytes = 0;
+    private long mPeakBitmapBytes = 0;
+    private long mPeakHeapBytes = 0;
+
+    // Metrics for how many live camera refreshes were skipped because the frame hadn't changed
+    private int mSkippedFrameCount = 0;
+    private int mDecodedFrameCount = 0;
+
+    public static CameraImageLoader getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new CameraImageLoader(context);
+        }
+        return mInstance;
+    }
+
+    private CameraImageLoader(Context context) {
+        mContext = context.getApplicationContext();
+        mDecodeExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_DECODES);
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mFetchPolicy = FetchPolicy.getInstance(context);
+        mBitmapPool = new ArrayList<>();
+        mFrameStates = new HashMap<>();
+    }
+
+    /**
+     * Downloads an image and decodes it at roughly the size it will be displayed at.
+     * @param url The url of the image
+     * @param targetWidth The width the image will be displayed at in pixels
+     * @param targetHeight The height the image will be displayed at in pixels
+     * @param listener Called on the main thread with the decoded bitmap
+     */
+    public void load(String url, final int targetWidth, final int targetHeight, final ImageLoadListener listener) {
+        Ion.with(mContext).load(url).asByteArray().setCallback(new FutureCallback<byte[]>() {
+            @Override
+            public void onCompleted(Exception e, final byte[] result) {
+                if (e != null || result == null) {
+                    listener.onImageLoadFailed();
+                    return;
+                }
+                mFetchPolicy.recordBytes(result.length);
+
+                mDecodeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final Bitmap bitmap = decode(result, targetWidth, targetHeight);
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (bitmap == null) {
+                                    listener.onImageLoadFailed();
+                                } else {
+                                    listener.onImageLoaded(bitmap);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Fetches the latest frame of a live camera, only decoding it if it changed since the last refresh
+     * of the same url. The server is asked to skip the body with a conditional request, and when it
+     * sends the same image anyway the bytes are hashed and compared. Release the frame being replaced
+     * once the new one is showing so the next refresh decodes into its memory.
+     * @param url The url of the live camera image
+     * @param targetWidth The width the image will be displayed at in pixels
+     * @param targetHeight The height the image will be displayed at in pixels
+     * @param listener Called on the main thread with the result
+     */
+    public void refresh(final String url, final int targetWidth, final int targetHeight, final FrameRefreshListener listener) {
+        final FrameState frameState;
+        synchronized (mFrameStates) {
+            FrameState existingState = mFrameStates.get(url);
+            if (existingState == null) {
+                existingState = new FrameState();
+                mFrameStates.put(url, existingState);
+            }
+            frameState = existingState;
+        }
+
+        Builders.Any.B request = Ion.with(mContext).load(url).noCache();
+        if (frameState.etag != null) {
+            request.setHeader(HttpRevalidator.IF_NONE_MATCH_HEADER, frameState.etag);
+        }
+        if (frameState.lastModified != null) {
+            request.setHeader(HttpRevalidator.IF_MODIFIED_SINCE_HEADER, frameState.lastModified);
+        }
+
+        request.asByteArray().withResponse().setCallback(new FutureCallback<Response<byte[]>>() {
+            @Override
+            public void onCompleted(Exception e, Response<byte[]> response) {
+                if (e == null && response.getHeaders() != null && response.getHeaders().code() == HttpRevalidator.NOT_MODIFIED_STATUS) {
+                    recordSkippedFrame(url, "not modified");
+                    listener.onFrameUnchanged();
+                    return;
+                }
+
+                final byte[] result = e == null ? response.getResult() : null;
+                if (result == null || result.length == 0) {
+                    listener.onFrameLoadFailed();
+                    return;
+                }
+                mFetchPolicy.recordBytes(result.length);
+
+                if (response.getHeaders() != null) {
+                    frameState.etag = response.getHeaders().getHeaders().get(HttpRevalidator.ETAG_HEADER);
+                    frameState.lastModified = response.getHeaders().getHeaders().get(HttpRevalidator.LAST_MODIFIED_HEADER);
+                }
+
+                // Plenty of cameras ignore conditional requests, so compare the bytes before paying for a decode
+                CRC32 checksum = new CRC32();
+                checksum.update(result);
+                final long contentHash = checksum.getValue();
+                if (contentHash == frameState.contentHash) {
+                    recordSkippedFrame(url, "same content");
+                    listener.onFrameUnchanged();
+                    return;
+                }
+
+                mDecodeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final Bitmap bitmap = decode(result, targetWidth, targetHeight);
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (bitmap == null) {
+                                    listener.onFrameLoadFailed();
+                                    return;
+                                }
+
+                                frameState.contentHash = contentHash;
+                                synchronized (mFrameStates) {
+                                    mDecodedFrameCount++;
+                                }
+                                listener.onFrameLoaded(bitmap);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private void recordSkippedFrame(String url, String reason) {
+        synchronized (mFrameStates) {
+            mSkippedFrameCount++;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, url + " " + reason + ", " + getSkippedFrameCount() + " frames skipped, " + getDecodedFrameCount() + " decoded");
+        }
+    }
+
+    public int getSkippedFrameCount() {
+        synchronized (mFrameStates) {
+            return mSkippedFrameCount;
+        }
+    }
+
+    public int getDecodedFrameCount() {
+        synchronized (mFrameStates) {
+            return mDecodedFrameCount;
+        }
+    }
+
+    /**
+     * Hands a bitmap that is no longer displayed back so its memory can be reused by the next decode.
+     * @param bitmap The bitmap to reuse
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        synchronized (mBitmapPool) {
+            mLiveBitmapBytes -= getByteCount(bitmap);
+
+            if (bitmap.isMutable() && mBitmapPool.size() < MAX_POOLED_BITMAPS) {
+                mBitmapPool.add(bitmap);
+            }
+        }
+    }
+
+    /**
+     * @return The most memory the decoded frames have held at once, in bytes
+     */
+    public long getPeakBitmapBytes() {
+        synchronized (mBitmapPool) {
+            return mPeakBitmapBytes;
+        }
+    }
+
+    /**
+     * @return The highest java heap usage seen right after a decode, in bytes
+     */
+    public long getPeakHeapBytes() {
+        synchronized (mBitmapPool) {
+            return mPeakHeapBytes;
+        }
+    }
+
+    private Bitmap decode(byte[] data, int targetWidth, int targetHeight) {
+        // Read the bounds first so we can pick a sample size without allocating the full frame
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+
+        Bitmap reusableBitmap = takeReusableBitmap(options);
+        options.inBitmap = reusableBitmap;
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap didn't fit after all, decode into fresh memory instead
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+
+        if (bitmap == null) {
+            return null;
+        }
+
+        synchronized (mBitmapPool) {
+            mLiveBitmapBytes += getByteCount(bitmap);
+            mPeakBitmapBytes = Math.max(mPeakBitmapBytes, mLiveBitmapBytes);
+
+            Runtime runtime = Runtime.getRuntime();
+            mPeakHeapBytes = Math.max(mPeakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Decoded " + bitmap.getWidth() + "x" + bitmap.getHeight() + " frame" +
+                    (options.inBitmap != null ? " into a reused bitmap" : "") +
+                    ", peak frame memory " + getPeakBitmapBytes() + " bytes, peak heap " + getPeakHeapBytes() + " bytes");
+        }
+
+        return bitmap;
+    }
+
+    private Bitmap takeReusableBitmap(BitmapFactory.Options options) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return null;
+        }
+
+        int width = options.outWidth / options.inSampleSize;
+        int height = options.outHeight / options.inSampleSize;
+
+        synchronized (mBitmapPool) {
+            Iterator<Bitmap> bitmapIterator = mBitmapPool.iterator();
+            while (bitmapIterator.hasNext()) {
+                Bitmap candidate = bitmapIterator.next();
+                if (candidate.isRecycled()) {
+                    bitmapIterator.remove();
+                    continue;
+                }
+
+                if (canReuse(candidate, width, height, options.inSampleSize)) {
+                    bitmapIterator.remove();
+                    return candidate;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean canReuse(Bitmap candidate, int width, int height, int sampleSize) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // Any bitmap with enough memory behind it works, assuming ARGB_8888
+            return candidate.getAllocationByteCount() >= width * height * 4;
+        }
+
+        // Before KitKat the sizes have to match exactly and the image can't be subsampled
+        return candidate.getWidth() == width && candidate.getHeight() == height && sampleSize == 1;
+    }
+
+    private static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+
+        // Largest power of two that keeps both dimensions at or above the display size
+        while ((width / (sampleSize * 2)) >= targetWidth && (height / (sampleSize * 2)) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static long getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
@@ -0,0 +1,116 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Bundle;
+
+import com.nucc.hackwinds.models.BuoyModel;
+import com.nucc.hackwinds.models.CameraModel;
+import com.nucc.hackwinds.models.ForecastModel;
+import com.nucc.hackwinds.models.TideModel;
+
+/**
+ * Watches for the device getting its network back and revalidates whatever the models are serving
+ * from disk, so stale data gets replaced without the user having to refresh. Models nothing has
+ * used yet are left alone, and the camera list is only refreshed while the app is on screen.
+ */
+public class ConnectivityMonitor extends BroadcastReceiver implements Application.ActivityLifecycleCallbacks {
+
+    private final Context mContext;
+    private boolean mConnected;
+    private int mStartedActivityCount = 0;
+
+    public static ConnectivityMonitor register(Application application) {
+        ConnectivityMonitor monitor = new ConnectivityMonitor(application);
+        application.registerActivityLifecycleCallbacks(monitor);
+        application.registerReceiver(monitor, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        return monitor;
+    }
+
+    private ConnectivityMonitor(Context context) {
+        mContext = context;
+        mConnected = ReachabilityHelper.deviceHasInternetAccess(context);
+    }
+
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    /**
+     * @return True while any of the app's activities are started
+     */
+    public boolean isInForeground() {
+        return mStartedActivityCount > 0;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        boolean connected = ReachabilityHelper.deviceHasInternetAccess(mContext);
+        boolean reconnected = connected && !mConnected;
+        mConnected = connected;
+
+        if (reconnected) {
+            revalidateModels();
+        }
+    }
+
+    private void revalidateModels() {
+        // Only look at the models that already exist, getInstance would create and fetch them
+        ForecastModel forecastModel = ForecastModel.peekInstance();
+        if (forecastModel != null && forecastModel.isInUse()) {
+            forecastModel.revalidate();
+        }
+
+        TideModel tideModel = TideModel.peekInstance();
+        if (tideModel != null && tideModel.isInUse()) {
+            tideModel.revalidate();
+        }
+
+        BuoyModel buoyModel = BuoyModel.peekInstance();
+        if (buoyModel != null && buoyModel.isInUse()) {
+            buoyModel.revalidate();
+        }
+
+        // Nobody sees the cameras from the background, MainActivity fetches them again when it resumes
+        CameraModel cameraModel = CameraModel.peekInstance();
+        if (cameraModel != null && cameraModel.isInUse() && isInForeground()) {
+            cameraModel.revalidate();
+        }
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        mStartedActivityCount++;
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        mStartedActivityCount--;
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.nucc.hackwinds.utilities;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesWaveSpectraMessage;
+import com.nucc.hackwinds.R;
+
+import java.util.List;
+
+/**
+ * Polar plot of a buoy's directional wave spectrum. North is up, the distance from the center is the
+ * period of each frequency band and the size of its marker is how much energy it carries.
+ */
+public class DirectionalSpectraView extends View {
+
+    // The period rings drawn on the plot, in seconds
+    private static final int[] PERIOD_RINGS = {5, 10, 15, 20};
+    private static final float MAX_PERIOD = 22.0f;
+    private static final String[] COMPASS_LABELS = {"N", "E", "S", "W"};
+
+    private final Paint mGridPaint;
+    private final Paint mLabelPaint;
+    private final Paint mEnergyPaint;
+
+    private float[] mPeriods;
+    private float[] mAngles;
+    private float[] mEnergies;
+    private float mMaxEnergy;
+
+    /**
+     * Constructor
+     *
+     * @param context the context
+     */
+    public DirectionalSpectraView(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param context the context
+     * @param attrs the attribute set
+     */
+    public DirectionalSpectraView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        float density = getResources().getDisplayMetrics().density;
+
+        mGridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mGridPaint.setStyle(Paint.Style.STROKE);
+        mGridPaint.setStrokeWidth(density);
+        mGridPaint.setColor(getResources().getColor(R.color.med_grey));
+
+        mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mLabelPaint.setColor(getResources().getColor(R.color.dark_grey));
+        mLabelPaint.setTextAlign(Paint.Align.CENTER);
+        mLabelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12, getResources().getDisplayMetrics()));
+
+        mEnergyPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mEnergyPaint.setStyle(Paint.Style.FILL);
+        mEnergyPaint.setColor(getResources().getColor(R.color.hackwinds_blue));
+    }
+
+    /**
+     * Sets the spectrum to plot and redraws the view.
+     * @param spectra The spectra reported by the buoy, or null to clear the plot
+     */
+    public void setSpectra(ApiApiMessagesWaveSpectraMessage spectra) {
+        List<Double> frequencies = spectra != null ? spectra.getFrequency() : null;
+        List<Double> energies = spectra != null ? spectra.getEnergy() : null;
+        List<Double> angles = spectra != null ? spectra.getAngle() : null;
+
+        int count = 0;
+        if (frequencies != null && energies != null && angles != null) {
+            count = Math.min(frequencies.size(), Math.min(energies.size(), angles.size()));
+        }
+
+        mPeriods = new float[count];
+        mAngles = new float[count];
+        mEnergies = new float[count];
+        mMaxEnergy = 0;
+        for (int i = 0; i < count; i++) {
+            Double frequency = frequencies.get(i);
+            mPeriods[i] = frequency != null && frequency > 0 ? (float) (1.0 / frequency) : 0;
+            mAngles[i] = angles.get(i) != null ? angles.get(i).floatValue() : 0;
+            mEnergies[i] = energies.get(i) != null ? Math.max(0, energies.get(i).floatValue()) : 0;
+            mMaxEnergy = Math.max(mMaxEnergy, mEnergies[i]);
+        }
+
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Keep the plot square, sized by the width it is given
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        setMeasuredDimension(width, resolveSize(width, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        float labelSize = mLabelPaint.getTextSize();
+        float centerX = getWidth() / 2.0f;
+        float centerY = getHeight() / 2.0f;
+        float radius = Math.min(centerX, centerY) - labelSize * 1.5f;
+        if (radius <= 0) {
+            return;
+        }
+
+        // Period rings and the compass cross
+        for (int period : PERIOD_RINGS) {
+            float ringRadius = radius * period / MAX_PERIOD;
+            canvas.drawCircle(centerX, centerY, ringRadius, mGridPaint);
+            canvas.drawText(period + "s", centerX + labelSize / 2, centerY - ringRadius - labelSize / 4, mLabelPaint);
+        }
+        canvas.drawLine(centerX - radius, centerY, centerX + radius, centerY, mGridPaint);
+        canvas.drawLine(centerX, centerY - radius, centerX, centerY + radius, mGridPaint);
+
+        float labelOffset = radius + labelSize;
+        canvas.drawText(COMPASS_LABELS[0], centerX, centerY - labelOffset + labelSize / 2, mLabelPaint);
+        canvas.drawText(COMPASS_LABELS[1], centerX + labelOffset, centerY + labelSize / 3, mLabelPaint);
+        canvas.drawText(COMPASS_LABELS[2], centerX, centerY + labelOffset, mLabelPaint);
+        canvas.drawText(COMPASS_LABELS[3], centerX - labelOffset, centerY + labelSize / 3, mLabelPaint);
+
+        if (mEnergies == null || mMaxEnergy <= 0) {
+            return;
+        }
+
+        // One marker per frequency band at the direction the energy is coming from
+        float maxMarkerRadius = radius / 12;
+        for (int i = 0; i < mEnergies.length; i++) {
+            if (mPeriods[i] <= 0 || mPeriods[i] > MAX_PERIOD || mEnergies[i] <= 0) {
+                continue;
+            }
+
+            float strength = (float) Math.sqrt(mEnergies[i] / mMaxEnergy);
+            double angle = Math.toRadians(mAngles[i]);
+            float bandRadius = radius * mPeriods[i] / MAX_PERIOD;
+            float x = centerX + bandRadius * (float) Math.sin(angle);
+            float y = centerY - bandRadius * (float) Math.cos(angle);
+
+            mEnergyPaint.setAlpha((int) (55 + 200 * strength));
+            canvas.drawCircle(x, y, Math.max(1.5f, maxMarkerRadius * strength), mEnergyPaint);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DiskCache implements ResponseStore {
+
+    private static final String TAG = "DiskCache";
+    private static final String CACHE_DIRECTORY_NAME = "snapshots";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static DiskCache mInstance;
+    private File mCacheDirectory;
+    private ExecutorService mWriteExecutor;
+
+    public static synchronized DiskCache getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new DiskCache(context);
+        }
+        return mInstance;
+    }
+
+    private DiskCache(Context context) {
+        // Keep the snapshots in the files directory so the system doesn't purge them under storage pressure
+        mCacheDirectory = new File(context.getApplicationContext().getFilesDir(), CACHE_DIRECTORY_NAME);
+        if (!mCacheDirectory.exists()) {
+            mCacheDirectory.mkdirs();
+        }
+
+        // All writes go through a single thread so they never block the caller and never interleave
+        mWriteExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Writes the value for the given key to disk in the background. The previous value is only
+     * replaced once the new one is completely written.
+     * @param key The cache key
+     * @param value The value to persist
+     */
+    public void putString(String key, String value) {
+        putString(key, value, null);
+    }
+
+    /**
+     * Writes the value for the given key to disk in the background, then runs the callback on the
+     * write thread once the value is on disk. The callback doesn't run if the write fails.
+     * @param key The cache key
+     * @param value The value to persist
+     * @param onWritten Runs after the value is written, may be null
+     */
+    public void putString(final String key, final String value, final Runnable onWritten) {
+        if (value == null) {
+            return;
+        }
+
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (writeString(key, value) && onWritten != null) {
+                    onWritten.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes raw bytes for the given key to disk in the background, replacing the previous value
+     * only once the new one is completely written.
+     * @param key The cache key
+     * @param value The bytes to persist
+     */
+    public void putBytes(final String key, final byte[] value) {
+        if (value == null) {
+            return;
+        }
+
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeBytes(key, value);
+            }
+        });
+    }
+
+    /**
+     * Maps the value for the given key into memory read only, so it can be read without copying
+     * it onto the heap first.
+     * @param key The cache key
+     * @return The mapped value or null if there is none
+     */
+    public MappedByteBuffer mapBytes(String key) {
+        File cacheFile = getCacheFile(key);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            // The mapping stays valid after the file is closed
+            file = new RandomAccessFile(cacheFile, "r");
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to map cached value for " + key, e);
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    /**
+     * Reads the value for the given key from disk.
+     * @param key The cache key
+     * @return The cached value or null if there is none
+     */
+    public String getString(String key) {
+        File cacheFile = getCacheFile(key);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(cacheFile), UTF8);
+            StringBuilder builder = new StringBuilder((int) cacheFile.length());
+            char[] buffer = new char[8192];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, count);
+            }
+            return builder.toString();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read cached value for " + key, e);
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Gets the time the value for the given key was last written.
+     * @param key The cache key
+     * @return The last write time in milliseconds since epoch, or 0 if there is no value
+     */
+    public long getLastModified(String key) {
+        return getCacheFile(key).lastModified();
+    }
+
+    /**
+     * Gets the size of the value stored for the given key.
+     * @param key The cache key
+     * @return The size on disk in bytes, or 0 if there is no value
+     */
+    public long getSize(String key) {
+        return getCacheFile(key).length();
+    }
+
+    /**
+     * Marks the value for the given key as current without rewriting it, for when the server
+     * confirms the cached copy is still good.
+     * @param key The cache key
+     */
+    public void touch(final String key) {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getCacheFile(key).setLastModified(System.currentTimeMillis());
+            }
+        });
+    }
+
+    public void remove(final String key) {
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getCacheFile(key).delete();
+            }
+        });
+    }
+
+    private boolean writeString(String key, String value) {
+        File cacheFile = getCacheFile(key);
+        File tempFile = new File(mCacheDirectory, key + ".tmp");
+
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tempFile), UTF8);
+            writer.write(value);
+            writer.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write cached value for " + key, e);
+            closeQuietly(writer);
+            tempFile.delete();
+            return false;
+        }
+        closeQuietly(writer);
+
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private void writeBytes(String key, byte[] value) {
+        File cacheFile = getCacheFile(key);
+        File tempFile = new File(mCacheDirectory, key + ".tmp");
+
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            outputStream.write(value);
+            outputStream.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write cached value for " + key, e);
+            closeQuietly(outputStream);
+            tempFile.delete();
+            return;
+        }
+        closeQuietly(outputStream);
+
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+        }
+    }
+
+    private File getCacheFile(String key) {
+        return new File(mCacheDirectory, key);
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+}
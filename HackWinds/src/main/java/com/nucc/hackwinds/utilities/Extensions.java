@@ -28,7 +28,11 @@ public class Extensions {
     }
 
     public static String getDetailedSwellSummary(ApiApiMessagesSwellMessage swell) {
-        return String.format(Locale.US, "%2.2f ft @ %2.1f s %.0f" + (char) 0x00B0 + " %s", swell.getWaveHeight(), swell.getPeriod(), swell.getDirection(), swell.getCompassDirection());
+        return getDetailedSwellSummary(swell.getWaveHeight(), swell.getPeriod(), swell.getDirection(), swell.getCompassDirection());
+    }
+
+    public static String getDetailedSwellSummary(double waveHeight, double period, double direction, String compassDirection) {
+        return String.format(Locale.US, "%2.2f ft @ %2.1f s %.0f" + (char) 0x00B0 + " %s", waveHeight, period, direction, compassDirection);
     }
 
     public static String getCompassDirection(String direction) {
@@ -48,6 +52,27 @@ public class Extensions {
         }
     }
 
+    /**
+     * @param compassDirection A compass direction like "NNE"
+     * @return The index of the direction on the 16 point compass, or -1 if it isn't one
+     */
+    public static int getCompassDirectionIndex(String compassDirection) {
+        if (compassDirection == null) {
+            return -1;
+        }
+
+        for (int i = 0; i < COMPASS_DIRS.length; i++) {
+            if (COMPASS_DIRS[i].equals(compassDirection)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static String getCompassDirectionForIndex(int index) {
+        return COMPASS_DIRS[index];
+    }
+
     public static Boolean isVideoCamera(MessagesCameraCameraMessage camera) {
         return camera.getVideoUrl() != null;
     }
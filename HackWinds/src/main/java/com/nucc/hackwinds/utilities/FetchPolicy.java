@@ -0,0 +1,191 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import com.koushikdutta.ion.HeadersResponse;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides how much to fetch based on the network the device is on. Wifi gets everything, cellular
+ * only gets what the screen needs, and slow connections or an exhausted cellular budget only get the
+ * bare minimum. Also keeps track of how many bytes came in and how many fetches were skipped.
+ */
+public class FetchPolicy implements ByteCounter {
+
+    public static final int NETWORK_NONE = 0;
+    public static final int NETWORK_SLOW = 1;
+    public static final int NETWORK_METERED = 2;
+    public static final int NETWORK_UNMETERED = 3;
+
+    private static final String TAG = "FetchPolicy";
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // How much cellular data a session can use before the policy drops to the minimum
+    private static final long METERED_SESSION_BUDGET_BYTES = 5 * 1024 * 1024;
+
+    private static FetchPolicy mInstance;
+
+    private final ConnectivityManager mConnectivityManager;
+
+    // Counters to check what the policy is actually saving
+    private final AtomicLong mFetchedBytes = new AtomicLong();
+    private final AtomicLong mMeteredBytes = new AtomicLong();
+    private final AtomicInteger mSkippedFetchCount = new AtomicInteger();
+
+    public static synchronized FetchPolicy getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new FetchPolicy(context);
+        }
+        return mInstance;
+    }
+
+    private FetchPolicy(Context context) {
+        mConnectivityManager = (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Classifies the active network.
+     * @return One of the NETWORK_ constants
+     */
+    public int getNetworkClass() {
+        NetworkInfo netInfo = mConnectivityManager.getActiveNetworkInfo();
+        if (netInfo == null || !netInfo.isConnectedOrConnecting()) {
+            return NETWORK_NONE;
+        }
+
+        if (netInfo.getType() == ConnectivityManager.TYPE_MOBILE && isSlowMobileNetwork(netInfo.getSubtype())) {
+            return NETWORK_SLOW;
+        }
+
+        if (mConnectivityManager.isActiveNetworkMetered()) {
+            return NETWORK_METERED;
+        }
+        return NETWORK_UNMETERED;
+    }
+
+    /**
+     * Classifies the active network, treating cellular as slow once the session budget is used up.
+     * @return One of the NETWORK_ constants
+     */
+    public int getEffectiveNetworkClass() {
+        int networkClass = getNetworkClass();
+        if (networkClass == NETWORK_METERED && isOverBudget()) {
+            return NETWORK_SLOW;
+        }
+        return networkClass;
+    }
+
+    public boolean isOverBudget() {
+        return mMeteredBytes.get() >= METERED_SESSION_BUDGET_BYTES;
+    }
+
+    /**
+     * @param fullFrameCount The number of camera frames shown on a fast connection
+     * @return The number of camera frames worth downloading right now
+     */
+    public int getCameraFrameCount(int fullFrameCount) {
+        return getEffectiveNetworkClass() == NETWORK_UNMETERED ? fullFrameCount : Math.min(1, fullFrameCount);
+    }
+
+    /**
+     * @return True if forecast chart animations should load all of their frames up front
+     */
+    public boolean shouldAnimateForecastCharts() {
+        return getEffectiveNetworkClass() == NETWORK_UNMETERED;
+    }
+
+    /**
+     * @return True if data nobody is looking at yet, like the next day's charts, should be fetched ahead of time
+     */
+    public boolean shouldPrefetch() {
+        return getEffectiveNetworkClass() == NETWORK_UNMETERED;
+    }
+
+    /**
+     * @return True if the full wave spectra should come along with buoy readings
+     */
+    public boolean shouldFetchWaveSpectra() {
+        return getEffectiveNetworkClass() != NETWORK_SLOW;
+    }
+
+    /**
+     * Counts bytes that came in over the network against the session.
+     * @param bytes The size of the response body
+     */
+    public void recordBytes(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+
+        mFetchedBytes.addAndGet(bytes);
+        if (getNetworkClass() != NETWORK_UNMETERED) {
+            long meteredBytes = mMeteredBytes.addAndGet(bytes);
+            if (meteredBytes >= METERED_SESSION_BUDGET_BYTES && meteredBytes - bytes < METERED_SESSION_BUDGET_BYTES) {
+                Log.d(TAG, "Cellular budget of " + METERED_SESSION_BUDGET_BYTES + " bytes used up, fetching the minimum from here on");
+            }
+        }
+    }
+
+    /**
+     * Counts a fetch that was left out because of the policy.
+     */
+    public void recordSkippedFetch() {
+        mSkippedFetchCount.incrementAndGet();
+    }
+
+    /**
+     * Counts an ion response against the session, by its Content-Length when the server sent one and
+     * by the size of the body in UTF-8 otherwise.
+     * @param headers The headers of the response
+     * @param body The response body
+     */
+    public void recordBytes(HeadersResponse headers, String body) {
+        String contentLength = headers != null ? headers.getHeaders().get(CONTENT_LENGTH_HEADER) : null;
+        if (contentLength != null) {
+            try {
+                recordBytes(Long.parseLong(contentLength.trim()));
+                return;
+            } catch (NumberFormatException e) {
+                // Fall back to the body
+            }
+        }
+
+        if (body != null) {
+            recordBytes(body.getBytes(UTF8).length);
+        }
+    }
+
+    public long getFetchedBytes() {
+        return mFetchedBytes.get();
+    }
+
+    public long getMeteredBytes() {
+        return mMeteredBytes.get();
+    }
+
+    public int getSkippedFetchCount() {
+        return mSkippedFetchCount.get();
+    }
+
+    private static boolean isSlowMobileNetwork(int subtype) {
+        switch (subtype) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+
+import com.koushikdutta.async.future.FutureCallback;
+import com.koushikdutta.ion.Ion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class ForecastChartCache {
+
+    public interface ChartFramesListener {
+        void onChartFrameLoaded(int index, Bitmap frame);
+        void onChartFramesLoaded(Bitmap[] frames);
+        void onChartFramesFailed();
+    }
+
+    // The region of the wavewatch plots that actually shows the chart
+    private static final int CROP_X = 60;
+    private static final int CROP_Y = 50;
+    private static final int CROP_WIDTH = 350;
+    private static final int CROP_HEIGHT = 180;
+
+    private static ForecastChartCache mInstance;
+
+    private final Context mContext;
+
+    // Finished frame sets never change, so the cache can size them once when they go in
+    private final LruCache<String, Bitmap[]> mFrameSets;
+
+    // Frame sets still downloading, kept out of the cache until every frame is in
+    private final HashMap<String, ChartFrameSet> mLoadingFrameSets;
+
+    private static class ChartFrameSet {
+        final Bitmap[] frames;
+        final boolean[] requested;
+        final ArrayList<ChartFramesListener> listeners = new ArrayList<>();
+        int loadedCount = 0;
+        boolean failed = false;
+
+        ChartFrameSet(int frameCount) {
+            frames = new Bitmap[frameCount];
+            requested = new boolean[frameCount];
+        }
+
+        boolean isComplete() {
+            return loadedCount == frames.length;
+        }
+    }
+
+    public static ForecastChartCache getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new ForecastChartCache(context);
+        }
+        return mInstance;
+    }
+
+    private ForecastChartCache(Context context) {
+        mContext = context.getApplicationContext();
+
+        // Give the cropped frames up to an eighth of the heap
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        mFrameSets = new LruCache<String, Bitmap[]>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap[] frames) {
+                int byteCount = 0;
+                for (Bitmap frame : frames) {
+                    byteCount += frame.getRowBytes() * frame.getHeight();
+                }
+                return byteCount;
+            }
+        };
+        mLoadingFrameSets = new HashMap<>();
+    }
+
+    /**
+     * Builds the key for a set of chart frames.
+     * @param chartType The chart url prefix
+     * @param dayIndex The forecast day the frames are for
+     * @param modelRun The model run the frames were generated from
+     * @return The cache key
+     */
+    public static String getFrameSetKey(String chartType, int dayIndex, String modelRun) {
+        return chartType + "/" + dayIndex + "/" + modelRun;
+    }
+
+    /**
+     * Gets the frames for the given key, downloading every missing frame in parallel. Must be called
+     * from the main thread, the listener is called on the main thread.
+     * @param key The frame set key
+     * @param urls The url of every frame in order
+     * @param listener Notified as frames arrive, may be null to only prefetch
+     */
+    public void loadFrames(String key, String[] urls, ChartFramesListener listener) {
+        loadFrames(key, urls, urls.length, listener);
+    }
+
+    /**
+     * Gets only the first frame for the given key. It lands in the same frame set as the full animation,
+     * so loading the frames later only downloads the ones that are still missing.
+     * @param key The frame set key
+     * @param urls The url of every frame in order
+     * @param listener Notified as frames arrive
+     */
+    public void loadFirstFrame(String key, String[] urls, ChartFramesListener listener) {
+        loadFrames(key, urls, 1, listener);
+    }
+
+    private void loadFrames(String key, String[] urls, int frameCount, ChartFramesListener listener) {
+        Bitmap[] cachedFrames = mFrameSets.get(key);
+        if (cachedFrames != null) {
+            if (listener != null) {
+                for (int i = 0; i < cachedFrames.length; i++) {
+                    listener.onChartFrameLoaded(i, cachedFrames[i]);
+                }
+                listener.onChartFramesLoaded(cachedFrames);
+            }
+            return;
+        }
+
+        ChartFrameSet frameSet = mLoadingFrameSets.get(key);
+        if (frameSet != null) {
+            if (listener != null) {
+                // Hand over whatever has already arrived, the rest comes as it finishes
+                for (int i = 0; i < frameSet.frames.length; i++) {
+                    if (frameSet.frames[i] != null) {
+                        listener.onChartFrameLoaded(i, frameSet.frames[i]);
+                    }
+                }
+                frameSet.listeners.add(listener);
+            }
+        } else {
+            frameSet = new ChartFrameSet(urls.length);
+            if (listener != null) {
+                frameSet.listeners.add(listener);
+            }
+            mLoadingFrameSets.put(key, frameSet);
+        }
+
+        for (int i = 0; i < frameCount; i++) {
+            if (!frameSet.requested[i]) {
+                frameSet.requested[i] = true;
+                loadFrame(key, frameSet, i, urls[i]);
+            }
+        }
+    }
+
+    /**
+     * Stops notifying the listener about any frame sets it is waiting on.
+     * @param listener The listener to remove
+     */
+    public void removeListener(ChartFramesListener listener) {
+        for (ChartFrameSet frameSet : mLoadingFrameSets.values()) {
+            frameSet.listeners.remove(listener);
+        }
+    }
+
+    private void loadFrame(final String key, final ChartFrameSet frameSet, final int index, String url) {
+        Ion.with(mContext).load(url).asBitmap().setCallback(new FutureCallback<Bitmap>() {
+            @Override
+            public void onCompleted(Exception e, Bitmap result) {
+                if (frameSet.failed) {
+                    return;
+                }
+
+                if (result == null) {
+                    frameSet.failed = true;
+                    for (ChartFramesListener listener : new ArrayList<>(frameSet.listeners)) {
+                        listener.onChartFramesFailed();
+                    }
+                    frameSet.listeners.clear();
+
+                    // Drop the set so the next load gives it another try
+                    if (mLoadingFrameSets.get(key) == frameSet) {
+                        mLoadingFrameSets.remove(key);
+                    }
+                    return;
+                }
+
+                Bitmap frame = Bitmap.createBitmap(result, CROP_X, CROP_Y, CROP_WIDTH, CROP_HEIGHT);
+                frameSet.frames[index] = frame;
+                frameSet.loadedCount++;
+
+                for (ChartFramesListener listener : new ArrayList<>(frameSet.listeners)) {
+                    listener.onChartFrameLoaded(index, frame);
+                }
+
+                if (frameSet.isComplete()) {
+                    for (ChartFramesListener listener : new ArrayList<>(frameSet.listeners)) {
+                        listener.onChartFramesLoaded(frameSet.frames);
+                    }
+                    frameSet.listeners.clear();
+
+                    // Only finished sets go in the cache, they don't change size after that
+                    if (mLoadingFrameSets.get(key) == frameSet) {
+                        mLoadingFrameSets.remove(key);
+                        mFrameSets.put(key, frameSet.frames);
+                    }
+                }
+            }
+        });
+    }
+}
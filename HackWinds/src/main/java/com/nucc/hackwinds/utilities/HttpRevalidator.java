@@ -0,0 +1,309 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.koushikdutta.ion.HeadersResponse;
+import com.koushikdutta.ion.builder.Builders;
+import com.nucc.hackwinds.tasks.ServiceProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+public class HttpRevalidator {
+
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+    public static final String ETAG_HEADER = "ETag";
+    public static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    public static final int NOT_MODIFIED_STATUS = HttpStatusCodes.STATUS_CODE_NOT_MODIFIED;
+
+    private static final String TAG = "HttpRevalidator";
+    private static final String VALIDATORS_KEY = "http_validators";
+    private static final String API_RESPONSE_PREFIX = "api_";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static HttpRevalidator mInstance;
+
+    private final ResponseStore mResponseStore;
+    private final ByteCounter mByteCounter;
+    private final Executor mExecutor;
+
+    // The validators for every cached body, all held in memory so the main thread never reads them from disk
+    private final HashMap<String, String[]> mValidators;
+    private final CountDownLatch mValidatorsLoaded;
+
+    // Metrics for how much the conditional requests save
+    private int mNotModifiedCount = 0;
+    private long mBytesSaved = 0;
+
+    public static synchronized HttpRevalidator getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new HttpRevalidator(DiskCache.getInstance(context), FetchPolicy.getInstance(context), Executors.newSingleThreadExecutor());
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param responseStore Where the bodies and validators are kept
+     * @param byteCounter Counts the bytes of full responses
+     * @param executor Loads and saves the validators, in order
+     */
+    HttpRevalidator(ResponseStore responseStore, ByteCounter byteCounter, Executor executor) {
+        mResponseStore = responseStore;
+        mByteCounter = byteCounter;
+        mExecutor = executor;
+        mValidators = new HashMap<>();
+        mValidatorsLoaded = new CountDownLatch(1);
+
+        // Requests made before this finishes just go out without validators
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadValidators();
+            }
+        });
+    }
+
+    /**
+     * Gets the entity tag to send with a conditional request for the given cached body.
+     * @param key The disk cache key of the cached body
+     * @return The entity tag or null if the body can't be revalidated
+     */
+    public String getETag(String key) {
+        return getValidators(key)[0];
+    }
+
+    /**
+     * Gets the last modified date to send with a conditional request for the given cached body.
+     * @param key The disk cache key of the cached body
+     * @return The last modified date or null if the body can't be revalidated
+     */
+    public String getLastModified(String key) {
+        return getValidators(key)[1];
+    }
+
+    /**
+     * Stores the validators that came back with a full response. Call this after the body
+     * has been written to the disk cache under the same key.
+     * @param key The disk cache key of the cached body
+     * @param etag The ETag header of the response, may be null
+     * @param lastModified The Last-Modified header of the response, may be null
+     */
+    public void putValidators(String key, String etag, String lastModified) {
+        synchronized (mValidators) {
+            if (etag == null && lastModified == null) {
+                mValidators.remove(key);
+            } else {
+                mValidators.put(key, new String[] {etag, lastModified});
+            }
+        }
+        saveValidators();
+    }
+
+    /**
+     * Records that the server answered a conditional request with 304 Not Modified.
+     * @param key The disk cache key of the cached body that was reused
+     */
+    public void recordNotModified(String key) {
+        long savedBytes = mResponseStore.getSize(key);
+
+        // The server just vouched for the cached body, so its age starts over
+        mResponseStore.touch(key);
+        synchronized (mValidators) {
+            mNotModifiedCount++;
+            mBytesSaved += savedBytes;
+        }
+
+        Log.d(TAG, key + " not modified, " + savedBytes + " bytes saved (" + getBytesSaved() + " total)");
+    }
+
+    public int getNotModifiedCount() {
+        synchronized (mValidators) {
+            return mNotModifiedCount;
+        }
+    }
+
+    public long getBytesSaved() {
+        synchronized (mValidators) {
+            return mBytesSaved;
+        }
+    }
+
+    /**
+     * Adds the conditional headers for the given cached body to an ion request. The request skips
+     * ion's own response cache so the validators here are the only ones in play.
+     * @param request The ion request builder
+     * @param key The disk cache key of the cached body
+     * @return The request builder
+     */
+    public Builders.Any.B applyValidators(Builders.Any.B request, String key) {
+        request.noCache();
+
+        String etag = getETag(key);
+        String lastModified = getLastModified(key);
+        if (etag != null) {
+            request.setHeader(IF_NONE_MATCH_HEADER, etag);
+        }
+        if (lastModified != null) {
+            request.setHeader(IF_MODIFIED_SINCE_HEADER, lastModified);
+        }
+        return request;
+    }
+
+    /**
+     * Stores the validators from an ion response. Call this after the body has been written to
+     * the disk cache under the same key.
+     * @param key The disk cache key of the cached body
+     * @param headers The headers of the response
+     */
+    public void putValidators(String key, HeadersResponse headers) {
+        putValidators(key, headers.getHeaders().get(ETAG_HEADER), headers.getHeaders().get(LAST_MODIFIED_HEADER));
+    }
+
+    /**
+     * Executes an api request, revalidating the previous response if there is one. A 304 response is
+     * answered from the cached body. Must not be called from the main thread.
+     * @param request The api request to execute
+     * @return The parsed response
+     * @throws IOException When the request fails and there is nothing cached to fall back on
+     */
+    public <R> R execute(AbstractGoogleClientRequest<R> request) throws IOException {
+        String key = getApiResponseKey(request.buildHttpRequestUrl().build());
+
+        // Off the main thread it's fine to wait for the validators, and to check the body is still there
+        awaitValidators();
+        String etag = null;
+        String lastModified = null;
+        if (mResponseStore.getLastModified(key) != 0) {
+            etag = getETag(key);
+            lastModified = getLastModified(key);
+        }
+        if (etag != null) {
+            request.getRequestHeaders().setIfNoneMatch(etag);
+        }
+        if (lastModified != null) {
+            request.getRequestHeaders().setIfModifiedSince(lastModified);
+        }
+
+        String body;
+        try {
+            HttpResponse response = request.executeUnparsed();
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            response.download(content);
+            mByteCounter.recordBytes(content.size());
+
+            Charset charset = response.getContentCharset();
+            body = new String(content.toByteArray(), charset != null ? charset : UTF8);
+
+            // The validators only go out once the body they describe is on disk, otherwise a 304 could be
+            // answered with the body that was there before
+            final String responseKey = key;
+            final String etagHeader = response.getHeaders().getETag();
+            final String lastModifiedHeader = response.getHeaders().getLastModified();
+            mResponseStore.putString(key, body, new Runnable() {
+                @Override
+                public void run() {
+                    putValidators(responseKey, etagHeader, lastModifiedHeader);
+                }
+            });
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() != NOT_MODIFIED_STATUS) {
+                throw e;
+            }
+
+            body = mResponseStore.getString(key);
+            if (body == null) {
+                // The cached body went missing, drop the validators so the next request is a full one
+                putValidators(key, null, null);
+                throw e;
+            }
+            recordNotModified(key);
+        }
+
+        return ServiceProvider.getJsonFactory().fromString(body, request.getResponseClass());
+    }
+
+    private String[] getValidators(String key) {
+        synchronized (mValidators) {
+            String[] validators = mValidators.get(key);
+            return validators != null ? validators : new String[2];
+        }
+    }
+
+    private void awaitValidators() {
+        try {
+            mValidatorsLoaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loadValidators() {
+        String rawValidators = mResponseStore.getString(VALIDATORS_KEY);
+        if (rawValidators != null) {
+            // One line per body, the key, entity tag and last modified date separated by tabs
+            HashMap<String, String[]> loadedValidators = new HashMap<>();
+            for (String line : rawValidators.split("\n")) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 3) {
+                    continue;
+                }
+                loadedValidators.put(parts[0], new String[] {parts[1].isEmpty() ? null : parts[1], parts[2].isEmpty() ? null : parts[2]});
+            }
+
+            synchronized (mValidators) {
+                // Anything stored while this was loading is newer
+                for (Map.Entry<String, String[]> entry : loadedValidators.entrySet()) {
+                    if (!mValidators.containsKey(entry.getKey())) {
+                        mValidators.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        mValidatorsLoaded.countDown();
+    }
+
+    private void saveValidators() {
+        // Runs behind the load so the file never loses entries that weren't read yet
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                StringBuilder builder = new StringBuilder();
+                synchronized (mValidators) {
+                    for (Map.Entry<String, String[]> entry : mValidators.entrySet()) {
+                        String[] validators = entry.getValue();
+                        builder.append(entry.getKey()).append('\t')
+                                .append(validators[0] != null ? validators[0] : "").append('\t')
+                                .append(validators[1] != null ? validators[1] : "").append('\n');
+                    }
+                }
+                mResponseStore.putString(VALIDATORS_KEY, builder.toString());
+            }
+        });
+    }
+
+    private static String getApiResponseKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            return API_RESPONSE_PREFIX + String.format("%032x", new BigInteger(1, hash)) + ".json";
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return API_RESPONSE_PREFIX + Integer.toHexString(url.hashCode()) + ".json";
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.nucc.hackwinds.utilities;
+
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.koushikdutta.ion.Ion;
+
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets a live camera's HLS stream ready before the user taps it. The master playlist is resolved to
+ * the variant the player starts on, that playlist is fetched and the segments playback starts on are
+ * touched with small range requests, so the dns lookup and the cdn edge are warm by the time the
+ * player asks for them. The player still opens the master playlist so it keeps switching bitrates.
+ * Also keeps the tap to first frame timings so warm and cold starts can be compared.
+ */
+public class LiveStreamPrewarmer {
+
+    private static final String TAG = "LiveStreamPrewarmer";
+    private static final String STREAM_INF_TAG = "#EXT-X-STREAM-INF";
+    private static final String END_LIST_TAG = "#EXT-X-ENDLIST";
+
+    // The player starts a live stream this many segments back from the end of the playlist
+    private static final int LIVE_EDGE_SEGMENT_OFFSET = 3;
+    private static final int PREWARM_SEGMENT_COUNT = 2;
+    private static final int SEGMENT_WARMUP_BYTES = 1024;
+    private static final String RANGE_HEADER = "Range";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // How long a warmed stream counts as warm before it is warmed again
+    private static final long PREWARM_LIFETIME = TimeUnit.MINUTES.toMillis(5);
+
+    private static LiveStreamPrewarmer mInstance;
+
+    private final Context mContext;
+    private final ExecutorService mPrewarmExecutor;
+
+    // Stream url to when it was last warmed
+    private final HashMap<String, Long> mPrewarmTimes;
+
+    // Metrics for tap to first frame, split by whether the stream was warm
+    private int mWarmStartCount = 0;
+    private long mWarmStartMillis = 0;
+    private int mColdStartCount = 0;
+    private long mColdStartMillis = 0;
+
+    public static synchronized LiveStreamPrewarmer getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new LiveStreamPrewarmer(context);
+        }
+        return mInstance;
+    }
+
+    private LiveStreamPrewarmer(Context context) {
+        mContext = context.getApplicationContext();
+        mPrewarmExecutor = Executors.newSingleThreadExecutor();
+        mPrewarmTimes = new HashMap<>();
+    }
+
+    /**
+     * @param url The url of a video stream
+     * @return True if the url points at an HLS playlist
+     */
+    public static boolean isLiveStreamUrl(String url) {
+        if (url == null) {
+            return false;
+        }
+
+        String path = Uri.parse(url).getPath();
+        return path != null && path.toLowerCase().endsWith(".m3u8");
+    }
+
+    /**
+     * Resolves and fetches the start of a live stream in the background. Does nothing if the stream
+     * was warmed recently or the connection isn't worth spending on something the user may not open.
+     * @param url The url of the stream's master playlist
+     */
+    public void prewarm(final String url) {
+        if (!isLiveStreamUrl(url) || isWarm(url)) {
+            return;
+        }
+
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(mContext);
+        if (!fetchPolicy.shouldPrefetch()) {
+            fetchPolicy.recordSkippedFetch();
+            return;
+        }
+
+        mPrewarmExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isWarm(url)) {
+                    return;
+                }
+
+                long startTime = SystemClock.elapsedRealtime();
+                try {
+                    String variantUrl = resolveVariant(url);
+                    int segmentCount = fetchStartingSegments(variantUrl);
+
+                    synchronized (mPrewarmTimes) {
+                        mPrewarmTimes.put(url, System.currentTimeMillis());
+                    }
+                    Log.d(TAG, "Warmed " + url + " with " + segmentCount + " segments in " + (SystemClock.elapsedRealtime() - startTime) + "ms");
+                } catch (Exception e) {
+                    Log.d(TAG, "Failed to warm " + url + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * @param url The url of the stream's master playlist
+     * @return True if the stream was warmed recently enough that its connections should still be warm
+     */
+    public boolean isWarm(String url) {
+        synchronized (mPrewarmTimes) {
+            Long prewarmTime = mPrewarmTimes.get(url);
+            return prewarmTime != null && System.currentTimeMillis() - prewarmTime < PREWARM_LIFETIME;
+        }
+    }
+
+    /**
+     * Records how long a stream took to show its first frame after the user tapped it.
+     * @param millis The time from the tap to the first frame in milliseconds
+     * @param warm True if the stream had been warmed
+     */
+    public void recordTimeToFirstFrame(long millis, boolean warm) {
+        synchronized (mPrewarmTimes) {
+            if (warm) {
+                mWarmStartCount++;
+                mWarmStartMillis += millis;
+            } else {
+                mColdStartCount++;
+                mColdStartMillis += millis;
+            }
+        }
+
+        Log.d(TAG, "First frame " + millis + "ms after the tap (" + (warm ? "warm" : "cold") + "), average warm " +
+                getAverageWarmStartMillis() + "ms, average cold " + getAverageColdStartMillis() + "ms");
+    }
+
+    public long getAverageWarmStartMillis() {
+        synchronized (mPrewarmTimes) {
+            return mWarmStartCount > 0 ? mWarmStartMillis / mWarmStartCount : 0;
+        }
+    }
+
+    public long getAverageColdStartMillis() {
+        synchronized (mPrewarmTimes) {
+            return mColdStartCount > 0 ? mColdStartMillis / mColdStartCount : 0;
+        }
+    }
+
+    private String resolveVariant(String url) throws Exception {
+        String playlist = fetchPlaylist(url);
+
+        // A master playlist lists a variant after each stream tag, the player starts on the first one
+        String[] lines = playlist.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (!lines[i].trim().startsWith(STREAM_INF_TAG)) {
+                continue;
+            }
+
+            for (int j = i + 1; j < lines.length; j++) {
+                String line = lines[j].trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    return new URL(new URL(url), line).toString();
+                }
+            }
+        }
+
+        // Already a media playlist
+        return url;
+    }
+
+    private int fetchStartingSegments(String variantUrl) throws Exception {
+        String playlist = fetchPlaylist(variantUrl);
+
+        ArrayList<String> segmentUrls = new ArrayList<>();
+        boolean endList = false;
+        for (String rawLine : playlist.split("\n")) {
+            String line = rawLine.trim();
+            if (line.startsWith(END_LIST_TAG)) {
+                endList = true;
+            } else if (!line.isEmpty() && !line.startsWith("#")) {
+                segmentUrls.add(new URL(new URL(variantUrl), line).toString());
+            }
+        }
+
+        // Recorded streams play from the top, live ones from near the end
+        int firstSegment = endList ? 0 : Math.max(0, segmentUrls.size() - LIVE_EDGE_SEGMENT_OFFSET);
+        int lastSegment = Math.min(segmentUrls.size(), firstSegment + PREWARM_SEGMENT_COUNT);
+
+        // Only the first few bytes of each segment, enough to open the connection and pull the segment onto
+        // the cdn edge without downloading it or leaving it in the http cache
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(mContext);
+        for (int i = firstSegment; i < lastSegment; i++) {
+            byte[] segmentStart = Ion.with(mContext).load(segmentUrls.get(i)).noCache()
+                    .setHeader(RANGE_HEADER, "bytes=0-" + (SEGMENT_WARMUP_BYTES - 1))
+                    .asByteArray().get();
+            fetchPolicy.recordBytes(segmentStart != null ? segmentStart.length : 0);
+        }
+        return lastSegment - firstSegment;
+    }
+
+    private String fetchPlaylist(String url) throws Exception {
+        byte[] playlist = Ion.with(mContext).load(url).noCache().asByteArray().get();
+        if (playlist == null) {
+            throw new IllegalStateException("Empty playlist");
+        }
+
+        FetchPolicy.getInstance(mContext).recordBytes(playlist.length);
+        return new String(playlist, UTF8);
+    }
+}
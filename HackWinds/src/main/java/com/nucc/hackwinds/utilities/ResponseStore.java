@@ -0,0 +1,25 @@
+package com.nucc.hackwinds.utilities;
+
+
+/**
+ * Where response bodies and their validators are kept between sessions. DiskCache outside of tests.
+ */
+interface ResponseStore {
+
+    String getString(String key);
+
+    void putString(String key, String value);
+
+    /**
+     * Writes the value and runs the callback once it can be read back. The callback doesn't run if the write fails.
+     */
+    void putString(String key, String value, Runnable onWritten);
+
+    long getLastModified(String key);
+
+    long getSize(String key);
+
+    void touch(String key);
+
+    void remove(String key);
+}
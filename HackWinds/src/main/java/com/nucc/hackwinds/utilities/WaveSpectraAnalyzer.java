@@ -0,0 +1,358 @@
+package com.nucc.hackwinds.utilities;
+
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesMeasurementLabelMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesUnitLabelMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesWaveSpectraMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a buoy's wave energy spectrum into its swell partitions and computes the significant
+ * height, peak period and mean direction of each one.
+ */
+public class WaveSpectraAnalyzer {
+
+    private static final double METERS_TO_FEET = 3.28084;
+
+    // Peaks smaller than this fraction of the biggest one are treated as noise
+    private static final double MIN_PEAK_FRACTION = 0.05;
+
+    // Two partitions merge when the trough between them doesn't drop below this fraction of the smaller peak
+    private static final double MERGE_TROUGH_FRACTION = 0.7;
+
+    private static final int MAX_PARTITIONS = 4;
+
+    private final double[] mFrequencies;
+    private final double[] mEnergies;
+    private final double[] mAngles;
+    private final int mCount;
+    private final boolean mEnergyInFeet;
+
+    /**
+     * @param spectra The spectra reported by the buoy. Frequency is expected in Hz and angle as the mean
+     *                direction in degrees for each frequency band.
+     * @param energyInFeet True if the energy is in ft^2/Hz, otherwise m^2/Hz
+     */
+    public WaveSpectraAnalyzer(ApiApiMessagesWaveSpectraMessage spectra, boolean energyInFeet) {
+        mEnergyInFeet = energyInFeet;
+
+        List<Double> frequencies = spectra.getFrequency();
+        List<Double> energies = spectra.getEnergy();
+        List<Double> angles = spectra.getAngle();
+
+        int count = 0;
+        if (frequencies != null && energies != null) {
+            count = Math.min(frequencies.size(), energies.size());
+        }
+
+        mCount = count;
+        mFrequencies = new double[count];
+        mEnergies = new double[count];
+        mAngles = new double[count];
+        for (int i = 0; i < count; i++) {
+            mFrequencies[i] = valueOf(frequencies.get(i));
+            mEnergies[i] = Math.max(0, valueOf(energies.get(i)));
+            mAngles[i] = angles != null && i < angles.size() ? valueOf(angles.get(i)) : 0;
+        }
+    }
+
+    public int getBandCount() {
+        return mCount;
+    }
+
+    /**
+     * Works out the unit of a buoy reading's spectral energy. The unit labels are used when they name
+     * one for the energy, otherwise the height of the whole spectrum is checked against the reported
+     * wave height, which is always in the units the reading was requested in. Without either the
+     * energy is taken to be in m^2/Hz like NDBC publishes it.
+     * @param data The buoy reading with its wave spectra
+     * @param heightsInFeet True if the reading was requested in english units
+     * @return True if the energy is in ft^2/Hz
+     */
+    public static boolean isEnergyInFeet(ApiApiMessagesDataMessage data, boolean heightsInFeet) {
+        ApiApiMessagesUnitLabelMessage units = data.getUnits();
+        if (units != null && units.getMeasurements() != null) {
+            for (ApiApiMessagesMeasurementLabelMessage measurement : units.getMeasurements()) {
+                if (measurement.getMeasurement() != null && measurement.getLabel() != null &&
+                        measurement.getMeasurement().toLowerCase().contains("energy")) {
+                    String label = measurement.getLabel().toLowerCase();
+                    return label.startsWith("ft") || label.startsWith("feet");
+                }
+            }
+        }
+
+        if (data.getWaveSpectra() == null || data.getWaveSummary() == null || data.getWaveSummary().getWaveHeight() == null) {
+            return false;
+        }
+
+        double spectrumHeight = new WaveSpectraAnalyzer(data.getWaveSpectra(), false).getSignificantWaveHeight();
+        double reportedHeight = data.getWaveSummary().getWaveHeight();
+        if (spectrumHeight <= 0 || reportedHeight <= 0) {
+            return false;
+        }
+
+        // The two heights either match or are off by the meters to feet factor, see which it's closer to
+        double reportedMeters = heightsInFeet ? reportedHeight / METERS_TO_FEET : reportedHeight;
+        double reportedFeet = heightsInFeet ? reportedHeight : reportedHeight * METERS_TO_FEET;
+        return Math.abs(Math.log(spectrumHeight / reportedFeet)) < Math.abs(Math.log(spectrumHeight / reportedMeters));
+    }
+
+    /**
+     * @return The significant wave height of the whole spectrum, in the length unit of the energy
+     */
+    public double getSignificantWaveHeight() {
+        double zerothMoment = 0;
+        for (int i = 0; i < mCount; i++) {
+            zerothMoment += mEnergies[i] * getBandWidth(i);
+        }
+        return 4 * Math.sqrt(zerothMoment);
+    }
+
+    /**
+     * Finds the swell partitions in the spectrum.
+     * @param inFeet True to report heights in feet, otherwise meters
+     * @return The partitions ordered from the biggest to the smallest
+     */
+    public List<ApiApiMessagesSwellMessage> getSwellComponents(boolean inFeet) {
+        ArrayList<ApiApiMessagesSwellMessage> components = new ArrayList<>();
+        if (mCount < 3) {
+            return components;
+        }
+
+        double[] smoothed = smooth(mEnergies);
+        int[] partitions = partition(smoothed);
+        int partitionCount = 0;
+        for (int partition : partitions) {
+            partitionCount = Math.max(partitionCount, partition + 1);
+        }
+
+        // Sum up each partition in one pass
+        double[] zerothMoments = new double[partitionCount];
+        double[] sinSums = new double[partitionCount];
+        double[] cosSums = new double[partitionCount];
+        int[] peakBands = new int[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            peakBands[i] = -1;
+        }
+
+        for (int i = 0; i < mCount; i++) {
+            int partition = partitions[i];
+            if (partition < 0) {
+                continue;
+            }
+
+            double bandEnergy = mEnergies[i] * getBandWidth(i);
+            double angle = Math.toRadians(mAngles[i]);
+            zerothMoments[partition] += bandEnergy;
+            sinSums[partition] += bandEnergy * Math.sin(angle);
+            cosSums[partition] += bandEnergy * Math.cos(angle);
+
+            if (peakBands[partition] < 0 || mEnergies[i] > mEnergies[peakBands[partition]]) {
+                peakBands[partition] = i;
+            }
+        }
+
+        for (int i = 0; i < partitionCount; i++) {
+            if (zerothMoments[i] <= 0 || peakBands[i] < 0) {
+                continue;
+            }
+
+            // Comes out in the length unit of the energy
+            double height = 4 * Math.sqrt(zerothMoments[i]);
+            if (inFeet && !mEnergyInFeet) {
+                height *= METERS_TO_FEET;
+            } else if (!inFeet && mEnergyInFeet) {
+                height /= METERS_TO_FEET;
+            }
+
+            double direction = Math.toDegrees(Math.atan2(sinSums[i], cosSums[i]));
+            if (direction < 0) {
+                direction += 360;
+            }
+
+            ApiApiMessagesSwellMessage swell = new ApiApiMessagesSwellMessage();
+            swell.setWaveHeight(height);
+            swell.setPeriod(getPeakPeriod(peakBands[i]));
+            swell.setDirection(direction);
+            swell.setCompassDirection(Extensions.getCompassDirection(String.valueOf((int) Math.round(direction) % 360)));
+            components.add(swell);
+        }
+
+        Collections.sort(components, new Comparator<ApiApiMessagesSwellMessage>() {
+            @Override
+            public int compare(ApiApiMessagesSwellMessage first, ApiApiMessagesSwellMessage second) {
+                return Double.compare(second.getWaveHeight(), first.getWaveHeight());
+            }
+        });
+
+        while (components.size() > MAX_PARTITIONS) {
+            components.remove(components.size() - 1);
+        }
+        return components;
+    }
+
+    /**
+     * Assigns every band to the peak it climbs to, then merges neighboring partitions that aren't
+     * separated by a real trough.
+     * @return The partition of each band, or -1 for bands without a meaningful peak
+     */
+    private int[] partition(double[] energies) {
+        int[] partitions = new int[mCount];
+
+        double maxEnergy = 0;
+        for (double energy : energies) {
+            maxEnergy = Math.max(maxEnergy, energy);
+        }
+        if (maxEnergy <= 0) {
+            for (int i = 0; i < mCount; i++) {
+                partitions[i] = -1;
+            }
+            return partitions;
+        }
+
+        // Climb from every band to its local maximum, labeling the maxima as they're found
+        int[] peakLabels = new int[mCount];
+        for (int i = 0; i < mCount; i++) {
+            peakLabels[i] = -1;
+        }
+        int labelCount = 0;
+        for (int i = 0; i < mCount; i++) {
+            int peak = climb(energies, i);
+            if (peakLabels[peak] < 0) {
+                peakLabels[peak] = labelCount++;
+            }
+            partitions[i] = peakLabels[peak];
+        }
+
+        // Keep the energy of each partition's peak and the lowest point where it meets the next one
+        double[] peakEnergies = new double[labelCount];
+        for (int i = 0; i < mCount; i++) {
+            if (peakLabels[i] >= 0) {
+                peakEnergies[peakLabels[i]] = energies[i];
+            }
+        }
+
+        // Merge across shallow troughs, walking the bands from low to high frequency
+        int[] mergedLabels = new int[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            mergedLabels[i] = i;
+        }
+        for (int i = 1; i < mCount; i++) {
+            int previous = find(mergedLabels, partitions[i - 1]);
+            int current = find(mergedLabels, partitions[i]);
+            if (previous == current) {
+                continue;
+            }
+
+            double trough = Math.min(energies[i - 1], energies[i]);
+            double smallerPeak = Math.min(peakEnergies[previous], peakEnergies[current]);
+            if (trough >= MERGE_TROUGH_FRACTION * smallerPeak) {
+                int keep = peakEnergies[previous] >= peakEnergies[current] ? previous : current;
+                int drop = keep == previous ? current : previous;
+                mergedLabels[drop] = keep;
+            }
+        }
+
+        // Renumber the surviving partitions and drop the ones that are just noise
+        int[] finalLabels = new int[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            finalLabels[i] = -1;
+        }
+        int finalCount = 0;
+        for (int i = 0; i < mCount; i++) {
+            int root = find(mergedLabels, partitions[i]);
+            if (peakEnergies[root] < MIN_PEAK_FRACTION * maxEnergy) {
+                partitions[i] = -1;
+                continue;
+            }
+
+            if (finalLabels[root] < 0) {
+                finalLabels[root] = finalCount++;
+            }
+            partitions[i] = finalLabels[root];
+        }
+
+        return partitions;
+    }
+
+    private int climb(double[] energies, int index) {
+        while (true) {
+            int next = index;
+            if (index > 0 && energies[index - 1] > energies[next]) {
+                next = index - 1;
+            }
+            if (index < mCount - 1 && energies[index + 1] > energies[next]) {
+                next = index + 1;
+            }
+            if (next == index) {
+                return index;
+            }
+            index = next;
+        }
+    }
+
+    private static int find(int[] labels, int label) {
+        while (labels[label] != label) {
+            labels[label] = labels[labels[label]];
+            label = labels[label];
+        }
+        return label;
+    }
+
+    private double getPeakPeriod(int peakBand) {
+        // Fit a parabola through the peak and its neighbors to get between the frequency bands
+        double peakFrequency = mFrequencies[peakBand];
+        if (peakBand > 0 && peakBand < mCount - 1) {
+            double left = mEnergies[peakBand - 1];
+            double center = mEnergies[peakBand];
+            double right = mEnergies[peakBand + 1];
+            double denominator = left - 2 * center + right;
+            if (denominator < 0) {
+                double offset = 0.5 * (left - right) / denominator;
+                double step = offset < 0 ? peakFrequency - mFrequencies[peakBand - 1] : mFrequencies[peakBand + 1] - peakFrequency;
+                peakFrequency += offset * step;
+            }
+        }
+
+        return peakFrequency > 0 ? 1.0 / peakFrequency : 0;
+    }
+
+    private double getBandWidth(int index) {
+        if (mCount < 2) {
+            return 0;
+        } else if (index == 0) {
+            return mFrequencies[1] - mFrequencies[0];
+        } else if (index == mCount - 1) {
+            return mFrequencies[index] - mFrequencies[index - 1];
+        }
+        return (mFrequencies[index + 1] - mFrequencies[index - 1]) / 2;
+    }
+
+    private double[] smooth(double[] values) {
+        double[] smoothed = new double[mCount];
+        for (int i = 0; i < mCount; i++) {
+            double sum = values[i] * 2;
+            double weight = 2;
+            if (i > 0) {
+                sum += values[i - 1];
+                weight += 1;
+            }
+            if (i < mCount - 1) {
+                sum += values[i + 1];
+                weight += 1;
+            }
+            smoothed[i] = sum / weight;
+        }
+        return smoothed;
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0;
+    }
+}
@@ -17,6 +17,7 @@ import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.adapters.AlternateCameraListAdapter;
 import com.nucc.hackwinds.models.CameraModel;
 import com.nucc.hackwinds.utilities.Extensions;
+import com.nucc.hackwinds.utilities.LiveStreamPrewarmer;
 
 public class AlternateCameraListFragment extends ListFragment {
 
@@ -47,6 +48,12 @@ public class AlternateCameraListFragment extends ListFragment {
 
         AlternateCameraActivity alternateCameraActivity = (AlternateCameraActivity) getActivity();
         alternateCameraActivity.resetToolbarTitle();
+
+        // Get the default live stream going in the background so it starts quickly if it gets tapped
+        MessagesCameraCameraMessage videoCamera = CameraModel.getInstance(getActivity().getApplicationContext()).getDefaultVideoCamera();
+        if (videoCamera != null) {
+            LiveStreamPrewarmer.getInstance(getActivity()).prewarm(videoCamera.getVideoUrl());
+        }
     }
 
     @Override
@@ -67,6 +74,8 @@ public class AlternateCameraListFragment extends ListFragment {
             fragmentTransaction.replace(R.id.content_frame, cameraFragment);
             fragmentTransaction.addToBackStack(null);
             fragmentTransaction.commit();
+        } else if (Extensions.isVideoCamera(camera) && LiveStreamPrewarmer.isLiveStreamUrl(camera.getVideoUrl())) {
+            VideoPlayerActivity.showRemoteVideo(getActivity(), camera.getVideoUrl());
         } else {
             String url = "";
             if (Extensions.isVideoCamera(camera)) {
@@ -9,19 +9,34 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
-import com.koushikdutta.ion.Ion;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesWaveSpectraMessage;
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.components.YAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.listeners.BuoyChangedListener;
+import com.nucc.hackwinds.listeners.BuoyHistoryListener;
 import com.nucc.hackwinds.models.BuoyModel;
+import com.nucc.hackwinds.types.BuoyHistorySeries;
+import com.nucc.hackwinds.utilities.DirectionalSpectraView;
 import com.nucc.hackwinds.utilities.Extensions;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
-public class BuoyFragment extends Fragment implements BuoyChangedListener, SwipeRefreshLayout.OnRefreshListener{
+public class BuoyFragment extends Fragment implements BuoyChangedListener, BuoyHistoryListener, SwipeRefreshLayout.OnRefreshListener{
+
+    // How far back the wave height trend goes
+    private static final int HISTORY_HOURS = 24;
 
     private BuoyModel mBuoyModel;
     private SwipeRefreshLayout mRefreshLayout;
@@ -46,9 +61,44 @@ public class BuoyFragment extends Fragment implements BuoyChangedListener, Swipe
         mRefreshLayout.setOnRefreshListener(this);
         mRefreshLayout.setColorSchemeColors(getResources().getColor(R.color.hackwinds_blue), getResources().getColor(R.color.accent_blue));
 
+        // Setup the energy distribution chart, the spectra are drawn locally instead of downloading plot images
+        setupPlot((LineChart) V.findViewById(R.id.energy_distribution_plot));
+
+        // The trend comes from the readings stored on the device, so it never goes to the network
+        setupPlot((LineChart) V.findViewById(R.id.wave_history_plot));
+
         return V;
     }
 
+    private void setupPlot(LineChart plot) {
+        plot.setDrawBorders(false);
+        plot.setDescription("");
+        plot.setPinchZoom(false);
+        plot.setDoubleTapToZoomEnabled(false);
+        plot.setDrawMarkerViews(false);
+        plot.setTouchEnabled(false);
+        plot.setNoDataText("");
+
+        // X Axis
+        XAxis xAxis = plot.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setDrawGridLines(false);
+        xAxis.setAvoidFirstLastClipping(true);
+
+        // Y Axis
+        YAxis leftYAxis = plot.getAxisLeft();
+        YAxis rightYAxis = plot.getAxisRight();
+        leftYAxis.setDrawGridLines(false);
+        rightYAxis.setDrawGridLines(false);
+        rightYAxis.setDrawAxisLine(false);
+        rightYAxis.setDrawLabels(false);
+        leftYAxis.setAxisMinValue(0f);
+        rightYAxis.setAxisMinValue(0f);
+
+        // Legend
+        plot.getLegend().setEnabled(false);
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater menuInflater) {
         menuInflater.inflate(R.menu.buoy_menu_options, menu);
@@ -77,6 +127,14 @@ public class BuoyFragment extends Fragment implements BuoyChangedListener, Swipe
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        // Stop listening so the model doesn't hold on to this fragment
+        mBuoyModel.removeBuoyChangedListener(this);
+    }
+
     @Override
     public void buoyDataUpdated() {
         final ApiApiMessagesDataMessage data = mBuoyModel.getBuoyData();
@@ -128,23 +186,110 @@ public class BuoyFragment extends Fragment implements BuoyChangedListener, Swipe
 
                 TextView latestBuoyReadingTime = (TextView) getActivity().findViewById(R.id.buoy_time_reading);
                 if (latestBuoyReadingTime != null) {
-                    String buoyReport = String.format(Locale.US, "Buoy reported at %s %s", Extensions.getTimeString(data), Extensions.getDateString(data));
-                    latestBuoyReadingTime.setText(buoyReport);
+                    // Call out a reading the buoy should have replaced by now
+                    int buoyReport = mBuoyModel.isBuoyDataStale() ? R.string.buoy_stale_status : R.string.buoy_reported_status;
+                    latestBuoyReadingTime.setText(getString(buoyReport, Extensions.getTimeString(data), Extensions.getDateString(data)));
                 }
 
-                ImageView directionalSpectraPlot = (ImageView) getActivity().findViewById(R.id.directional_spectra_plot);
+                DirectionalSpectraView directionalSpectraPlot = (DirectionalSpectraView) getActivity().findViewById(R.id.directional_spectra_plot);
                 if (directionalSpectraPlot != null) {
-                    Ion.with(getActivity()).load(data.getDirectionSpectraPlot()).intoImageView(directionalSpectraPlot);
+                    directionalSpectraPlot.setSpectra(data.getWaveSpectra());
                 }
 
-                ImageView energyDistributionPlot = (ImageView) getActivity().findViewById(R.id.energy_distribution_plot);
+                LineChart energyDistributionPlot = (LineChart) getActivity().findViewById(R.id.energy_distribution_plot);
                 if (energyDistributionPlot != null) {
-                    Ion.with(getActivity()).load(data.getEnergySpectraPlot()).intoImageView(energyDistributionPlot);
+                    updateEnergyChart(energyDistributionPlot, data.getWaveSpectra());
                 }
+
+                // The new reading is already queued into the history, so it shows up in the trend
+                mBuoyModel.loadBuoyHistory(HISTORY_HOURS, BuoyFragment.this);
             }
         });
     }
 
+    private void updateEnergyChart(LineChart energyChart, ApiApiMessagesWaveSpectraMessage spectra) {
+        energyChart.clear();
+        if (spectra == null || spectra.getFrequency() == null || spectra.getEnergy() == null) {
+            return;
+        }
+
+        List<Double> frequencies = spectra.getFrequency();
+        List<Double> energies = spectra.getEnergy();
+        int count = Math.min(frequencies.size(), energies.size());
+
+        // Walk the bands from low to high frequency backwards so the periods read from short to long
+        ArrayList<String> xVals = new ArrayList<>();
+        ArrayList<Entry> dataEntries = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            Double frequency = frequencies.get(i);
+            Double energy = energies.get(i);
+            if (frequency == null || frequency <= 0 || energy == null) {
+                continue;
+            }
+
+            dataEntries.add(new Entry(energy.floatValue(), xVals.size()));
+            xVals.add(String.format(Locale.US, "%.1fs", 1.0 / frequency));
+        }
+
+        if (dataEntries.isEmpty()) {
+            return;
+        }
+
+        int hackWindsBlue = getResources().getColor(R.color.hackwinds_blue);
+        LineDataSet dataSet = new LineDataSet(dataEntries, "Energy Density");
+        dataSet.setDrawCircles(false);
+        dataSet.setColor(hackWindsBlue);
+        dataSet.setFillColor(hackWindsBlue);
+        dataSet.setFillAlpha(200);
+        dataSet.setDrawFilled(true);
+
+        LineData chartData = new LineData(xVals, dataSet);
+        chartData.setDrawValues(false);
+        energyChart.setData(chartData);
+    }
+
+    @Override
+    public void buoyHistoryLoaded(BuoyHistorySeries history) {
+        if (getView() == null) {
+            return;
+        }
+
+        LineChart historyPlot = (LineChart) getView().findViewById(R.id.wave_history_plot);
+        if (historyPlot == null) {
+            return;
+        }
+
+        historyPlot.clear();
+        SimpleDateFormat hourFormat = new SimpleDateFormat("ha", Locale.US);
+        ArrayList<String> xVals = new ArrayList<>();
+        ArrayList<Entry> dataEntries = new ArrayList<>();
+        for (int i = 0; i < history.size(); i++) {
+            double waveHeight = history.getWaveHeight(i);
+            if (Double.isNaN(waveHeight)) {
+                continue;
+            }
+
+            dataEntries.add(new Entry((float) waveHeight, xVals.size()));
+            xVals.add(hourFormat.format(new Date(history.getTime(i))));
+        }
+
+        if (dataEntries.isEmpty()) {
+            return;
+        }
+
+        int hackWindsBlue = getResources().getColor(R.color.hackwinds_blue);
+        LineDataSet dataSet = new LineDataSet(dataEntries, "Wave Height");
+        dataSet.setDrawCircles(false);
+        dataSet.setColor(hackWindsBlue);
+        dataSet.setFillColor(hackWindsBlue);
+        dataSet.setFillAlpha(200);
+        dataSet.setDrawFilled(true);
+
+        LineData chartData = new LineData(xVals, dataSet);
+        chartData.setDrawValues(false);
+        historyPlot.setData(chartData);
+    }
+
     @Override
     public void buoyDataUpdateFailed() {
         if (mBuoyModel.isRefreshing()) {
@@ -1,12 +1,11 @@
 package com.nucc.hackwinds.views;
 
-import android.app.AlertDialog;
-import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v4.app.ListFragment;
+import android.text.format.DateUtils;
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -21,16 +20,15 @@ import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraMessage;
 import com.daimajia.slider.library.SliderLayout;
 
 import com.daimajia.slider.library.SliderTypes.DefaultSliderView;
-import com.koushikdutta.async.future.FutureCallback;
-import com.koushikdutta.ion.Ion;
 import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.adapters.ConditionArrayAdapter;
 import com.nucc.hackwinds.listeners.CameraChangedListener;
 import com.nucc.hackwinds.listeners.ForecastChangedListener;
 import com.nucc.hackwinds.models.CameraModel;
 import com.nucc.hackwinds.models.ForecastModel;
-import com.nucc.hackwinds.types.Forecast;
-import com.nucc.hackwinds.utilities.ReachabilityHelper;
+import com.nucc.hackwinds.types.ForecastDayView;
+import com.nucc.hackwinds.utilities.CameraImageLoader;
+import com.nucc.hackwinds.utilities.FetchPolicy;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -44,6 +42,10 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
     private SliderLayout mCameraSliderLayout;
     private TextView mDateheader;
     private View mHeaderView;
+    private ArrayList<Bitmap> mSliderBitmaps = new ArrayList<>();
+    private String mLoadedCameraUrl;
+    private int mLoadedFrameCount = 0;
+    private int mCameraLoadGeneration = 0;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -52,21 +54,7 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
         // Setup the menu
         setHasOptionsMenu(true);
 
-        if (!ReachabilityHelper.deviceHasInternetAccess(getActivity())) {
-            // Alert the user they need the network and close the app on completion
-            new AlertDialog.Builder(getActivity())
-                    .setTitle("Network Error")
-                    .setMessage("No network detected! Make sure to connect to the internet and reopen the app")
-                    .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
-                        public void onClick(DialogInterface dialog, int which) {
-                            // continue
-                            getActivity().finish();
-                        }
-                    })
-                    .setIcon(android.R.drawable.ic_dialog_alert)
-                    .show();
-        }
-
+        // Without a network the models keep serving their last saved data, marked as stale
         // Register the listeners
         ForecastModel.getInstance(getActivity()).addForecastChangedListener(this);
         CameraModel.getInstance(getActivity()).addCameraChangedListener(this);
@@ -84,6 +72,10 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
         mCameraSliderLayout.getPagerIndicator().setDefaultIndicatorColor(hackWindsColor, Color.WHITE);
         mDateheader = (TextView) mHeaderView.findViewById(R.id.today_date_header);
 
+        // A fresh slider has none of the previously loaded frames
+        mLoadedCameraUrl = null;
+        mLoadedFrameCount = 0;
+
         // return the view
         return V;
     }
@@ -105,6 +97,15 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        // Stop listening so the models don't hold on to this fragment
+        ForecastModel.getInstance(getActivity()).removeForecastChangedListener(this);
+        CameraModel.getInstance(getActivity()).removeCameraChangedListener(this);
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater menuInflater) {
         menuInflater.inflate(R.menu.live_menu_options, menu);
@@ -135,18 +136,26 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
                 Calendar calendar = Calendar.getInstance();
                 int day = calendar.get(Calendar.DAY_OF_WEEK);
                 String dayName = getResources().getStringArray(R.array.daysOfTheWeek)[day-1];
-                mDateheader.setText(dayName);
 
                 // Get the forecast model
                 ForecastModel forecastModel = ForecastModel.getInstance(getActivity());
 
+                // Let the user know when the conditions are from a saved copy
+                long dataTimestamp = forecastModel.getDataTimestamp();
+                if (forecastModel.isDataStale() && dataTimestamp > 0) {
+                    CharSequence dataAge = DateUtils.getRelativeTimeSpanString(dataTimestamp, System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+                    mDateheader.setText(getString(R.string.stale_day_header, dayName, dataAge));
+                } else {
+                    mDateheader.setText(dayName);
+                }
+
                 // Set the condition adapter for the list
                 if (mConditionArrayAdapter == null){
-                    ArrayList<Forecast> conditions = forecastModel.getForecastsForDay(0);
+                    ForecastDayView conditions = forecastModel.getForecastsForDay(0);
                     mConditionArrayAdapter = new ConditionArrayAdapter(getActivity(), conditions);
                     setListAdapter(mConditionArrayAdapter);
                 } else {
-                    ArrayList<Forecast> conditions = forecastModel.getForecastsForDay(0);
+                    ForecastDayView conditions = forecastModel.getForecastsForDay(0);
                     mConditionArrayAdapter.setConditonData(conditions);
                 }
             }
@@ -184,27 +193,69 @@ public class CurrentFragment extends ListFragment implements ForecastChangedList
     private void loadCameraImages() {
         final int CAMERA_IMAGE_COUNT = 9;
 
-        if (mCameraSliderLayout == null) {
+        if (mCameraSliderLayout == null || getActivity() == null) {
+            return;
+        }
+
+        // Only the latest frame is worth the data off of wifi
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(getActivity());
+        int frameCount = fetchPolicy.getCameraFrameCount(CAMERA_IMAGE_COUNT);
+
+        // The same frames are already showing, no need to download and decode them again
+        if (mCamera.getImageUrl().equals(mLoadedCameraUrl) && !mSliderBitmaps.isEmpty() && frameCount <= mLoadedFrameCount) {
             return;
         }
+        mLoadedCameraUrl = mCamera.getImageUrl();
+        mLoadedFrameCount = frameCount;
+
+        // Any loads still in flight belong to the old set of frames
+        final int loadGeneration = ++mCameraLoadGeneration;
+
+        final CameraImageLoader imageLoader = CameraImageLoader.getInstance(getActivity());
 
         mCameraSliderLayout.stopAutoCycle();
         mCameraSliderLayout.removeAllSliders();
 
+        // The old frames are off screen now so their memory can back the new ones
+        for (Bitmap bitmap : mSliderBitmaps) {
+            imageLoader.release(bitmap);
+        }
+        mSliderBitmaps.clear();
+
+        // Decode at the size the slider shows the frames, not the full camera resolution
+        int targetWidth = getResources().getDisplayMetrics().widthPixels;
+        int targetHeight = mCameraSliderLayout.getLayoutParams().height;
+
         for (int i = 1; i < CAMERA_IMAGE_COUNT+1; i++) {
             if (i == 5) {
                 // Skip 5 for now cuz its not loading for some werid reason
                 continue;
             }
 
+            if (i > frameCount) {
+                fetchPolicy.recordSkippedFetch();
+                continue;
+            }
+
             String cameraURL = mCamera.getImageUrl().replace("01.jpg", String.format(Locale.US, "%02d.jpg", i));
-            Ion.with(getActivity()).load(cameraURL).asBitmap().setCallback(new FutureCallback<Bitmap>() {
+            imageLoader.load(cameraURL, targetWidth, targetHeight, new CameraImageLoader.ImageLoadListener() {
                 @Override
-                public void onCompleted(Exception e, Bitmap result) {
+                public void onImageLoaded(Bitmap bitmap) {
+                    if (loadGeneration != mCameraLoadGeneration || !isAdded()) {
+                        imageLoader.release(bitmap);
+                        return;
+                    }
+
+                    mSliderBitmaps.add(bitmap);
                     DefaultSliderView cameraSliderView = new DefaultSliderView(getActivity());
-                    cameraSliderView.image(result);
+                    cameraSliderView.image(bitmap);
                     mCameraSliderLayout.addSlider(cameraSliderView);
                 }
+
+                @Override
+                public void onImageLoadFailed() {
+                    // Leave the frame out of the slider
+                }
             });
         }
     }
@@ -16,11 +16,9 @@ import com.astuetz.PagerSlidingTabStrip;
 import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.adapters.ConditionArrayAdapter;
 import com.nucc.hackwinds.models.ForecastModel;
-import com.nucc.hackwinds.types.Forecast;
+import com.nucc.hackwinds.types.ForecastDayView;
 import com.nucc.hackwinds.utilities.WrappableViewPager;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
 
@@ -35,7 +33,7 @@ public class DetailedForecastActivity extends AppCompatActivity {
 
     // Forecast values
     private ForecastModel mForecastModel;
-    private ArrayList<Forecast> mDayConditions;
+    private ForecastDayView mDayConditions;
     private ConditionArrayAdapter mConditionArrayAdapter;
     private int dayIndex = 0;
 
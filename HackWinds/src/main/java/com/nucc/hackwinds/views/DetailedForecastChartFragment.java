@@ -12,10 +12,10 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
-import com.koushikdutta.async.future.FutureCallback;
-import com.koushikdutta.ion.Ion;
 import com.nucc.hackwinds.R;
 import com.nucc.hackwinds.models.ForecastModel;
+import com.nucc.hackwinds.utilities.FetchPolicy;
+import com.nucc.hackwinds.utilities.ForecastChartCache;
 
 import java.util.Locale;
 
@@ -23,6 +23,7 @@ import java.util.Locale;
 public class DetailedForecastChartFragment extends Fragment {
     private final int ANIMATION_DURATION = 500;
     private final int WAVE_WATCH_HOUR_STEP = 3;
+    private final int CHART_FRAME_COUNT = 6;
 
     public enum ForecastChartType {
         WAVES,
@@ -35,13 +36,18 @@ public class DetailedForecastChartFragment extends Fragment {
 
     private ForecastModel mForecastModel;
     private AnimationDrawable mChartAnimation;
-    private FutureCallback<Bitmap> mChartLoadCallback;
+    private ForecastChartCache mChartCache;
+    private ForecastChartCache.ChartFramesListener mChartFramesListener;
+
+    // Off of wifi only the first frame loads until the user asks for the animation
+    private boolean mAnimationDeferred = false;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         mForecastModel = ForecastModel.getInstance(getActivity());
+        mChartCache = ForecastChartCache.getInstance(getActivity());
     }
 
     @Override
@@ -60,6 +66,13 @@ public class DetailedForecastChartFragment extends Fragment {
                 // Hide the play button
                 view.setVisibility(View.GONE);
 
+                if (mAnimationDeferred) {
+                    // Only now pull down the rest of the frames
+                    mAnimationDeferred = false;
+                    loadAnimationFrames(true);
+                    return;
+                }
+
                 // Start the animation
                 mChartAnimation.start();
             }
@@ -70,7 +83,7 @@ public class DetailedForecastChartFragment extends Fragment {
         chartImage.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                if (mChartAnimation.isRunning()) {
+                if (mChartAnimation != null && mChartAnimation.isRunning()) {
                     // Only call to stop the animation if it is currently running
                     mChartAnimation.stop();
 
@@ -84,44 +97,6 @@ public class DetailedForecastChartFragment extends Fragment {
         // Create the chart animation instance
         mChartAnimation = new AnimationDrawable();
 
-        // Create chart loading callback
-        mChartLoadCallback = new FutureCallback<Bitmap>() {
-            @Override
-            public void onCompleted(Exception e, Bitmap result) {
-                if (result == null) {
-                    ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
-                    chartImage.setImageDrawable(ContextCompat.getDrawable(getActivity(), R.drawable.photo_loading_error));
-                    chartImage.setScaleType(ImageView.ScaleType.FIT_CENTER);
-                    return;
-                }
-
-                Bitmap croppedBitmap = Bitmap.createBitmap(result, 60, 50, 350, 180);
-                BitmapDrawable chartFrame = new BitmapDrawable(getResources(), croppedBitmap);
-                mChartAnimation.addFrame(chartFrame, ANIMATION_DURATION);
-
-                int nFrames = mChartAnimation.getNumberOfFrames();
-                if (nFrames == 1) {
-                    // Set the chart preview image as bitmap that was just received
-                    ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
-                    chartImage.setImageDrawable(chartFrame);
-
-                } else if (nFrames == 6) {
-                    // Set the animation drawable as the imageview background
-                    ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
-                    chartImage.setImageDrawable(mChartAnimation);
-
-                    // Show the play button
-                    ImageView playButton = (ImageView) getView().findViewById(R.id.forecast_animate_play_button);
-                    playButton.setVisibility(View.VISIBLE);
-                }
-
-                if (nFrames < 6) {
-                    // Load the next image
-                    getChartImageForIndex(nFrames);
-                }
-            }
-        };
-
         return V;
     }
 
@@ -140,6 +115,12 @@ public class DetailedForecastChartFragment extends Fragment {
             // Stop the animation if it is still running
             mChartAnimation.stop();
         }
+
+        // Frames that are still loading stay in the cache for next time
+        if (mChartFramesListener != null) {
+            mChartCache.removeListener(mChartFramesListener);
+            mChartFramesListener = null;
+        }
     }
 
     public int getDayIndex() {
@@ -170,26 +151,147 @@ public class DetailedForecastChartFragment extends Fragment {
         // Reset the chart animation object
         mChartAnimation = new AnimationDrawable();
         mChartAnimation.setOneShot(false);
-        getChartImageForIndex(0);
+
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(getActivity());
+        mAnimationDeferred = !fetchPolicy.shouldAnimateForecastCharts();
+        if (mAnimationDeferred) {
+            loadPreviewFrame();
+            fetchPolicy.recordSkippedFetch();
+        } else {
+            loadAnimationFrames(false);
+        }
+
+        // Warm up the next day so swiping over to it animates right away
+        int nextDayIndex = dayIndex + 1;
+        if (nextDayIndex < mForecastModel.getDayCount()) {
+            if (fetchPolicy.shouldPrefetch()) {
+                mChartCache.loadFrames(getFrameSetKey(nextDayIndex), getChartImageURLs(nextDayIndex), null);
+            } else {
+                fetchPolicy.recordSkippedFetch();
+            }
+        }
+    }
+
+    /**
+     * Loads just the first frame of the chart as a still image, with the play button to load the rest.
+     */
+    private void loadPreviewFrame() {
+        if (mChartFramesListener != null) {
+            mChartCache.removeListener(mChartFramesListener);
+        }
+        mChartFramesListener = new ForecastChartCache.ChartFramesListener() {
+            @Override
+            public void onChartFrameLoaded(int index, Bitmap frame) {
+                if (index != 0 || getView() == null) {
+                    return;
+                }
+
+                ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
+                chartImage.setImageDrawable(new BitmapDrawable(getResources(), frame));
+
+                // Show the play button
+                ImageView playButton = (ImageView) getView().findViewById(R.id.forecast_animate_play_button);
+                playButton.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onChartFramesLoaded(Bitmap[] frames) {
+            }
+
+            @Override
+            public void onChartFramesFailed() {
+                showChartError();
+            }
+        };
+
+        mChartCache.loadFirstFrame(getFrameSetKey(dayIndex), getChartImageURLs(dayIndex), mChartFramesListener);
+    }
+
+    /**
+     * Loads every frame of the chart animation.
+     * @param autoStart True to start the animation as soon as the frames are in, otherwise the play button is shown
+     */
+    private void loadAnimationFrames(final boolean autoStart) {
+        if (mChartFramesListener != null) {
+            mChartCache.removeListener(mChartFramesListener);
+        }
+        mChartFramesListener = new ForecastChartCache.ChartFramesListener() {
+            @Override
+            public void onChartFrameLoaded(int index, Bitmap frame) {
+                if (index != 0 || getView() == null) {
+                    return;
+                }
+
+                // Set the chart preview image as the first frame while the rest load
+                ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
+                chartImage.setImageDrawable(new BitmapDrawable(getResources(), frame));
+            }
+
+            @Override
+            public void onChartFramesLoaded(Bitmap[] frames) {
+                if (getView() == null) {
+                    return;
+                }
+
+                for (Bitmap frame : frames) {
+                    mChartAnimation.addFrame(new BitmapDrawable(getResources(), frame), ANIMATION_DURATION);
+                }
+
+                // Set the animation drawable as the imageview background
+                ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
+                chartImage.setImageDrawable(mChartAnimation);
+
+                if (autoStart) {
+                    mChartAnimation.start();
+                    return;
+                }
+
+                // Show the play button
+                ImageView playButton = (ImageView) getView().findViewById(R.id.forecast_animate_play_button);
+                playButton.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onChartFramesFailed() {
+                showChartError();
+            }
+        };
+        mChartCache.loadFrames(getFrameSetKey(dayIndex), getChartImageURLs(dayIndex), mChartFramesListener);
+    }
+
+    private void showChartError() {
+        if (getView() == null) {
+            return;
+        }
+
+        ImageView chartImage = (ImageView) getView().findViewById(R.id.forecast_chart_image);
+        chartImage.setImageDrawable(ContextCompat.getDrawable(getActivity(), R.drawable.photo_loading_error));
+        chartImage.setScaleType(ImageView.ScaleType.FIT_CENTER);
+    }
+
+    private String getFrameSetKey(int day) {
+        return ForecastChartCache.getFrameSetKey(getChartURLPrefix(), day, mForecastModel.waveModelRun);
     }
 
-    public void getChartImageForIndex(int index) {
+    private String[] getChartImageURLs(int day) {
         final String BASE_URL = "http://polar.ncep.noaa.gov/waves/WEB/multi_1.latest_run/plots/US_eastcoast.%s.%s%03dh.png";
         final String PAST_HOUR_TIME_PREFIX = "h";
         final String FUTURE_HOUR_TIME_PREFIX = "f";
 
-        // Format the url for the next image load
-        final String chartTimePrefix;
-        if ((index == 0) && (dayIndex == 0)) {
-            chartTimePrefix = PAST_HOUR_TIME_PREFIX;
-        } else {
-            chartTimePrefix = FUTURE_HOUR_TIME_PREFIX;
-        }
         final String chartTypePrefix = getChartURLPrefix();
-        final String nextImageURL = String.format(Locale.US, BASE_URL, chartTypePrefix, chartTimePrefix, (mForecastModel.getDayForecastStartingIndex(dayIndex) + index) * WAVE_WATCH_HOUR_STEP);
-
-        // Load the next image
-        Ion.with(this).load(nextImageURL).asBitmap().setCallback(mChartLoadCallback);
+        final int startingIndex = mForecastModel.getDayForecastStartingIndex(day);
+
+        String[] chartURLs = new String[CHART_FRAME_COUNT];
+        for (int index = 0; index < CHART_FRAME_COUNT; index++) {
+            final String chartTimePrefix;
+            if ((index == 0) && (day == 0)) {
+                chartTimePrefix = PAST_HOUR_TIME_PREFIX;
+            } else {
+                chartTimePrefix = FUTURE_HOUR_TIME_PREFIX;
+            }
+            chartURLs[index] = String.format(Locale.US, BASE_URL, chartTypePrefix, chartTimePrefix, (startingIndex + index) * WAVE_WATCH_HOUR_STEP);
+        }
+        return chartURLs;
     }
 
     private String getChartURLPrefix() {
@@ -56,6 +56,16 @@ public class ForecastFragment extends ListFragment implements ForecastChangedLis
         forecastDataUpdated();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        // Stop listening so the model doesn't hold on to this fragment
+        if (mForecastModel != null) {
+            mForecastModel.removeForecastChangedListener(this);
+        }
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater menuInflater) {
         menuInflater.inflate(R.menu.forecast_menu_options, menu);
@@ -14,17 +14,21 @@ import android.widget.TextView;
 import android.content.Context;
 
 import com.appspot.hackwinds.hackwinds.model.MessagesCameraCameraMessage;
-import com.koushikdutta.async.future.FutureCallback;
-import com.koushikdutta.ion.Ion;
 import com.nucc.hackwinds.R;
+import com.nucc.hackwinds.utilities.CameraImageLoader;
 
 public class IsoCameraFragment extends Fragment {
 
+    // Each unchanged frame in a row doubles the wait before the next refresh, up to this many times
+    private static final int MAX_REFRESH_BACKOFF_SHIFT = 3;
+
     private MessagesCameraCameraMessage mCamera;
     private boolean mAutoRefresh;
 
     private Context mContext;
     private ImageView mCameraImage;
+    private Bitmap mCameraBitmap;
+    private int mUnchangedFrameCount = 0;
 
     Handler mHandler;
     Runnable mRunnable;
@@ -57,6 +61,9 @@ public class IsoCameraFragment extends Fragment {
 
         mCameraImage = (ImageView) V.findViewById(R.id.latest_camera_image);
 
+        // The frame drawn into the last image view can't be reused by this one
+        mCameraBitmap = null;
+
         final Switch autoRefreshSwitch = (Switch) V.findViewById(R.id.auto_refresh_toggle);
         mAutoRefresh = autoRefreshSwitch.isChecked();
         autoRefreshSwitch.setOnClickListener(new View.OnClickListener() {
@@ -64,7 +71,9 @@ public class IsoCameraFragment extends Fragment {
             public void onClick(View view) {
                 mAutoRefresh = ((Switch) view).isChecked();
                 if (mAutoRefresh) {
-                    // Trigger a camera refresh
+                    // Trigger a camera refresh at the normal rate
+                    mUnchangedFrameCount = 0;
+                    mHandler.removeCallbacks(mRunnable);
                     loadCameraImage();
                 }
 
@@ -106,26 +115,55 @@ public class IsoCameraFragment extends Fragment {
 
         mCamera = camera;
         mAutoRefresh = mCamera.getRefreshable();
+        mUnchangedFrameCount = 0;
     }
 
     public void loadCameraImage() {
         if (mContext != null) {
-            // If there is a context, then load the next image and create the callback to set it as the current image
-            Ion.with(mContext).load(mCamera.getImageUrl()).noCache().asBitmap().setCallback(new FutureCallback<Bitmap>() {
+            // If there is a context, then load the next image, it is only decoded if the camera has updated
+            final CameraImageLoader imageLoader = CameraImageLoader.getInstance(mContext);
+            imageLoader.refresh(mCamera.getImageUrl(), mCameraImage.getWidth(), mCameraImage.getHeight(), new CameraImageLoader.FrameRefreshListener() {
                 @Override
-                public void onCompleted(Exception e, Bitmap result) {
-                    if (e != null) {
-                        // Set the error image on exceptions
-                        mCameraImage.setImageDrawable(mContext.getResources().getDrawable(R.drawable.photo_loading_error));
-                    } else {
-                        // Everything is ok, so set the image
-                        mCameraImage.setImageBitmap(result);
-
-                        // If enabled, start the countdown to loading the next view
-                        if (mAutoRefresh) {
-                            mHandler.postDelayed(mRunnable, mCamera.getRefreshInterval() * 1000);
-                        }
+                public void onFrameUnchanged() {
+                    if (mCameraBitmap == null) {
+                        // Nothing is showing yet, so the unchanged frame has to be decoded anyway
+                        mUnchangedFrameCount = 0;
+                        imageLoader.load(mCamera.getImageUrl(), mCameraImage.getWidth(), mCameraImage.getHeight(), new CameraImageLoader.ImageLoadListener() {
+                            @Override
+                            public void onImageLoaded(Bitmap bitmap) {
+                                onFrameLoaded(bitmap);
+                            }
+
+                            @Override
+                            public void onImageLoadFailed() {
+                                onFrameLoadFailed();
+                            }
+                        });
+                        return;
                     }
+
+                    // The camera hasn't posted a new frame, check back less often until it does
+                    mUnchangedFrameCount++;
+                    scheduleNextRefresh();
+                }
+
+                @Override
+                public void onFrameLoaded(Bitmap bitmap) {
+                    // Everything is ok, so set the image and hand the old frame's memory to the next decode
+                    mUnchangedFrameCount = 0;
+                    mCameraImage.setImageBitmap(bitmap);
+                    imageLoader.release(mCameraBitmap);
+                    mCameraBitmap = bitmap;
+
+                    scheduleNextRefresh();
+                }
+
+                @Override
+                public void onFrameLoadFailed() {
+                    // Set the error image on exceptions
+                    mCameraImage.setImageDrawable(mContext.getResources().getDrawable(R.drawable.photo_loading_error));
+                    imageLoader.release(mCameraBitmap);
+                    mCameraBitmap = null;
                 }
             });
         } else {
@@ -134,6 +172,17 @@ public class IsoCameraFragment extends Fragment {
         }
     }
 
+    private void scheduleNextRefresh() {
+        // If enabled, start the countdown to loading the next view
+        if (!mAutoRefresh) {
+            return;
+        }
+
+        int backoffShift = Math.min(mUnchangedFrameCount, MAX_REFRESH_BACKOFF_SHIFT);
+        mHandler.removeCallbacks(mRunnable);
+        mHandler.postDelayed(mRunnable, (mCamera.getRefreshInterval() * 1000L) << backoffShift);
+    }
+
     private void updateAutoRefreshDurationLabel() {
         TextView autoRefreshDurationLabel = (TextView) getActivity().findViewById(R.id.auto_refresh_duration);
         if (mAutoRefresh) {
@@ -32,7 +32,7 @@ import com.nucc.hackwinds.models.BuoyModel;
 import com.nucc.hackwinds.models.CameraModel;
 import com.nucc.hackwinds.models.ForecastModel;
 import com.nucc.hackwinds.models.TideModel;
-import com.nucc.hackwinds.tasks.FetchBuoyActiveTask;
+import com.nucc.hackwinds.tasks.FetchScheduler;
 import com.readystatesoftware.systembartint.SystemBarTintManager;
 
 public class MainActivity extends AppCompatActivity {
@@ -92,6 +92,9 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onPageSelected( int position ) {
+                // Let the visible tab's fetches jump the queue
+                FetchScheduler.getInstance().setForegroundGroup( getFetchGroup( position ) );
+
                 switch (position) {
                     case LIVE_PAGE_INDEX:
                     case FORECAST_PAGE_INDEX:
@@ -121,6 +124,9 @@ public class MainActivity extends AppCompatActivity {
 
         mToolbar.setOnClickListener(mToolbarClickListener);
 
+        // The live tab is what shows first
+        FetchScheduler.getInstance().setForegroundGroup( getFetchGroup( mViewPager.getCurrentItem() ) );
+
         mSharedPrefsChangedListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
             @Override
             public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String s) {
@@ -160,6 +166,21 @@ public class MainActivity extends AppCompatActivity {
         BuoyModel.getInstance(this).fetchBuoysActive();
     }
 
+    private static String getFetchGroup( int position ) {
+        switch ( position ) {
+            case LIVE_PAGE_INDEX:
+                return FetchScheduler.GROUP_LIVE;
+            case FORECAST_PAGE_INDEX:
+                return FetchScheduler.GROUP_FORECAST;
+            case BUOY_PAGE_INDEX:
+                return FetchScheduler.GROUP_BUOY;
+            case TIDE_PAGE_INDEX:
+                return FetchScheduler.GROUP_TIDE;
+            default:
+                return null;
+        }
+    }
+
     public void initLocationArrays() {
         mForecastLocations = new ArrayList<>();
         mForecastLocations.add( "Rhode Island" );
@@ -6,6 +6,7 @@ import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.support.v4.app.Fragment;
+import android.text.format.DateUtils;
 import android.view.*;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -24,12 +25,17 @@ import com.nucc.hackwinds.listeners.TideChangedListener;
 import com.nucc.hackwinds.types.Tide;
 import com.nucc.hackwinds.models.BuoyModel;
 import com.nucc.hackwinds.models.TideModel;
+import com.nucc.hackwinds.tasks.FetchScheduler;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 
 
 public class TideFragment extends Fragment implements TideChangedListener, LatestBuoyFetchListener {
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    private static final int CHART_SAMPLES_PER_HOUR = 4;
+    private static final int CHART_TIDE_COUNT = 5;
+
     private TideModel mTideModel;
     private String mBuoyLocation = BuoyModel.NEWPORT_LOCATION;
     private String mWaterTemp;
@@ -115,6 +121,17 @@ public class TideFragment extends Fragment implements TideChangedListener, Lates
     @Override
     public void onPause() {
         super.onPause();
+
+        // Drop any water temperature fetches that are still waiting, onResume will ask again
+        FetchScheduler.getInstance().cancel(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        // Stop listening so the model doesn't hold on to this fragment
+        mTideModel.removeTideChangedListener(this);
     }
 
     @Override
@@ -126,6 +143,7 @@ public class TideFragment extends Fragment implements TideChangedListener, Lates
         getActivity().runOnUiThread(new Runnable() {
             @Override
             public void run() {
+                updateTideStatus();
                 updateTideChart();
                 updateOtherEventCard();
             }
@@ -176,6 +194,26 @@ public class TideFragment extends Fragment implements TideChangedListener, Lates
         BuoyModel.getInstance(getActivity()).fetchLatestBuoyReadingForLocation(mBuoyLocation, this);
     }
 
+    public void updateTideStatus() {
+        TextView tideStatusText = (TextView) getActivity().findViewById(R.id.tide_status_text);
+        if (tideStatusText == null) {
+            return;
+        }
+
+        // Predicted tides shouldn't pass for the real table
+        if (mTideModel.isUsingPredictions()) {
+            tideStatusText.setText(mTideModel.hasPublishedPredictions() ? R.string.tide_predicted_status : R.string.tide_estimated_status);
+            tideStatusText.setVisibility(View.VISIBLE);
+        } else if (mTideModel.isDataStale() && mTideModel.getDataTimestamp() > 0) {
+            // A saved table the tide service hasn't confirmed yet
+            CharSequence dataAge = DateUtils.getRelativeTimeSpanString(mTideModel.getDataTimestamp(), System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS);
+            tideStatusText.setText(getString(R.string.tide_stale_status, dataAge));
+            tideStatusText.setVisibility(View.VISIBLE);
+        } else {
+            tideStatusText.setVisibility(View.GONE);
+        }
+    }
+
     public void updateTideChart() {
         if (mTideModel == null) {
             return;
@@ -201,132 +239,69 @@ public class TideFragment extends Fragment implements TideChangedListener, Lates
         int alternateBlue = getResources().getColor(R.color.accent_blue);
         int holoOrange = getResources().getColor(android.R.color.holo_orange_dark);
 
-        // Some variables for introspection
-        float min = 0;
-        float max = 0;
-        int firstIndex = 0;
-        boolean highFirst = false;
-        int prevIndex = 0;
-        int tideCount = 0;
-        int index = 0;
-
+        // Start the chart at the top of the current hour and run it through the next five tides
         Calendar c = Calendar.getInstance();
-        long currentHourSeconds = ((c.getTimeInMillis()/1000) / 3600) * 3600;
-
-        ArrayList<Entry> dataEntries = new ArrayList<>();
-
-        // Create the first entry to hold its spot
-        Entry firstEntry = new Entry(0, -1);
-        dataEntries.add(firstEntry);
-
-        while (tideCount < 5) {
-            if (index > mTideModel.tides.size()) {
-                return;
-            }
-
-            Tide thisTide = mTideModel.tides.get(index);
-            index++;
-
-            if (thisTide == null) {
-                continue;
-            }
-
-            if (!thisTide.isTidalEvent()) {
-                continue;
+        long currentHourMillis = (c.getTimeInMillis() / HOUR_MILLIS) * HOUR_MILLIS;
+
+        ArrayList<Tide> upcomingTides = new ArrayList<>();
+        for (Tide tide : mTideModel.tides) {
+            if (tide != null && tide.isTidalEvent()) {
+                upcomingTides.add(tide);
+                if (upcomingTides.size() == CHART_TIDE_COUNT) {
+                    break;
+                }
             }
+        }
+        if (upcomingTides.size() < CHART_TIDE_COUNT) {
+            return;
+        }
 
-            int xIndex = 0;
-            if (tideCount == 0) {
-                long interval = currentHourSeconds - (thisTide.timestamp.getTime()/1000);
-                firstIndex = (int)(Math.abs(interval / (60*60)));
-                xIndex = firstIndex;
+        long lastTideMillis = upcomingTides.get(CHART_TIDE_COUNT - 1).timestamp.getTime();
+        int sampleCount = (int) ((lastTideMillis - currentHourMillis) * CHART_SAMPLES_PER_HOUR / HOUR_MILLIS) + 1;
+        if (sampleCount < 2) {
+            return;
+        }
 
-                if (thisTide.isHighTide()) {
-                    highFirst = true;
-                } else {
-                    highFirst = false;
-                }
-            } else {
-                xIndex = prevIndex + 6;
-            }
+        // The curve is cached in the model so this only computes when the tides or the hour change
+        float[] samples = mTideModel.getTideCurve().sample(currentHourMillis, lastTideMillis, sampleCount);
 
-            float value = thisTide.heightValue;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        ArrayList<Entry> dataEntries = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            float value = samples[i];
             if (value < 0) {
                 value = 0.01f;
             }
 
-            if (tideCount < 2) {
-                if (thisTide.isHighTide()) {
-                    max = value;
-                } else {
-                    min = value;
-                }
-            }
-
-            if (xIndex != 0) {
-                Entry thisEntry = new Entry(value, xIndex);
-                dataEntries.add(thisEntry);
-            } else {
-                firstEntry.setVal(value);
-            }
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            dataEntries.add(new Entry(value, i));
+        }
 
-            if (xIndex < 24 || tideCount < 4) {
-                LimitLine tideLimit = new LimitLine(xIndex, thisTide.getTimeString());
-                tideLimit.setTextSize(16);
-                tideLimit.setLineWidth(2);
-                if (xIndex > 16) {
-                    tideLimit.setLineColor(hackWindsBlue);
-                    tideLimit.setLabelPosition(LimitLine.LimitLabelPosition.LEFT_TOP);
-                } else {
-                    tideLimit.setLineColor(backgroundGrey);
-                    tideLimit.setTextColor(backgroundGrey);
-                    tideLimit.setLabelPosition(LimitLine.LimitLabelPosition.RIGHT_BOTTOM);
-                }
-                tideChart.getXAxis().addLimitLine(tideLimit);
+        for (int i = 0; i < upcomingTides.size(); i++) {
+            Tide thisTide = upcomingTides.get(i);
+            float hoursFromNow = (float) (thisTide.timestamp.getTime() - currentHourMillis) / HOUR_MILLIS;
+            if (hoursFromNow >= 24 && i >= 4) {
+                continue;
             }
-            prevIndex = xIndex;
-            tideCount++;
-        }
 
-        float amplitude = max - min;
-        if (firstIndex != 0) {
-            if (firstIndex == 6) {
-                LimitLine tideLimit = new LimitLine(0);
+            LimitLine tideLimit = new LimitLine(hoursFromNow * CHART_SAMPLES_PER_HOUR, thisTide.getTimeString());
+            tideLimit.setTextSize(16);
+            tideLimit.setLineWidth(2);
+            if (hoursFromNow > 16) {
+                tideLimit.setLineColor(hackWindsBlue);
+                tideLimit.setLabelPosition(LimitLine.LimitLabelPosition.LEFT_TOP);
+            } else {
                 tideLimit.setLineColor(backgroundGrey);
                 tideLimit.setTextColor(backgroundGrey);
-                tideLimit.setTextSize(16);
-                tideLimit.setLineWidth(7);
                 tideLimit.setLabelPosition(LimitLine.LimitLabelPosition.RIGHT_BOTTOM);
-                firstEntry.setXIndex(0);
-                if (highFirst) {
-                    firstEntry.setVal(min);
-                    tideLimit.setLabel("Low Tide");
-                } else {
-                    firstEntry.setVal(max);
-                    tideLimit.setLabel("High Tide");
-                }
-                tideChart.getXAxis().addLimitLine(tideLimit);
-            } else {
-                if (highFirst) {
-                    float approxMax = (float) (max - (amplitude * ((float)(firstIndex + 1) / 6.0)));
-                    if (approxMax < 0) {
-                        approxMax = 0.01f;
-                    }
-                    firstEntry.setVal(approxMax);
-                } else {
-                    float approxMin = (float)((amplitude * (((float)firstIndex + 1) / 6.0)) + min);
-                    if (approxMin < 0) {
-                        approxMin = 0.01f;
-                    }
-                    firstEntry.setVal(approxMin);
-                }
             }
-        } else {
-            firstEntry.setXIndex(0);
+            tideChart.getXAxis().addLimitLine(tideLimit);
         }
 
-        ArrayList<String> xVals = new ArrayList<>();
-        for (int i = 0; i < prevIndex; i++) {
+        ArrayList<String> xVals = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
             xVals.add("");
         }
 
@@ -7,18 +7,28 @@ import android.content.Intent;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.widget.MediaController;
 import android.widget.VideoView;
 import android.view.WindowManager;
 
 import com.nucc.hackwinds.R;
+import com.nucc.hackwinds.utilities.LiveStreamPrewarmer;
 
 public class VideoPlayerActivity extends Activity implements MediaPlayer.OnCompletionListener, MediaPlayer.OnErrorListener {
 
+    private static final String TAP_TIME_EXTRA = "tap_time";
+
     private VideoView videoView;
     private ProgressDialog dialog;
 
+    // When the user tapped the stream and whether it was warm, for timing the first frame
+    private long mTapTime;
+    private boolean mStreamWarm;
+    private boolean mFirstFrameRecorded = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -33,6 +43,7 @@ public class VideoPlayerActivity extends Activity implements MediaPlayer.OnCompl
         String url = null;
         if (getIntent().getExtras() != null) {
             url = getIntent().getExtras().getString("url");
+            mTapTime = getIntent().getExtras().getLong(TAP_TIME_EXTRA, SystemClock.elapsedRealtime());
 
             if (url != null) {
                 videoView.setMediaController(new MediaController(this));
@@ -66,9 +77,19 @@ public class VideoPlayerActivity extends Activity implements MediaPlayer.OnCompl
         Intent i = new Intent(ctx, VideoPlayerActivity.class);
 
         i.putExtra("url", url);
+        i.putExtra(TAP_TIME_EXTRA, SystemClock.elapsedRealtime());
         ctx.startActivity(i);
     }
 
+    private void recordFirstFrame() {
+        if (mFirstFrameRecorded) {
+            return;
+        }
+        mFirstFrameRecorded = true;
+
+        LiveStreamPrewarmer.getInstance(this).recordTimeToFirstFrame(SystemClock.elapsedRealtime() - mTapTime, mStreamWarm);
+    }
+
     public class LoadLiveStreamTask extends AsyncTask<String, Uri, Void> {
 
 
@@ -93,9 +114,26 @@ public class VideoPlayerActivity extends Activity implements MediaPlayer.OnCompl
                         // hide the progress dialog
                         videoView.start();
                         dialog.dismiss();
+
+                        // Older players can't say when a frame is drawn, prepared is as close as they get
+                        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                            recordFirstFrame();
+                        }
                     }
                 });
 
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                    videoView.setOnInfoListener(new MediaPlayer.OnInfoListener() {
+                        @Override
+                        public boolean onInfo(MediaPlayer mp, int what, int extra) {
+                            if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START) {
+                                recordFirstFrame();
+                            }
+                            return false;
+                        }
+                    });
+                }
+
             } catch (IllegalArgumentException e) {
                 e.printStackTrace();
             } catch (IllegalStateException e) {
@@ -108,7 +146,8 @@ public class VideoPlayerActivity extends Activity implements MediaPlayer.OnCompl
         @Override
         protected Void doInBackground(String... params) {
             try {
-                // Check the progress of the download
+                // Always play the master playlist so the player can still switch bitrates, a warm stream just has its dns and cdn ready
+                mStreamWarm = LiveStreamPrewarmer.getInstance(VideoPlayerActivity.this).isWarm(params[0]);
                 Uri uri = Uri.parse(params[0]);
                 publishProgress(uri);
             } catch (Exception e) {
@@ -0,0 +1,196 @@
+package com.nucc.hackwinds.models;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.google.api.client.util.DateTime;
+import com.nucc.hackwinds.listeners.BuoyHistoryListener;
+import com.nucc.hackwinds.types.BuoyHistorySeries;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuoyHistoryStoreTest {
+
+    private static final String STATION_ID = "44097";
+
+    // Run everything inline so the store can be checked right after each call
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readingsRoundTripThroughTheFile() throws Exception {
+        File directory = mTemporaryFolder.newFolder();
+        long start = hoursAgo(6);
+
+        BuoyHistoryStore store = new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        store.append(STATION_ID, createReading(start, 3.25, 9.1, 135.0, 58.4, 61.2));
+
+        // Values going down exercise the negative zigzag deltas
+        store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(1), 2.5, 8.3, 95.0, 57.9, 60.1));
+
+        // Readings without a wave summary keep the missing values missing
+        store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(2), null, null, null, 58.0, null));
+
+        // Not newer than the last reading, so it's ignored
+        store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(1), 9.0, 9.0, 9.0, 9.0, 9.0));
+
+        // A new store decodes everything from disk
+        BuoyHistorySeries history = loadAll(new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR));
+        assertEquals(3, history.size());
+        assertEquals(toSeconds(start), history.getTime(0));
+        assertEquals(3.25, history.getWaveHeight(0), 1e-9);
+        assertEquals(9.1, history.getPeriod(0), 1e-9);
+        assertEquals(135.0, history.getDirection(0), 1e-9);
+        assertEquals(58.4, history.getWaterTemperature(0), 1e-9);
+        assertEquals(61.2, history.getAirTemperature(0), 1e-9);
+
+        assertEquals(2.5, history.getWaveHeight(1), 1e-9);
+        assertEquals(95.0, history.getDirection(1), 1e-9);
+        assertEquals(60.1, history.getAirTemperature(1), 1e-9);
+
+        assertTrue(Double.isNaN(history.getWaveHeight(2)));
+        assertTrue(Double.isNaN(history.getPeriod(2)));
+        assertTrue(Double.isNaN(history.getAirTemperature(2)));
+        assertEquals(58.0, history.getWaterTemperature(2), 1e-9);
+
+        // Range queries include the start and exclude the end
+        BuoyHistorySeries range = loadRange(store, toSeconds(start + TimeUnit.HOURS.toMillis(1)), toSeconds(start + TimeUnit.HOURS.toMillis(2)));
+        assertEquals(1, range.size());
+        assertEquals(2.5, range.getWaveHeight(0), 1e-9);
+    }
+
+    @Test
+    public void partialRecordAtTheEndIsTruncated() throws Exception {
+        File directory = mTemporaryFolder.newFolder();
+        long start = hoursAgo(6);
+
+        BuoyHistoryStore store = new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        for (int i = 0; i < 3; i++) {
+            store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(i), 2.0 + i, 8.0, 120.0, 58.0, 60.0));
+        }
+        File historyFile = new File(directory, STATION_ID + ".bin");
+        long twoRecordLength = lengthAfterTwoRecords(start);
+
+        // Cut the last record off part way through, like a write interrupted by the process dying
+        RandomAccessFile randomAccessFile = new RandomAccessFile(historyFile, "rw");
+        randomAccessFile.setLength(historyFile.length() - 2);
+        randomAccessFile.close();
+
+        BuoyHistoryStore reopened = new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        BuoyHistorySeries history = loadAll(reopened);
+        assertEquals(2, history.size());
+        assertEquals(3.0, history.getWaveHeight(1), 1e-9);
+        assertEquals(twoRecordLength, historyFile.length());
+
+        // Appending after the truncation lines up with the remaining records
+        reopened.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(3), 5.0, 8.0, 120.0, 58.0, 60.0));
+        history = loadAll(new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR));
+        assertEquals(3, history.size());
+        assertEquals(5.0, history.getWaveHeight(2), 1e-9);
+        assertEquals(toSeconds(start + TimeUnit.HOURS.toMillis(3)), history.getTime(2));
+    }
+
+    @Test
+    public void expiredReadingsAreCompactedAway() throws Exception {
+        File directory = mTemporaryFolder.newFolder();
+        long start = hoursAgo(10 * 24);
+
+        // A reading every six hours for ten days, more than the week kept plus the day of slack
+        BuoyHistoryStore store = new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        int readingCount = 10 * 4;
+        for (int i = 0; i < readingCount; i++) {
+            store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(6 * i), 2.0 + (i % 5), 8.0, 120.0, 58.0, 60.0));
+        }
+
+        long lastTime = start + TimeUnit.HOURS.toMillis(6 * (readingCount - 1));
+
+        // Appends compact once the oldest reading is past the week plus the slack
+        BuoyHistorySeries history = loadAll(store);
+        assertTrue(history.size() < readingCount);
+        assertTrue(history.getTime(0) >= lastTime - TimeUnit.DAYS.toMillis(8));
+        assertEquals(toSeconds(lastTime), history.getTime(history.size() - 1));
+
+        // Opening the file again drops everything past the week and re-encodes the rest from the new first record
+        long retainedFrom = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7);
+        BuoyHistorySeries reloaded = loadAll(new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR));
+        int firstRetained = 0;
+        while (history.getTime(firstRetained) < retainedFrom) {
+            firstRetained++;
+        }
+        assertTrue(firstRetained > 0);
+        assertEquals(history.size() - firstRetained, reloaded.size());
+        for (int i = 0; i < reloaded.size(); i++) {
+            assertEquals(history.getTime(firstRetained + i), reloaded.getTime(i));
+            assertEquals(history.getWaveHeight(firstRetained + i), reloaded.getWaveHeight(i), 1e-9);
+        }
+
+        // And the compacted file reads back the same again
+        BuoyHistorySeries compacted = loadAll(new BuoyHistoryStore(directory, DIRECT_EXECUTOR, DIRECT_EXECUTOR));
+        assertEquals(reloaded.size(), compacted.size());
+        assertEquals(reloaded.getTime(0), compacted.getTime(0));
+    }
+
+    private long lengthAfterTwoRecords(long start) throws Exception {
+        File otherDirectory = mTemporaryFolder.newFolder();
+        BuoyHistoryStore store = new BuoyHistoryStore(otherDirectory, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        for (int i = 0; i < 2; i++) {
+            store.append(STATION_ID, createReading(start + TimeUnit.HOURS.toMillis(i), 2.0 + i, 8.0, 120.0, 58.0, 60.0));
+        }
+        return new File(otherDirectory, STATION_ID + ".bin").length();
+    }
+
+    private static BuoyHistorySeries loadAll(BuoyHistoryStore store) {
+        return loadRange(store, 0, Long.MAX_VALUE);
+    }
+
+    private static BuoyHistorySeries loadRange(BuoyHistoryStore store, long start, long end) {
+        final BuoyHistorySeries[] loaded = new BuoyHistorySeries[1];
+        store.loadHistory(STATION_ID, start, end, new BuoyHistoryListener() {
+            @Override
+            public void buoyHistoryLoaded(BuoyHistorySeries history) {
+                loaded[0] = history;
+            }
+        });
+        return loaded[0];
+    }
+
+    private static ApiApiMessagesDataMessage createReading(long time, Double waveHeight, Double period, Double direction,
+                                                           Double waterTemperature, Double airTemperature) {
+        ApiApiMessagesDataMessage reading = new ApiApiMessagesDataMessage();
+        reading.setDate(new DateTime(time));
+        if (waveHeight != null) {
+            reading.setWaveSummary(new ApiApiMessagesSwellMessage()
+                    .setWaveHeight(waveHeight)
+                    .setPeriod(period)
+                    .setDirection(direction));
+        }
+        reading.setWaterTemperature(waterTemperature);
+        reading.setAirTemperature(airTemperature);
+        return reading;
+    }
+
+    private static long hoursAgo(int hours) {
+        return System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+    }
+
+    // The store keeps times to the second
+    private static long toSeconds(long time) {
+        return (time / 1000) * 1000;
+    }
+}
@@ -0,0 +1,121 @@
+package com.nucc.hackwinds.models;
+
+import com.nucc.hackwinds.types.Tide;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TideCurveTest {
+
+    // October 1st 2017 at midnight UTC
+    private static final long START = 1506816000000L;
+    private static final long HALF_CYCLE = TimeUnit.HOURS.toMillis(6);
+    private static final float DELTA = 1e-4f;
+
+    @Test
+    public void onlyTidesAreFitted() {
+        TideCurve curve = createCurve();
+        assertEquals(4, curve.getEventCount());
+        assertEquals(START, curve.getStartTime());
+        assertEquals(START + 3 * HALF_CYCLE, curve.getEndTime());
+    }
+
+    @Test
+    public void levelFollowsHalfACosineBetweenEvents() {
+        TideCurve curve = createCurve();
+
+        // Exactly on an event the binary search finds it
+        assertEquals(5.0f, curve.getHeight(START + HALF_CYCLE), DELTA);
+        assertEquals(1.0f, curve.getHeight(START + 2 * HALF_CYCLE), DELTA);
+
+        // Half way between a low and a high is the middle of the range, a quarter of the way is a cosine step
+        assertEquals(3.0f, curve.getHeight(START + HALF_CYCLE / 2), DELTA);
+        float quarter = (float) (1 + 4 * (1 - Math.cos(Math.PI / 4)) / 2);
+        assertEquals(quarter, curve.getHeight(START + HALF_CYCLE / 4), DELTA);
+    }
+
+    @Test
+    public void endsMirrorTheClosestHalfCycle() {
+        TideCurve curve = createCurve();
+
+        // Before the first low the curve runs back up towards the following high
+        assertEquals(1.0f, curve.getHeight(START), DELTA);
+        assertEquals(3.0f, curve.getHeight(START - HALF_CYCLE / 2), DELTA);
+        assertEquals(5.0f, curve.getHeight(START - HALF_CYCLE), DELTA);
+
+        // And holds there instead of continuing the wave
+        assertEquals(5.0f, curve.getHeight(START - 3 * HALF_CYCLE), DELTA);
+
+        // After the last high the curve runs back down towards the low before it
+        long end = START + 3 * HALF_CYCLE;
+        assertEquals(4.0f, curve.getHeight(end), DELTA);
+        assertEquals(2.5f, curve.getHeight(end + HALF_CYCLE / 2), DELTA);
+        assertEquals(1.0f, curve.getHeight(end + HALF_CYCLE), DELTA);
+        assertEquals(1.0f, curve.getHeight(end + 4 * HALF_CYCLE), DELTA);
+    }
+
+    @Test
+    public void tooFewEventsGiveAFlatCurve() {
+        assertEquals(0.0f, new TideCurve(new ArrayList<Tide>()).getHeight(START), DELTA);
+
+        ArrayList<Tide> events = new ArrayList<>();
+        events.add(createTide(Tide.HIGH_TIDE_TAG, START, 4.5f));
+        TideCurve curve = new TideCurve(events);
+        assertEquals(4.5f, curve.getHeight(START - HALF_CYCLE), DELTA);
+        assertEquals(4.5f, curve.getHeight(START + HALF_CYCLE), DELTA);
+    }
+
+    @Test
+    public void samplesAreReusedForTheSameRange() {
+        TideCurve curve = createCurve();
+        long end = START + 3 * HALF_CYCLE;
+
+        float[] samples = curve.sample(START, end, 7);
+        assertEquals(7, samples.length);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(curve.getHeight(START + i * HALF_CYCLE / 2), samples[i], DELTA);
+        }
+        assertSame(samples, curve.sample(START, end, 7));
+
+        // Any change to the range or the count samples again
+        float[] moreSamples = curve.sample(START, end, 13);
+        assertNotSame(samples, moreSamples);
+        assertEquals(13, moreSamples.length);
+        assertEquals(4.0f, moreSamples[12], DELTA);
+
+        float[] laterSamples = curve.sample(START + HALF_CYCLE, end, 13);
+        assertNotSame(moreSamples, laterSamples);
+        assertEquals(5.0f, laterSamples[0], DELTA);
+        assertSame(laterSamples, curve.sample(START + HALF_CYCLE, end, 13));
+    }
+
+    /**
+     * Low, high, low, high half a cycle apart, with the day header and a sunrise the tide table
+     * mixes in.
+     */
+    private static TideCurve createCurve() {
+        ArrayList<Tide> events = new ArrayList<>();
+        events.add(createTide(Tide.DAY_TAG, START, 0));
+        events.add(createTide(Tide.LOW_TIDE_TAG, START, 1.0f));
+        events.add(createTide(Tide.SUNRISE_TAG, START + HALF_CYCLE / 3, 0));
+        events.add(createTide(Tide.HIGH_TIDE_TAG, START + HALF_CYCLE, 5.0f));
+        events.add(createTide(Tide.LOW_TIDE_TAG, START + 2 * HALF_CYCLE, 1.0f));
+        events.add(createTide(Tide.HIGH_TIDE_TAG, START + 3 * HALF_CYCLE, 4.0f));
+        return new TideCurve(events);
+    }
+
+    private static Tide createTide(String eventType, long time, float height) {
+        Tide tide = new Tide();
+        tide.eventType = eventType;
+        tide.timestamp = new Date(time);
+        tide.heightValue = height;
+        return tide;
+    }
+}
@@ -0,0 +1,165 @@
+package com.nucc.hackwinds.models;
+
+import com.nucc.hackwinds.types.Tide;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TideModelTest {
+
+    // Monday October 2nd 2017 at midnight UTC
+    private static final long MONDAY = 1506902400000L;
+    private static final long TUESDAY = MONDAY + TimeUnit.DAYS.toMillis(1);
+    private static final long WEDNESDAY = TUESDAY + TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void expiredEventsArePrunedAndTheDaysRelabelled() {
+        TideModel model = new TideModel();
+        ArrayList<Tide> events = createTable();
+        model.mergeTideEvents(events, MONDAY);
+        assertEquals(2, model.dayCount);
+        assertEquals(8, model.tides.size());
+
+        // Part way through Monday only the events still to come are left, under the same header
+        assertTrue(model.pruneExpiredEvents(MONDAY + hours(3)));
+        assertEquals(2, model.dayCount);
+        assertDay(model.tides.get(0), "Monday");
+        assertSame(events.get(1), model.tides.get(1));
+        assertSame(events.get(2), model.tides.get(2));
+        assertDay(model.tides.get(3), "Tuesday");
+
+        // Nothing else has happened yet
+        assertFalse(model.pruneExpiredEvents(MONDAY + hours(3)));
+
+        // Once Monday is over its header goes too, and the sunset that passed leaves the other events
+        assertTrue(model.pruneExpiredEvents(TUESDAY + hours(1)));
+        assertEquals(1, model.dayCount);
+        assertEquals(4, model.tides.size());
+        assertDay(model.tides.get(0), "Tuesday");
+        assertSame(events.get(3), model.tides.get(1));
+        assertEquals(1, model.otherEvents.size());
+        assertSame(events.get(4), model.otherEvents.get(0));
+
+        // The last tide that passed still anchors the start of the curve
+        assertEquals(events.get(1).timestamp.getTime(), model.getTideCurve().getStartTime());
+    }
+
+    @Test
+    public void onlyEventsPastTheHorizonAreMerged() {
+        TideModel model = new TideModel();
+        ArrayList<Tide> events = createTable();
+        model.mergeTideEvents(events, MONDAY);
+
+        // A refetch repeats the known events as new objects and adds Wednesday
+        ArrayList<Tide> fetchedEvents = createTable();
+        fetchedEvents.add(createTide(Tide.LOW_TIDE_TAG, "Wednesday", WEDNESDAY + hours(3), 0.3f));
+        fetchedEvents.add(createTide(Tide.HIGH_TIDE_TAG, "Wednesday", WEDNESDAY + hours(9), 3.9f));
+        assertTrue(model.mergeTideEvents(fetchedEvents, MONDAY));
+
+        // The known events keep their objects and the new day gets its own header
+        assertEquals(3, model.dayCount);
+        assertEquals(11, model.tides.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertTrue(model.tides.contains(events.get(i)));
+            assertFalse(model.tides.contains(fetchedEvents.get(i)));
+        }
+        assertDay(model.tides.get(8), "Wednesday");
+        assertSame(fetchedEvents.get(events.size()), model.tides.get(9));
+
+        // The same table again changes nothing
+        assertFalse(model.mergeTideEvents(createTable(), MONDAY));
+        assertEquals(11, model.tides.size());
+    }
+
+    @Test
+    public void dayBoundaryOnTheHorizon() {
+        TideModel model = new TideModel();
+        ArrayList<Tide> events = new ArrayList<>();
+        events.add(createTide(Tide.LOW_TIDE_TAG, "Monday", MONDAY + hours(18), 0.4f));
+        Tide lastTide = createTide(Tide.HIGH_TIDE_TAG, "Tuesday", TUESDAY, 3.6f);
+        events.add(lastTide);
+        model.mergeTideEvents(events, MONDAY);
+        assertEquals(2, model.dayCount);
+
+        // The tide at midnight is the horizon, a copy of it isn't added again, and the day it started keeps one header
+        ArrayList<Tide> fetchedEvents = new ArrayList<>();
+        fetchedEvents.add(createTide(Tide.HIGH_TIDE_TAG, "Tuesday", TUESDAY, 3.6f));
+        fetchedEvents.add(createTide(Tide.LOW_TIDE_TAG, "Tuesday", TUESDAY + hours(6), 0.2f));
+        fetchedEvents.add(createTide(Tide.HIGH_TIDE_TAG, "Wednesday", WEDNESDAY, 3.8f));
+        assertTrue(model.mergeTideEvents(fetchedEvents, MONDAY));
+
+        assertEquals(3, model.dayCount);
+        assertEquals(7, model.tides.size());
+        assertDay(model.tides.get(2), "Tuesday");
+        assertSame(lastTide, model.tides.get(3));
+        assertSame(fetchedEvents.get(1), model.tides.get(4));
+        assertDay(model.tides.get(5), "Wednesday");
+        assertSame(fetchedEvents.get(2), model.tides.get(6));
+    }
+
+    @Test
+    public void fetchedTidesReplacePredictedOnes() {
+        TideModel model = new TideModel();
+        ArrayList<Tide> predictedEvents = createTable();
+        model.applyPredictedEvents(predictedEvents, true, MONDAY);
+        assertTrue(model.isUsingPredictions());
+        assertTrue(model.hasPublishedPredictions());
+        assertTrue(model.isDataStale());
+
+        // The service's table covers the same times but takes over completely
+        ArrayList<Tide> fetchedEvents = createTable();
+        assertTrue(model.applyFetchedEvents(fetchedEvents, MONDAY));
+        assertFalse(model.isUsingPredictions());
+        assertFalse(model.hasPublishedPredictions());
+        assertFalse(model.isDataStale());
+        assertEquals(8, model.tides.size());
+        for (Tide predictedTide : predictedEvents) {
+            assertFalse(model.tides.contains(predictedTide));
+        }
+        assertSame(fetchedEvents.get(0), model.tides.get(1));
+
+        // Confirming the same table again isn't news
+        assertFalse(model.applyFetchedEvents(createTable(), MONDAY));
+    }
+
+    /**
+     * Monday and Tuesday with the tides and a sunset mixed in, without day headers like the tide
+     * summary parses to.
+     */
+    private static ArrayList<Tide> createTable() {
+        ArrayList<Tide> events = new ArrayList<>();
+        events.add(createTide(Tide.LOW_TIDE_TAG, "Monday", MONDAY + hours(2), 0.5f));
+        events.add(createTide(Tide.HIGH_TIDE_TAG, "Monday", MONDAY + hours(8), 3.5f));
+        events.add(createTide(Tide.SUNSET_TAG, "Monday", MONDAY + hours(18), 0));
+        events.add(createTide(Tide.LOW_TIDE_TAG, "Tuesday", TUESDAY + hours(3), 0.4f));
+        events.add(createTide(Tide.SUNRISE_TAG, "Tuesday", TUESDAY + hours(7), 0));
+        events.add(createTide(Tide.HIGH_TIDE_TAG, "Tuesday", TUESDAY + hours(9), 3.7f));
+        return events;
+    }
+
+    private static Tide createTide(String eventType, String day, long time, float height) {
+        Tide tide = new Tide();
+        tide.eventType = eventType;
+        tide.day = day;
+        tide.timestamp = new Date(time);
+        tide.heightValue = height;
+        return tide;
+    }
+
+    private static void assertDay(Tide tide, String day) {
+        assertTrue(tide.isDayItem());
+        assertEquals(day, tide.day);
+    }
+
+    private static long hours(int hours) {
+        return TimeUnit.HOURS.toMillis(hours);
+    }
+}
@@ -0,0 +1,138 @@
+package com.nucc.hackwinds.models;
+
+import com.nucc.hackwinds.types.Tide;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TidePredictorTest {
+
+    // October 1st 2017 at midnight UTC
+    private static final long START = 1506816000000L;
+    private static final long END = START + TimeUnit.DAYS.toMillis(7);
+
+    @Test
+    public void diurnalArgumentsFollowSchureman() {
+        double[] astronomy = TidePredictor.getAstronomicalArguments(START);
+        double t = astronomy[0];
+        double s = astronomy[1];
+        double h = astronomy[2];
+        double p = astronomy[3];
+
+        assertAngle(t + h - 90, TidePredictor.getEquilibriumArgument("K1", astronomy));
+        assertAngle(t - 2 * s + h + 90, TidePredictor.getEquilibriumArgument("O1", astronomy));
+        assertAngle(t - h + 90, TidePredictor.getEquilibriumArgument("P1", astronomy));
+        assertAngle(t - 3 * s + h + p + 90, TidePredictor.getEquilibriumArgument("Q1", astronomy));
+    }
+
+    @Test
+    public void diurnalHighWaterFallsOnThePhaseLag() {
+        TidePredictor.Station station = createStation("K1", 1.0, 120.0);
+        ArrayList<Tide> tides = TidePredictor.predictTideEvents(station, START, END);
+        assertFalse(tides.isEmpty());
+
+        // High water is where the equilibrium argument plus the nodal correction reaches the phase lag
+        for (Tide tide : tides) {
+            if (!tide.isHighTide()) {
+                continue;
+            }
+
+            double[] astronomy = TidePredictor.getAstronomicalArguments(tide.timestamp.getTime());
+            double argument = TidePredictor.getEquilibriumArgument("K1", astronomy) + TidePredictor.getNodalCorrection("K1", astronomy[4])[1];
+            assertAngle(120.0, argument, 0.5);
+        }
+    }
+
+    @Test
+    public void semidiurnalTidesAlternateTwiceADay() {
+        TidePredictor.Station station = createStation("M2", 2.0, 0.0);
+        ArrayList<Tide> tides = TidePredictor.predictTideEvents(station, START, END);
+
+        // M2 turns every 6.21 hours, so a week has 27 turns
+        assertEquals(27, tides.size(), 1);
+        for (int i = 1; i < tides.size(); i++) {
+            Tide previous = tides.get(i - 1);
+            Tide tide = tides.get(i);
+            assertTrue(previous.isHighTide() != tide.isHighTide());
+
+            double hours = (tide.timestamp.getTime() - previous.timestamp.getTime()) / (double) TimeUnit.HOURS.toMillis(1);
+            assertEquals(6.21, hours, 0.02);
+
+            double nodalFactor = TidePredictor.getNodalCorrection("M2", TidePredictor.getAstronomicalArguments(tide.timestamp.getTime())[4])[0];
+            assertEquals(tide.isHighTide() ? 2.0 * nodalFactor : -2.0 * nodalFactor, tide.heightValue, 0.01);
+        }
+    }
+
+    @Test
+    public void bundledStationsLoad() throws Exception {
+        HashMap<String, TidePredictor.Station> stations = TidePredictor.parseBundledStations(readFile("src/main/res/raw/tide_constituents.json"));
+
+        for (String stationId : new String[] {TidePredictor.POINT_JUDITH_STATION, TidePredictor.NEWPORT_STATION, TidePredictor.BLOCK_ISLAND_STATION}) {
+            TidePredictor.Station station = stations.get(stationId);
+            assertTrue(station != null);
+            assertFalse(station.published);
+            assertEquals(10, station.constituents.length);
+
+            // A semidiurnal coast sees three or four tides a day with a few feet of range
+            ArrayList<Tide> tides = TidePredictor.predictTideEvents(station, START, END);
+            assertEquals(27, tides.size(), 2);
+            for (Tide tide : tides) {
+                assertTrue(tide.heightValue > -1.5 && tide.heightValue < 5.5);
+            }
+        }
+    }
+
+    @Test
+    public void publishedStationReadsNoaaMetadata() throws Exception {
+        TidePredictor.Station station = TidePredictor.parsePublishedStation("Sample",
+                readFile("src/test/resources/noaa_harcon_sample.json"),
+                readFile("src/test/resources/noaa_datums_sample.json"));
+
+        assertTrue(station.published);
+        assertEquals(7.4 - 5.8, station.datumOffset, 1e-9);
+
+        // MSF has no astronomical arguments here and is dropped
+        assertEquals(5, station.constituents.length);
+        assertEquals("M2", station.constituents[0].name);
+        assertEquals(1.5, station.constituents[0].amplitude, 1e-9);
+        assertEquals(10.0, station.constituents[0].phase, 1e-9);
+    }
+
+    private static TidePredictor.Station createStation(String constituent, double amplitude, double phase) {
+        TidePredictor.Station station = new TidePredictor.Station();
+        station.name = constituent;
+        station.datumOffset = 0;
+        station.constituents = new TidePredictor.Constituent[] {
+                new TidePredictor.Constituent(constituent, amplitude, phase, speedOf(constituent))
+        };
+        return station;
+    }
+
+    private static double speedOf(String constituent) {
+        return constituent.equals("K1") ? 15.0410686 : 28.9841042;
+    }
+
+    private static String readFile(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(path).toPath()), Charset.forName("UTF-8"));
+    }
+
+    private static void assertAngle(double expected, double actual) {
+        assertAngle(expected, actual, 1e-6);
+    }
+
+    private static void assertAngle(double expected, double actual, double delta) {
+        double difference = ((actual - expected) % 360 + 540) % 360 - 180;
+        assertEquals(0, difference, delta);
+    }
+}
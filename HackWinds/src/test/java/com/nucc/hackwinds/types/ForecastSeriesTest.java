@@ -0,0 +1,123 @@
+package com.nucc.hackwinds.types;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ForecastSeriesTest {
+
+    @Test
+    public void compassPointsAndUnknownStringsReadBack() throws IOException {
+        ForecastSeries series = createSeries();
+        assertDirections(series);
+
+        // And the same after a trip through the snapshot encoding
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        series.writeTo(new DataOutputStream(bytes));
+        assertDirections(ForecastSeries.readFrom(ByteBuffer.wrap(bytes.toByteArray())));
+    }
+
+    @Test
+    public void unknownStringsAreOnlyStoredOnce() throws IOException {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(0);
+        for (int i = 0; i < 100; i++) {
+            builder.setDate("Monday").setHour(i % 24).setWindCompassDirection("NULL");
+            for (int component = 0; component < ForecastSeries.SWELL_COMPONENT_COUNT; component++) {
+                builder.setSwellCompassDirection(component, "Variable");
+            }
+            builder.nextEntry();
+        }
+
+        ForecastSeries series = builder.build();
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals("NULL", series.getWindCompassDirection(i));
+            assertEquals("Variable", series.getSwellCompassDirection(ForecastSeries.TERTIARY_SWELL, i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyUnknownStringsFailTheParse() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(0);
+        for (int i = 0; i < 300; i++) {
+            builder.setWindCompassDirection("Unknown " + i).nextEntry();
+        }
+    }
+
+    @Test
+    public void timesMatchTheServiceFormat() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(0);
+        for (int hour = 0; hour < 24; hour++) {
+            builder.setHour(hour).nextEntry();
+        }
+        builder.setHour(ForecastSeries.parseHour("garbage")).nextEntry();
+        ForecastSeries series = builder.build();
+
+        for (int hour = 0; hour < 24; hour++) {
+            assertEquals(hour, ForecastSeries.parseHour(series.getTime(hour)));
+        }
+        assertEquals("12 AM", series.getShortTime(0));
+        assertEquals("1 PM", series.getShortTime(13));
+        assertEquals("0:00", series.getTwentyFourHourTime(0));
+        assertEquals("13:00", series.getTwentyFourHourTime(13));
+        assertEquals("09 AM", series.getTime(9));
+
+        // A time that couldn't be read stays blank
+        assertEquals("", series.getTime(24));
+    }
+
+    @Test
+    public void dayViewReadsItsSliceOfTheSeries() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(0);
+        for (int i = 0; i < 6; i++) {
+            builder.setDate(i < 3 ? "Monday" : "Tuesday").setHour(i * 3).setWindSpeed(i)
+                    .setSwellHeight(ForecastSeries.SECONDARY_SWELL, i / 2.0).nextEntry();
+        }
+        ForecastDayView day = new ForecastDayView(builder.build(), 3, 6);
+
+        assertEquals(3, day.size());
+        assertEquals("9:00", day.getTwentyFourHourTime(0));
+        assertEquals(4.0, day.getWindSpeed(1), 1e-9);
+        assertEquals(2.5, day.getSwellHeight(ForecastSeries.SECONDARY_SWELL, 2), 1e-9);
+        assertEquals("Tuesday", day.get(2).date);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void dayViewStaysInsideItsDay() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(0);
+        for (int i = 0; i < 6; i++) {
+            builder.setHour(i).nextEntry();
+        }
+        new ForecastDayView(builder.build(), 0, 3).getWindSpeed(3);
+    }
+
+    private static ForecastSeries createSeries() {
+        ForecastSeries.Builder builder = new ForecastSeries.Builder(4);
+        builder.setDate("Monday").setHour(1).setWindCompassDirection("SSW")
+                .setSwellCompassDirection(ForecastSeries.PRIMARY_SWELL, "S")
+                .setSwellCompassDirection(ForecastSeries.SECONDARY_SWELL, "NULL")
+                .setSwellCompassDirection(ForecastSeries.TERTIARY_SWELL, "Variable")
+                .nextEntry();
+        builder.setDate("Monday").setHour(4).setWindCompassDirection("NULL")
+                .setSwellCompassDirection(ForecastSeries.PRIMARY_SWELL, "NNW")
+                .nextEntry();
+        return builder.build();
+    }
+
+    private static void assertDirections(ForecastSeries series) {
+        assertEquals(2, series.size());
+        assertEquals("SSW", series.getWindCompassDirection(0));
+        assertEquals("S", series.getSwellCompassDirection(ForecastSeries.PRIMARY_SWELL, 0));
+        assertEquals("NULL", series.getSwellCompassDirection(ForecastSeries.SECONDARY_SWELL, 0));
+        assertEquals("Variable", series.getSwellCompassDirection(ForecastSeries.TERTIARY_SWELL, 0));
+
+        assertEquals("NULL", series.getWindCompassDirection(1));
+        assertEquals("NNW", series.getSwellCompassDirection(ForecastSeries.PRIMARY_SWELL, 1));
+        assertNull(series.getSwellCompassDirection(ForecastSeries.SECONDARY_SWELL, 1));
+    }
+}
@@ -0,0 +1,244 @@
+package com.nucc.hackwinds.utilities;
+
+import com.appspot.mpitester_13.station.Station;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class HttpRevalidatorTest {
+
+    // The steepness has a non ascii character so its byte length differs from its length in chars
+    private static final String BODY = "{\"windCompassDirection\":\"NNE\",\"waterTemperature\":54.3,\"steepness\":\"Très steep\"}";
+    private static final String ETAG = "\"8f3a\"";
+    private static final String LAST_MODIFIED = "Mon, 16 Oct 2017 12:00:00 GMT";
+    private static final String NEW_BODY = "{\"windCompassDirection\":\"N\",\"waterTemperature\":53.9,\"steepness\":\"Gentle\"}";
+    private static final String NEW_ETAG = "\"9b41\"";
+
+    private MemoryResponseStore mResponseStore;
+    private long mRecordedBytes;
+    private StubTransport mTransport;
+    private Station mStation;
+
+    @Before
+    public void setUp() {
+        mResponseStore = new MemoryResponseStore();
+        mRecordedBytes = 0;
+        mTransport = new StubTransport();
+        mStation = new Station.Builder(mTransport, GsonFactory.getDefaultInstance(), null).build();
+    }
+
+    @Test
+    public void notModifiedIsServedFromTheCachedBody() throws IOException {
+        HttpRevalidator revalidator = createRevalidator();
+
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).setContentType("application/json; charset=UTF-8")
+                .addHeader("ETag", ETAG).addHeader("Last-Modified", LAST_MODIFIED).setContent(BODY));
+        ApiApiMessagesDataMessage first = revalidator.execute(mStation.data("ENGLISH", "44097"));
+        assertEquals("Très steep", first.getSteepness());
+
+        // Nothing was cached, so the first request is unconditional and counted in bytes rather than chars
+        assertNull(mTransport.requests.get(0).getFirstHeaderValue("If-None-Match"));
+        assertEquals(BODY.getBytes("UTF-8").length, mRecordedBytes);
+        assertEquals(1, mResponseStore.writeCount);
+
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(304));
+        ApiApiMessagesDataMessage second = revalidator.execute(mStation.data("ENGLISH", "44097"));
+
+        MockLowLevelHttpRequest conditionalRequest = mTransport.requests.get(1);
+        assertEquals(ETAG, conditionalRequest.getFirstHeaderValue("If-None-Match"));
+        assertEquals(LAST_MODIFIED, conditionalRequest.getFirstHeaderValue("If-Modified-Since"));
+
+        // The cached body answers the 304 and is left as it was
+        assertEquals(first.getSteepness(), second.getSteepness());
+        assertEquals(first.getWaterTemperature(), second.getWaterTemperature());
+        assertEquals(1, mResponseStore.writeCount);
+        assertEquals(BODY.getBytes("UTF-8").length, mRecordedBytes);
+        assertEquals(1, revalidator.getNotModifiedCount());
+    }
+
+    @Test
+    public void validatorsOutliveTheRevalidator() throws IOException {
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).addHeader("ETag", ETAG).setContent(BODY));
+        createRevalidator().execute(mStation.data("ENGLISH", "44097"));
+
+        // A new session reads the validators back from the store
+        HttpRevalidator revalidator = createRevalidator();
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(304));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+
+        MockLowLevelHttpRequest conditionalRequest = mTransport.requests.get(1);
+        assertEquals(ETAG, conditionalRequest.getFirstHeaderValue("If-None-Match"));
+        assertNull(conditionalRequest.getFirstHeaderValue("If-Modified-Since"));
+    }
+
+    @Test
+    public void notModifiedWithoutACachedBodyFailsAndResetsTheValidators() throws IOException {
+        HttpRevalidator revalidator = createRevalidator();
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).addHeader("ETag", ETAG).setContent(BODY));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+
+        // The body can't be read back even though the store still reports it, so the request goes out conditional
+        mResponseStore.unreadableBodies = true;
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(304));
+        try {
+            revalidator.execute(mStation.data("ENGLISH", "44097"));
+            fail("A 304 without a cached body should fail");
+        } catch (HttpResponseException e) {
+            assertEquals(HttpRevalidator.NOT_MODIFIED_STATUS, e.getStatusCode());
+        }
+
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).setContent(BODY));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+        assertNull(mTransport.requests.get(2).getFirstHeaderValue("If-None-Match"));
+    }
+
+    @Test
+    public void validatorsWaitForTheBodyToBeWritten() throws IOException {
+        HttpRevalidator revalidator = createRevalidator();
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).addHeader("ETag", ETAG).setContent(BODY));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+
+        // A newer body comes in but hasn't reached the store yet
+        mResponseStore.deferWrites = true;
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).addHeader("ETag", NEW_ETAG).setContent(NEW_BODY));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+
+        // So the next request still describes the body that is actually stored
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(200).addHeader("ETag", NEW_ETAG).setContent(NEW_BODY));
+        revalidator.execute(mStation.data("ENGLISH", "44097"));
+        assertEquals(ETAG, mTransport.requests.get(2).getFirstHeaderValue("If-None-Match"));
+
+        // Once it's written the new validators go out and a 304 is answered with the new body
+        mResponseStore.flushWrites();
+        mTransport.enqueue(new MockLowLevelHttpResponse().setStatusCode(304));
+        ApiApiMessagesDataMessage revalidated = revalidator.execute(mStation.data("ENGLISH", "44097"));
+        assertEquals(NEW_ETAG, mTransport.requests.get(3).getFirstHeaderValue("If-None-Match"));
+        assertEquals("Gentle", revalidated.getSteepness());
+    }
+
+    private HttpRevalidator createRevalidator() {
+        return new HttpRevalidator(mResponseStore, new ByteCounter() {
+            @Override
+            public void recordBytes(long bytes) {
+                mRecordedBytes += bytes;
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Answers requests with queued responses and keeps the requests for inspection.
+     */
+    private static class StubTransport extends MockHttpTransport {
+        final ArrayList<MockLowLevelHttpRequest> requests = new ArrayList<>();
+        private final LinkedList<MockLowLevelHttpResponse> mResponses = new LinkedList<>();
+
+        void enqueue(MockLowLevelHttpResponse response) {
+            mResponses.add(response);
+        }
+
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, String url) {
+            MockLowLevelHttpRequest request = new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    return mResponses.removeFirst();
+                }
+            };
+            requests.add(request);
+            return request;
+        }
+    }
+
+    private static class MemoryResponseStore implements ResponseStore {
+        final HashMap<String, String> values = new HashMap<>();
+        final ArrayList<Runnable> pendingWrites = new ArrayList<>();
+        int writeCount = 0;
+        boolean unreadableBodies = false;
+
+        // Holds writes back until flushWrites(), like a disk write that hasn't finished yet
+        boolean deferWrites = false;
+
+        void flushWrites() {
+            for (Runnable write : pendingWrites) {
+                write.run();
+            }
+            pendingWrites.clear();
+        }
+
+        @Override
+        public String getString(String key) {
+            if (unreadableBodies && key.startsWith("api_")) {
+                return null;
+            }
+            return values.get(key);
+        }
+
+        @Override
+        public void putString(String key, String value) {
+            values.put(key, value);
+            if (key.startsWith("api_")) {
+                writeCount++;
+            }
+        }
+
+        @Override
+        public void putString(final String key, final String value, final Runnable onWritten) {
+            Runnable write = new Runnable() {
+                @Override
+                public void run() {
+                    putString(key, value);
+                    onWritten.run();
+                }
+            };
+
+            if (deferWrites) {
+                pendingWrites.add(write);
+            } else {
+                write.run();
+            }
+        }
+
+        @Override
+        public long getLastModified(String key) {
+            return values.containsKey(key) ? 1 : 0;
+        }
+
+        @Override
+        public long getSize(String key) {
+            String value = values.get(key);
+            return value != null ? value.length() : 0;
+        }
+
+        @Override
+        public void touch(String key) {
+        }
+
+        @Override
+        public void remove(String key) {
+            values.remove(key);
+        }
+    }
+}
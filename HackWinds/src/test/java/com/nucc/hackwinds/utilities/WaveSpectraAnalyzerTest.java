@@ -0,0 +1,140 @@
+package com.nucc.hackwinds.utilities;
+
+import com.appspot.mpitester_13.station.model.ApiApiMessagesDataMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesMeasurementLabelMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesSwellMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesUnitLabelMessage;
+import com.appspot.mpitester_13.station.model.ApiApiMessagesWaveSpectraMessage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WaveSpectraAnalyzerTest {
+
+    private static final double METERS_TO_FEET = 3.28084;
+    private static final double BAND_WIDTH = 0.01;
+
+    @Test
+    public void metricEnergyIsConvertedOnce() {
+        ApiApiMessagesWaveSpectraMessage spectra = createSpectra(0.1, 0.5, 180);
+        double heightMeters = 4 * Math.sqrt(0.5);
+
+        List<ApiApiMessagesSwellMessage> components = new WaveSpectraAnalyzer(spectra, false).getSwellComponents(true);
+        assertEquals(1, components.size());
+        assertEquals(heightMeters * METERS_TO_FEET, components.get(0).getWaveHeight(), 1e-6);
+        assertEquals(10.0, components.get(0).getPeriod(), 0.1);
+
+        components = new WaveSpectraAnalyzer(spectra, false).getSwellComponents(false);
+        assertEquals(heightMeters, components.get(0).getWaveHeight(), 1e-6);
+    }
+
+    @Test
+    public void englishEnergyIsNotConvertedAgain() {
+        // The same sea with the energy already in ft^2/Hz
+        ApiApiMessagesWaveSpectraMessage spectra = createSpectra(0.1, 0.5 * METERS_TO_FEET * METERS_TO_FEET, 180);
+        double heightFeet = 4 * Math.sqrt(0.5) * METERS_TO_FEET;
+
+        List<ApiApiMessagesSwellMessage> components = new WaveSpectraAnalyzer(spectra, true).getSwellComponents(true);
+        assertEquals(heightFeet, components.get(0).getWaveHeight(), 1e-6);
+
+        components = new WaveSpectraAnalyzer(spectra, true).getSwellComponents(false);
+        assertEquals(heightFeet / METERS_TO_FEET, components.get(0).getWaveHeight(), 1e-6);
+    }
+
+    @Test
+    public void energyUnitComesFromTheReportedWaveHeight() {
+        double heightFeet = 4 * Math.sqrt(0.5) * METERS_TO_FEET;
+
+        ApiApiMessagesDataMessage metric = createReading(createSpectra(0.1, 0.5, 180), heightFeet);
+        assertFalse(WaveSpectraAnalyzer.isEnergyInFeet(metric, true));
+
+        ApiApiMessagesDataMessage english = createReading(createSpectra(0.1, 0.5 * METERS_TO_FEET * METERS_TO_FEET, 180), heightFeet);
+        assertTrue(WaveSpectraAnalyzer.isEnergyInFeet(english, true));
+
+        // A metric request reports meters
+        assertFalse(WaveSpectraAnalyzer.isEnergyInFeet(createReading(createSpectra(0.1, 0.5, 180), heightFeet / METERS_TO_FEET), false));
+    }
+
+    @Test
+    public void energyUnitLabelWins() {
+        ApiApiMessagesDataMessage reading = createReading(createSpectra(0.1, 0.5, 180), 4 * Math.sqrt(0.5) * METERS_TO_FEET);
+
+        ApiApiMessagesMeasurementLabelMessage energy = new ApiApiMessagesMeasurementLabelMessage();
+        energy.setMeasurement("energy");
+        energy.setLabel("ft^2/Hz");
+        ApiApiMessagesUnitLabelMessage units = new ApiApiMessagesUnitLabelMessage();
+        units.setUnit("english");
+        units.setMeasurements(Collections.singletonList(energy));
+        reading.setUnits(units);
+        assertTrue(WaveSpectraAnalyzer.isEnergyInFeet(reading, true));
+
+        energy.setLabel("m^2/Hz");
+        assertFalse(WaveSpectraAnalyzer.isEnergyInFeet(reading, true));
+    }
+
+    @Test
+    public void separateSwellsArePartitioned() {
+        ApiApiMessagesWaveSpectraMessage groundSwell = createSpectra(0.07, 0.6, 180);
+        ApiApiMessagesWaveSpectraMessage windSwell = createSpectra(0.2, 0.2, 180);
+        ArrayList<Double> energies = new ArrayList<>();
+        for (int i = 0; i < groundSwell.getEnergy().size(); i++) {
+            energies.add(groundSwell.getEnergy().get(i) + windSwell.getEnergy().get(i));
+        }
+        ArrayList<Double> angles = new ArrayList<>();
+        for (double frequency : groundSwell.getFrequency()) {
+            angles.add(frequency < 0.13 ? 150.0 : 220.0);
+        }
+        groundSwell.setEnergy(energies);
+        groundSwell.setAngle(angles);
+
+        List<ApiApiMessagesSwellMessage> components = new WaveSpectraAnalyzer(groundSwell, false).getSwellComponents(false);
+        assertEquals(2, components.size());
+        assertEquals(4 * Math.sqrt(0.6), components.get(0).getWaveHeight(), 0.05);
+        assertEquals(1 / 0.07, components.get(0).getPeriod(), 0.2);
+        assertEquals(150.0, components.get(0).getDirection(), 1.0);
+        assertEquals(4 * Math.sqrt(0.2), components.get(1).getWaveHeight(), 0.05);
+        assertEquals(1 / 0.2, components.get(1).getPeriod(), 0.1);
+        assertEquals(220.0, components.get(1).getDirection(), 1.0);
+    }
+
+    /**
+     * A narrow gaussian peak on evenly spaced bands, so its zeroth moment is the given variance.
+     */
+    private static ApiApiMessagesWaveSpectraMessage createSpectra(double peakFrequency, double variance, double direction) {
+        ArrayList<Double> frequencies = new ArrayList<>();
+        ArrayList<Double> energies = new ArrayList<>();
+        ArrayList<Double> angles = new ArrayList<>();
+
+        double width = 0.012;
+        double scale = variance / (Math.sqrt(2 * Math.PI) * width);
+        for (int i = 0; i < 47; i++) {
+            double frequency = 0.02 + i * BAND_WIDTH;
+            frequencies.add(frequency);
+            energies.add(scale * Math.exp(-Math.pow(frequency - peakFrequency, 2) / (2 * width * width)));
+            angles.add(direction);
+        }
+
+        ApiApiMessagesWaveSpectraMessage spectra = new ApiApiMessagesWaveSpectraMessage();
+        spectra.setFrequency(frequencies);
+        spectra.setEnergy(energies);
+        spectra.setAngle(angles);
+        return spectra;
+    }
+
+    private static ApiApiMessagesDataMessage createReading(ApiApiMessagesWaveSpectraMessage spectra, double waveHeight) {
+        ApiApiMessagesSwellMessage summary = new ApiApiMessagesSwellMessage();
+        summary.setWaveHeight(waveHeight);
+
+        ApiApiMessagesDataMessage reading = new ApiApiMessagesDataMessage();
+        reading.setWaveSpectra(spectra);
+        reading.setWaveSummary(summary);
+        return reading;
+    }
+}